@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times AbstractAxes.updateGlobal on the leaf of a chain of axes after its root has been rotated,
+ * which dirties and recomputes the whole chain, in double and single precision.
+ * With "flat" set, the chain is made an AxesHierarchy, so the dirty tracking is that of the hierarchy
+ * rather than of the dependency registry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AxesBenchmark {
+
+	static final int POSES = 64;
+
+	@State(Scope.Thread)
+	public static class DoubleChain {
+		@Param({"1", "8", "32"})
+		public int depth;
+		@Param({"false", "true"})
+		public boolean flat;
+		/**every axes in the chain, rootmost first. Held here because axes only reference their dependents weakly*/
+		math.doubleV.AbstractAxes[] chain;
+		math.doubleV.AbstractAxes root, leaf;
+		math.doubleV.Rot[] poses = new math.doubleV.Rot[POSES];
+		int pose = 0;
+
+		@Setup
+		public void build() {
+			math.doubleV.SGVec_3d x = new math.doubleV.SGVec_3d(1, 0, 0), y = new math.doubleV.SGVec_3d(0, 1, 0), z = new math.doubleV.SGVec_3d(0, 0, 1);
+			chain = new math.doubleV.AbstractAxes[depth];
+			chain[0] = new math.doubleV.CartesianAxes(new math.doubleV.SGVec_3d(0, 0, 0), x, y, z, null);
+			for(int i = 1; i < depth; i++)
+				chain[i] = new math.doubleV.CartesianAxes(new math.doubleV.SGVec_3d(0, i, 0), x, y, z, chain[i - 1]);
+			root = chain[0];
+			leaf = chain[depth - 1];
+			if(flat)
+				new math.doubleV.AxesHierarchy(root);
+			Random r = new Random(1);
+			for(int i = 0; i < POSES; i++)
+				poses[i] = new math.doubleV.Rot(r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), true);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FloatChain {
+		@Param({"1", "8", "32"})
+		public int depth;
+		@Param({"false", "true"})
+		public boolean flat;
+		/**every axes in the chain, rootmost first. Held here because axes only reference their dependents weakly*/
+		math.floatV.AbstractAxes[] chain;
+		math.floatV.AbstractAxes root, leaf;
+		math.floatV.Rot[] poses = new math.floatV.Rot[POSES];
+		int pose = 0;
+
+		@Setup
+		public void build() {
+			math.floatV.SGVec_3f x = new math.floatV.SGVec_3f(1, 0, 0), y = new math.floatV.SGVec_3f(0, 1, 0), z = new math.floatV.SGVec_3f(0, 0, 1);
+			chain = new math.floatV.AbstractAxes[depth];
+			chain[0] = new math.floatV.CartesianAxes(new math.floatV.SGVec_3f(0, 0, 0), x, y, z, null);
+			for(int i = 1; i < depth; i++)
+				chain[i] = new math.floatV.CartesianAxes(new math.floatV.SGVec_3f(0, i, 0), x, y, z, chain[i - 1]);
+			root = chain[0];
+			leaf = chain[depth - 1];
+			if(flat)
+				new math.floatV.AxesHierarchy(root);
+			Random r = new Random(1);
+			for(int i = 0; i < POSES; i++)
+				poses[i] = new math.floatV.Rot((float) r.nextGaussian(), (float) r.nextGaussian(), (float) r.nextGaussian(), (float) r.nextGaussian(), true);
+		}
+	}
+
+	@Benchmark
+	public double updateGlobalDouble(DoubleChain state) {
+		state.root.getLocalMBasis().rotateTo(state.poses[state.pose++ & (POSES - 1)]);
+		state.root.markDirty();
+		state.leaf.updateGlobal();
+		return state.leaf.getGlobalMBasis().rotation.rotation.getQ0();
+	}
+
+	@Benchmark
+	public float updateGlobalFloat(FloatChain state) {
+		state.root.getLocalMBasis().rotateTo(state.poses[state.pose++ & (POSES - 1)]);
+		state.root.markDirty();
+		state.leaf.updateGlobal();
+		return state.leaf.getGlobalMBasis().rotation.rotation.getQ0();
+	}
+}
@@ -0,0 +1,138 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that {@link IK.doubleIK.ArmatureBatchSolver} gives the same results as solving serially when the armatures
+ * in the batch share kusudamas. Builds two identical sets of constrained two bone limbs (see {@link DoubleRigs#limb(boolean)}),
+ * in each of which every limb's upper and lower bones are given the first limb's kusudamas, and moves every limb's target
+ * differently. One set is solved on a batch solver with several worker threads, the other one limb at a time,
+ * and every bone of every limb must end up in exactly the same place in both.
+ *
+ * Run with: java benchmarks.BatchSharedConstraintTest [frames] [limbs] [threads]
+ * Prints a line per precision, and exits with status 1 if either of them differed.
+ */
+public class BatchSharedConstraintTest {
+
+	public static void main(String[] args) {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int limbs = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		boolean passed = true;
+		passed &= report("double", compareDouble(frames, limbs, threads), frames);
+		passed &= report("float", compareFloat(frames, limbs, threads), frames);
+		if(!passed) System.exit(1);
+	}
+
+	/**
+	 * @return the number of frames in which any bone solved by the batch solver ended up
+	 * in a different place than its counterpart solved serially.
+	 */
+	static int compareDouble(int frames, int limbs, int threads) {
+		List<DoubleRigs.Rig> batched = sharedLimbsDouble(limbs);
+		List<DoubleRigs.Rig> serial = sharedLimbsDouble(limbs);
+		IK.doubleIK.ArmatureBatchSolver batch = new IK.doubleIK.ArmatureBatchSolver(threads);
+		for(int i = 0; i < limbs; i++)
+			batch.add(batched.get(i).armatures.get(0));
+		int differingFrames = 0;
+		for(int frame = 0; frame < frames; frame++) {
+			for(int i = 0; i < limbs; i++) {
+				batched.get(i).animate(frame + 13 * i);
+				serial.get(i).animate(frame + 13 * i);
+				serial.get(i).solve();
+			}
+			batch.solve();
+			boolean same = true;
+			for(int i = 0; i < limbs; i++) {
+				List<? extends IK.doubleIK.AbstractBone> a = batched.get(i).armatures.get(0).getBoneList();
+				List<? extends IK.doubleIK.AbstractBone> b = serial.get(i).armatures.get(0).getBoneList();
+				for(int j = 0; j < a.size(); j++)
+					same &= samePlace(a.get(j).localAxes().getGlobalMBasis(), b.get(j).localAxes().getGlobalMBasis());
+			}
+			if(!same) differingFrames++;
+		}
+		batch.shutdown();
+		return differingFrames;
+	}
+
+	static int compareFloat(int frames, int limbs, int threads) {
+		List<FloatRigs.Rig> batched = sharedLimbsFloat(limbs);
+		List<FloatRigs.Rig> serial = sharedLimbsFloat(limbs);
+		IK.floatIK.ArmatureBatchSolver batch = new IK.floatIK.ArmatureBatchSolver(threads);
+		for(int i = 0; i < limbs; i++)
+			batch.add(batched.get(i).armatures.get(0));
+		int differingFrames = 0;
+		for(int frame = 0; frame < frames; frame++) {
+			for(int i = 0; i < limbs; i++) {
+				batched.get(i).animate(frame + 13 * i);
+				serial.get(i).animate(frame + 13 * i);
+				serial.get(i).solve();
+			}
+			batch.solve();
+			boolean same = true;
+			for(int i = 0; i < limbs; i++) {
+				List<? extends IK.floatIK.AbstractBone> a = batched.get(i).armatures.get(0).getBoneList();
+				List<? extends IK.floatIK.AbstractBone> b = serial.get(i).armatures.get(0).getBoneList();
+				for(int j = 0; j < a.size(); j++)
+					same &= samePlace(a.get(j).localAxes().getGlobalMBasis(), b.get(j).localAxes().getGlobalMBasis());
+			}
+			if(!same) differingFrames++;
+		}
+		batch.shutdown();
+		return differingFrames;
+	}
+
+	/**
+	 * @return the given number of constrained limbs, each in its own rig,
+	 * with every limb's upper and lower bones constrained by the first limb's kusudamas.
+	 */
+	static List<DoubleRigs.Rig> sharedLimbsDouble(int limbs) {
+		List<DoubleRigs.Rig> rigs = new ArrayList<>();
+		for(int i = 0; i < limbs; i++) {
+			DoubleRigs.Rig rig = DoubleRigs.limb(true);
+			if(i > 0) {
+				DoubleRigs.Armature first = rigs.get(0).armatures.get(0);
+				DoubleRigs.Armature arm = rig.armatures.get(0);
+				arm.getBoneTagged("upper").addConstraint(first.getBoneTagged("upper").getConstraint());
+				arm.getBoneTagged("lower").addConstraint(first.getBoneTagged("lower").getConstraint());
+			}
+			rigs.add(rig);
+		}
+		return rigs;
+	}
+
+	static List<FloatRigs.Rig> sharedLimbsFloat(int limbs) {
+		List<FloatRigs.Rig> rigs = new ArrayList<>();
+		for(int i = 0; i < limbs; i++) {
+			FloatRigs.Rig rig = FloatRigs.limb(true);
+			if(i > 0) {
+				FloatRigs.Armature first = rigs.get(0).armatures.get(0);
+				FloatRigs.Armature arm = rig.armatures.get(0);
+				arm.getBoneTagged("upper").addConstraint(first.getBoneTagged("upper").getConstraint());
+				arm.getBoneTagged("lower").addConstraint(first.getBoneTagged("lower").getConstraint());
+			}
+			rigs.add(rig);
+		}
+		return rigs;
+	}
+
+	static boolean samePlace(math.doubleV.AbstractBasis a, math.doubleV.AbstractBasis b) {
+		math.doubleV.MRotation ra = a.rotation.rotation, rb = b.rotation.rotation;
+		return ra.getQ0() == rb.getQ0() && ra.getQ1() == rb.getQ1() && ra.getQ2() == rb.getQ2() && ra.getQ3() == rb.getQ3()
+				&& a.translate.x == b.translate.x && a.translate.y == b.translate.y && a.translate.z == b.translate.z;
+	}
+
+	static boolean samePlace(math.floatV.AbstractBasis a, math.floatV.AbstractBasis b) {
+		math.floatV.MRotation ra = a.rotation.rotation, rb = b.rotation.rotation;
+		return ra.getQ0() == rb.getQ0() && ra.getQ1() == rb.getQ1() && ra.getQ2() == rb.getQ2() && ra.getQ3() == rb.getQ3()
+				&& a.translate.x == b.translate.x && a.translate.y == b.translate.y && a.translate.z == b.translate.z;
+	}
+
+	static boolean report(String precision, int differingFrames, int frames) {
+		boolean passed = differingFrames == 0;
+		System.out.println("limbs sharing kusudamas (" + precision + "): " + (passed ? "ok" : "FAILED")
+				+ ", " + differingFrames + " of " + frames + " frames differed between batched and serial solving");
+		return passed;
+	}
+}
@@ -0,0 +1,269 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import IK.doubleIK.AbstractArmature;
+import IK.doubleIK.AbstractBone;
+import IK.doubleIK.AbstractIKPin;
+import IK.doubleIK.AbstractKusudama;
+import IK.doubleIK.AbstractLimitCone;
+import math.doubleV.AbstractAxes;
+import math.doubleV.CartesianAxes;
+import math.doubleV.SGVec_3d;
+import math.doubleV.Vec3d;
+
+/**
+ * The standard rigs the benchmarks solve, built on minimal concrete implementations of the double precision
+ * abstract classes (playing the part examples/extensionExamples plays for applications).
+ * {@link FloatRigs} builds the same rigs in single precision.
+ */
+public final class DoubleRigs {
+
+	private DoubleRigs() {}
+
+	public static class Armature extends AbstractArmature {
+		public Armature(AbstractAxes origin, String name) {
+			super(origin, name);
+		}
+
+		@Override
+		protected void initializeRootBone(AbstractArmature armature, Vec3d<?> tipHeading, Vec3d<?> rollHeading, String inputTag, double boneHeight, AbstractBone.frameType coordinateType) {
+			this.rootBone = new Bone(armature, tipHeading, rollHeading, inputTag, boneHeight, coordinateType);
+		}
+	}
+
+	public static class Bone extends AbstractBone {
+		public Bone(AbstractArmature armature, Vec3d<?> tipHeading, Vec3d<?> rollHeading, String inputTag, double boneHeight, frameType coordinateType) {
+			super(armature, tipHeading, rollHeading, inputTag, boneHeight, coordinateType);
+		}
+
+		public Bone(AbstractBone parent, double xAngle, double yAngle, double zAngle, String inputTag, double boneHeight) {
+			super(parent, xAngle, yAngle, zAngle, inputTag, boneHeight);
+		}
+
+		@Override
+		protected void generateAxes(Vec3d<?> origin, Vec3d<?> x, Vec3d<?> y, Vec3d<?> z) {
+			this.localAxes = new CartesianAxes(origin, x, y, z, null);
+		}
+
+		@Override
+		protected AbstractIKPin createAndReturnPinOnAxes(AbstractAxes on) {
+			return new Pin(on, true, this);
+		}
+	}
+
+	public static class Pin extends AbstractIKPin {
+		public Pin(AbstractAxes on, boolean enabled, AbstractBone forBone) {
+			super(on, enabled, forBone);
+		}
+	}
+
+	public static class Kusudama extends AbstractKusudama {
+		public Kusudama(AbstractBone forBone) {
+			super(forBone);
+		}
+
+		@Override
+		public AbstractLimitCone createLimitConeForIndex(int insertAt, Vec3d<?> newPoint, double radius) {
+			return new LimitCone(newPoint, radius, this);
+		}
+	}
+
+	public static class LimitCone extends AbstractLimitCone {
+		public LimitCone(Vec3d<?> location, double radius, AbstractKusudama attachedTo) {
+			super(location, radius, attachedTo);
+		}
+	}
+
+	/**
+	 * one or more armatures, along with the pins whose targets {@link #animate(int)} moves.
+	 */
+	public static class Rig {
+		public final List<Armature> armatures = new ArrayList<>();
+		private final List<AbstractIKPin> animatedPins = new ArrayList<>();
+		private final List<SGVec_3d> restLocations = new ArrayList<>();
+		private final SGVec_3d workingLocation = new SGVec_3d();
+
+		void add(Armature armature) {
+			armatures.add(armature);
+			for(AbstractBone b : armature.getBoneList()) {
+				if(b.isPinned() && b.getParent() != null) {
+					animatedPins.add(b.getIKPin());
+					Vec3d<?> location = b.getIKPin().getLocation_();
+					restLocations.add(new SGVec_3d(location.x, location.y, location.z));
+				}
+			}
+		}
+
+		/**
+		 * moves every pin other than the root pins to a deterministic point on a small loop around where it started,
+		 * and rotates it slightly, so that every frame gives the solver something to do.
+		 */
+		public void animate(int frame) {
+			for(int i = 0; i < animatedPins.size(); i++) {
+				AbstractIKPin pin = animatedPins.get(i);
+				SGVec_3d rest = restLocations.get(i);
+				double a = 0.1 * frame + i;
+				workingLocation.set(rest.x + 0.15 * Math.sin(a), rest.y + 0.15 * Math.cos(a * 1.3), rest.z + 0.1 * Math.sin(a * 0.7));
+				pin.translateTo_(workingLocation);
+				pin.getAxes().rotateAboutX(0.01 * Math.sin(a), true);
+			}
+		}
+
+		/**
+		 * solves every armature in the rig once with its defaults.
+		 * @return the total number of iterations run
+		 */
+		public int solve() {
+			int iterations = 0;
+			//indexed, so that the benchmark's own loop doesn't allocate an iterator per solve
+			for(int i = 0; i < armatures.size(); i++) {
+				Armature a = armatures.get(i);
+				a.IKSolver(a.getRootBone());
+				iterations += a.getLastSolveIterations();
+			}
+			return iterations;
+		}
+	}
+
+	/**
+	 * @param name one of "torso", "tentacle", "hand", "crowd" or "limb"
+	 */
+	public static Rig build(String name) {
+		switch(name) {
+		case "torso": return humanoidTorso();
+		case "tentacle": return tentacle(20);
+		case "hand": return hand(5);
+		case "crowd": return crowd(100);
+		case "limb": return limb(true);
+		default: throw new IllegalArgumentException("no rig named " + name);
+		}
+	}
+
+	/**
+	 * a fully constrained humanoid torso pinned at the hips, head, and both hands, as in the README.
+	 */
+	public static Rig humanoidTorso() {
+		Rig rig = new Rig();
+		rig.add(torsoArmature(0d, 0d));
+		return rig;
+	}
+
+	/**
+	 * a constrained chain of the given number of bones, pinned at its base and tip.
+	 */
+	public static Rig tentacle(int boneCount) {
+		Armature arm = new Armature(origin(0d, 0d), "tentacle");
+		AbstractBone b = arm.getRootBone();
+		for(int i = 1; i < boneCount; i++) {
+			b = new Bone(b, 0.08, 0, 0.05, "segment" + i, 0.4);
+			constrain(b, 0.5, -0.4, 0.8);
+		}
+		arm.getRootBone().enablePin();
+		b.enablePin();
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * a hand pinned at the wrist, with the given number of three bone fingers, each pinned at its tip.
+	 */
+	public static Rig hand(int fingerCount) {
+		Armature arm = new Armature(origin(0d, 0d), "hand");
+		AbstractBone wrist = arm.getRootBone();
+		for(int f = 0; f < fingerCount; f++) {
+			double spread = 0.25 * (f - (fingerCount - 1) / 2d);
+			AbstractBone b = new Bone(wrist, 0, 0, spread, "finger" + f + "_0", 0.4);
+			constrain(b, 0.4, -0.2, 0.4);
+			for(int j = 1; j < 3; j++) {
+				b = new Bone(b, 0.3, 0, 0, "finger" + f + "_" + j, 0.3 - 0.05 * j);
+				constrain(b, 0.7, -0.1, 0.2);
+			}
+			b.enablePin();
+		}
+		wrist.enablePin();
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * a two bone limb hanging from a pinned root, with its tip pinned by position alone, 
+	 * so that the limb is a segment {@link AbstractArmature#setAnalyticTwoBoneSolving(boolean)} can solve in closed form.
+	 * @param constrained whether to give the limb's bones the same constraints as the torso's arms
+	 */
+	public static Rig limb(boolean constrained) {
+		Armature arm = new Armature(origin(0d, 0d), "limb");
+		AbstractBone root = arm.getRootBone();
+		Bone upper = new Bone(root, 0.2, 0, 0.3, "upper", 1);
+		Bone lower = new Bone(upper, 0.6, 0, 0, "lower", 1);
+		Bone tip = new Bone(lower, 0, 0, 0, "tip", 0.3);
+		if(constrained) {
+			constrain(upper, 0.9, -0.8, 1.6).setPainfullness(0.3);
+			constrain(lower, 0.6, -0.5, 1.0).addLimitConeAtIndex(1, new SGVec_3d(0.5, 0.5, 0), 0.4);
+		}
+		root.enablePin();
+		tip.enablePin();
+		tip.getIKPin().setTargetPriorities(0, 0, 0);
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * the given number of humanoid torsos, laid out on a grid, each solved independently.
+	 */
+	public static Rig crowd(int characters) {
+		Rig rig = new Rig();
+		int columns = (int)Math.ceil(Math.sqrt(characters));
+		for(int i = 0; i < characters; i++) {
+			rig.add(torsoArmature(4d * (i % columns), 4d * (i / columns)));
+		}
+		return rig;
+	}
+
+	static Armature torsoArmature(double x, double z) {
+		Armature arm = new Armature(origin(x, z), "torso");
+		AbstractBone hips = arm.getRootBone();
+		Bone spine = new Bone(hips, 0.1, 0, 0, "spine", 1);
+		constrain(spine, 0.4, -0.3, 0.6);
+		Bone chest = new Bone(spine, 0.1, 0, 0.05, "chest", 1);
+		constrain(chest, 0.4, -0.3, 0.6);
+		Bone neck = new Bone(chest, 0, 0, 0, "neck", 0.3);
+		constrain(neck, 0.6, -0.5, 1.0);
+		Bone head = new Bone(neck, 0, 0, 0, "head", 0.5);
+		constrain(head, 0.6, -0.5, 1.0);
+		for(int s = -1; s <= 1; s += 2) {
+			Bone shoulder = new Bone(chest, 0, 0, s * 1.2, "shoulder" + s, 0.5);
+			constrain(shoulder, 0.3, -0.2, 0.4);
+			Bone upper = new Bone(shoulder, 0.2, 0, s * 0.3, "upperArm" + s, 1);
+			Kusudama k = constrain(upper, 0.9, -0.8, 1.6);
+			k.setPainfullness(0.3);
+			Bone lower = new Bone(upper, 0.4, 0, 0, "lowerArm" + s, 1);
+			Kusudama elbow = constrain(lower, 0.6, -0.5, 1.0);
+			elbow.addLimitConeAtIndex(1, new SGVec_3d(0.5, 0.5, 0), 0.4);
+			Bone hand = new Bone(lower, 0, 0, 0, "hand" + s, 0.3);
+			constrain(hand, 0.7, -0.4, 0.8);
+			hand.enablePin();
+		}
+		head.enablePin();
+		hips.enablePin();
+		return arm;
+	}
+
+	/**
+	 * gives the bone a kusudama with a single cone along its heading, and the given twist limits.
+	 */
+	static Kusudama constrain(AbstractBone b, double coneRadius, double minTwist, double twistRange) {
+		Kusudama k = new Kusudama(b);
+		k.addLimitConeAtIndex(0, new SGVec_3d(0, 1, 0), coneRadius);
+		k.setAxialLimits(minTwist, twistRange);
+		return k;
+	}
+
+	static CartesianAxes origin(double x, double z) {
+		return new CartesianAxes(new SGVec_3d(x, 0, z), new SGVec_3d(1, 0, 0), new SGVec_3d(0, 1, 0), new SGVec_3d(0, 0, 1), null);
+	}
+}
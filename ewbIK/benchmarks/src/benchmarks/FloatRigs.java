@@ -0,0 +1,270 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import IK.floatIK.AbstractArmature;
+import IK.floatIK.AbstractBone;
+import IK.floatIK.AbstractIKPin;
+import IK.floatIK.AbstractKusudama;
+import IK.floatIK.AbstractLimitCone;
+import math.floatV.AbstractAxes;
+import math.floatV.CartesianAxes;
+import math.floatV.MathUtils;
+import math.floatV.SGVec_3f;
+import math.floatV.Vec3f;
+
+/**
+ * The standard rigs the benchmarks solve, built on minimal concrete implementations of the single precision
+ * abstract classes (playing the part examples/extensionExamples plays for applications).
+ * {@link DoubleRigs} builds the same rigs in double precision.
+ */
+public final class FloatRigs {
+
+	private FloatRigs() {}
+
+	public static class Armature extends AbstractArmature {
+		public Armature(AbstractAxes origin, String name) {
+			super(origin, name);
+		}
+
+		@Override
+		protected void initializeRootBone(AbstractArmature armature, Vec3f<?> tipHeading, Vec3f<?> rollHeading, String inputTag, float boneHeight, AbstractBone.frameType coordinateType) {
+			this.rootBone = new Bone(armature, tipHeading, rollHeading, inputTag, boneHeight, coordinateType);
+		}
+	}
+
+	public static class Bone extends AbstractBone {
+		public Bone(AbstractArmature armature, Vec3f<?> tipHeading, Vec3f<?> rollHeading, String inputTag, float boneHeight, frameType coordinateType) {
+			super(armature, tipHeading, rollHeading, inputTag, boneHeight, coordinateType);
+		}
+
+		public Bone(AbstractBone parent, float xAngle, float yAngle, float zAngle, String inputTag, float boneHeight) {
+			super(parent, xAngle, yAngle, zAngle, inputTag, boneHeight);
+		}
+
+		@Override
+		protected void generateAxes(Vec3f<?> origin, Vec3f<?> x, Vec3f<?> y, Vec3f<?> z) {
+			this.localAxes = new CartesianAxes(origin, x, y, z, null);
+		}
+
+		@Override
+		protected AbstractIKPin createAndReturnPinOnAxes(AbstractAxes on) {
+			return new Pin(on, true, this);
+		}
+	}
+
+	public static class Pin extends AbstractIKPin {
+		public Pin(AbstractAxes on, boolean enabled, AbstractBone forBone) {
+			super(on, enabled, forBone);
+		}
+	}
+
+	public static class Kusudama extends AbstractKusudama {
+		public Kusudama(AbstractBone forBone) {
+			super(forBone);
+		}
+
+		@Override
+		public AbstractLimitCone createLimitConeForIndex(int insertAt, Vec3f<?> newPoint, float radius) {
+			return new LimitCone(newPoint, radius, this);
+		}
+	}
+
+	public static class LimitCone extends AbstractLimitCone {
+		public LimitCone(Vec3f<?> location, float radius, AbstractKusudama attachedTo) {
+			super(location, radius, attachedTo);
+		}
+	}
+
+	/**
+	 * one or more armatures, along with the pins whose targets {@link #animate(int)} moves.
+	 */
+	public static class Rig {
+		public final List<Armature> armatures = new ArrayList<>();
+		private final List<AbstractIKPin> animatedPins = new ArrayList<>();
+		private final List<SGVec_3f> restLocations = new ArrayList<>();
+		private final SGVec_3f workingLocation = new SGVec_3f();
+
+		void add(Armature armature) {
+			armatures.add(armature);
+			for(AbstractBone b : armature.getBoneList()) {
+				if(b.isPinned() && b.getParent() != null) {
+					animatedPins.add(b.getIKPin());
+					Vec3f<?> location = b.getIKPin().getLocation_();
+					restLocations.add(new SGVec_3f(location.x, location.y, location.z));
+				}
+			}
+		}
+
+		/**
+		 * moves every pin other than the root pins to a deterministic point on a small loop around where it started,
+		 * and rotates it slightly, so that every frame gives the solver something to do.
+		 */
+		public void animate(int frame) {
+			for(int i = 0; i < animatedPins.size(); i++) {
+				AbstractIKPin pin = animatedPins.get(i);
+				SGVec_3f rest = restLocations.get(i);
+				float a = 0.1f * frame + i;
+				workingLocation.set(rest.x + 0.15f * MathUtils.sin(a), rest.y + 0.15f * MathUtils.cos(a * 1.3f), rest.z + 0.1f * MathUtils.sin(a * 0.7f));
+				pin.translateTo_(workingLocation);
+				pin.getAxes().rotateAboutX(0.01f * MathUtils.sin(a), true);
+			}
+		}
+
+		/**
+		 * solves every armature in the rig once with its defaults.
+		 * @return the total number of iterations run
+		 */
+		public int solve() {
+			int iterations = 0;
+			//indexed, so that the benchmark's own loop doesn't allocate an iterator per solve
+			for(int i = 0; i < armatures.size(); i++) {
+				Armature a = armatures.get(i);
+				a.IKSolver(a.getRootBone());
+				iterations += a.getLastSolveIterations();
+			}
+			return iterations;
+		}
+	}
+
+	/**
+	 * @param name one of "torso", "tentacle", "hand", "crowd" or "limb"
+	 */
+	public static Rig build(String name) {
+		switch(name) {
+		case "torso": return humanoidTorso();
+		case "tentacle": return tentacle(20);
+		case "hand": return hand(5);
+		case "crowd": return crowd(100);
+		case "limb": return limb(true);
+		default: throw new IllegalArgumentException("no rig named " + name);
+		}
+	}
+
+	/**
+	 * a fully constrained humanoid torso pinned at the hips, head, and both hands, as in the README.
+	 */
+	public static Rig humanoidTorso() {
+		Rig rig = new Rig();
+		rig.add(torsoArmature(0f, 0f));
+		return rig;
+	}
+
+	/**
+	 * a constrained chain of the given number of bones, pinned at its base and tip.
+	 */
+	public static Rig tentacle(int boneCount) {
+		Armature arm = new Armature(origin(0f, 0f), "tentacle");
+		AbstractBone b = arm.getRootBone();
+		for(int i = 1; i < boneCount; i++) {
+			b = new Bone(b, 0.08f, 0, 0.05f, "segment" + i, 0.4f);
+			constrain(b, 0.5f, -0.4f, 0.8f);
+		}
+		arm.getRootBone().enablePin();
+		b.enablePin();
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * a hand pinned at the wrist, with the given number of three bone fingers, each pinned at its tip.
+	 */
+	public static Rig hand(int fingerCount) {
+		Armature arm = new Armature(origin(0f, 0f), "hand");
+		AbstractBone wrist = arm.getRootBone();
+		for(int f = 0; f < fingerCount; f++) {
+			float spread = 0.25f * (f - (fingerCount - 1) / 2f);
+			AbstractBone b = new Bone(wrist, 0, 0, spread, "finger" + f + "_0", 0.4f);
+			constrain(b, 0.4f, -0.2f, 0.4f);
+			for(int j = 1; j < 3; j++) {
+				b = new Bone(b, 0.3f, 0, 0, "finger" + f + "_" + j, 0.3f - 0.05f * j);
+				constrain(b, 0.7f, -0.1f, 0.2f);
+			}
+			b.enablePin();
+		}
+		wrist.enablePin();
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * a two bone limb hanging from a pinned root, with its tip pinned by position alone, 
+	 * so that the limb is a segment {@link AbstractArmature#setAnalyticTwoBoneSolving(boolean)} can solve in closed form.
+	 * @param constrained whether to give the limb's bones the same constraints as the torso's arms
+	 */
+	public static Rig limb(boolean constrained) {
+		Armature arm = new Armature(origin(0f, 0f), "limb");
+		AbstractBone root = arm.getRootBone();
+		Bone upper = new Bone(root, 0.2f, 0, 0.3f, "upper", 1);
+		Bone lower = new Bone(upper, 0.6f, 0, 0, "lower", 1);
+		Bone tip = new Bone(lower, 0, 0, 0, "tip", 0.3f);
+		if(constrained) {
+			constrain(upper, 0.9f, -0.8f, 1.6f).setPainfullness(0.3f);
+			constrain(lower, 0.6f, -0.5f, 1.0f).addLimitConeAtIndex(1, new SGVec_3f(0.5f, 0.5f, 0), 0.4f);
+		}
+		root.enablePin();
+		tip.enablePin();
+		tip.getIKPin().setTargetPriorities(0, 0, 0);
+		Rig rig = new Rig();
+		rig.add(arm);
+		return rig;
+	}
+
+	/**
+	 * the given number of humanoid torsos, laid out on a grid, each solved independently.
+	 */
+	public static Rig crowd(int characters) {
+		Rig rig = new Rig();
+		int columns = (int)Math.ceil(Math.sqrt(characters));
+		for(int i = 0; i < characters; i++) {
+			rig.add(torsoArmature(4f * (i % columns), 4f * (i / columns)));
+		}
+		return rig;
+	}
+
+	static Armature torsoArmature(float x, float z) {
+		Armature arm = new Armature(origin(x, z), "torso");
+		AbstractBone hips = arm.getRootBone();
+		Bone spine = new Bone(hips, 0.1f, 0, 0, "spine", 1);
+		constrain(spine, 0.4f, -0.3f, 0.6f);
+		Bone chest = new Bone(spine, 0.1f, 0, 0.05f, "chest", 1);
+		constrain(chest, 0.4f, -0.3f, 0.6f);
+		Bone neck = new Bone(chest, 0, 0, 0, "neck", 0.3f);
+		constrain(neck, 0.6f, -0.5f, 1.0f);
+		Bone head = new Bone(neck, 0, 0, 0, "head", 0.5f);
+		constrain(head, 0.6f, -0.5f, 1.0f);
+		for(int s = -1; s <= 1; s += 2) {
+			Bone shoulder = new Bone(chest, 0, 0, s * 1.2f, "shoulder" + s, 0.5f);
+			constrain(shoulder, 0.3f, -0.2f, 0.4f);
+			Bone upper = new Bone(shoulder, 0.2f, 0, s * 0.3f, "upperArm" + s, 1);
+			Kusudama k = constrain(upper, 0.9f, -0.8f, 1.6f);
+			k.setPainfullness(0.3f);
+			Bone lower = new Bone(upper, 0.4f, 0, 0, "lowerArm" + s, 1);
+			Kusudama elbow = constrain(lower, 0.6f, -0.5f, 1.0f);
+			elbow.addLimitConeAtIndex(1, new SGVec_3f(0.5f, 0.5f, 0), 0.4f);
+			Bone hand = new Bone(lower, 0, 0, 0, "hand" + s, 0.3f);
+			constrain(hand, 0.7f, -0.4f, 0.8f);
+			hand.enablePin();
+		}
+		head.enablePin();
+		hips.enablePin();
+		return arm;
+	}
+
+	/**
+	 * gives the bone a kusudama with a single cone along its heading, and the given twist limits.
+	 */
+	static Kusudama constrain(AbstractBone b, float coneRadius, float minTwist, float twistRange) {
+		Kusudama k = new Kusudama(b);
+		k.addLimitConeAtIndex(0, new SGVec_3f(0, 1, 0), coneRadius);
+		k.setAxialLimits(minTwist, twistRange);
+		return k;
+	}
+
+	static CartesianAxes origin(float x, float z) {
+		return new CartesianAxes(new SGVec_3f(x, 0, z), new SGVec_3f(1, 0, 0), new SGVec_3f(0, 1, 0), new SGVec_3f(0, 0, 1), null);
+	}
+}
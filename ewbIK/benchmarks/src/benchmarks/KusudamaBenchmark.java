@@ -0,0 +1,100 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times AbstractKusudama.setAxesToSnapped on a bone of the humanoid torso rig, in double and single precision.
+ * Each operation first poses the bone in one of a fixed set of random orientations (most of which violate the
+ * constraint), so the timing includes the cost of pulling a pose back into the allowed region as well as
+ * that of checking poses which are already inside it.
+ *
+ * "upperArm1" is limited by a single cone, "lowerArm1" by a pair of cones joined by their tangent cones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KusudamaBenchmark {
+
+	static final int POSES = 256;
+
+	@State(Scope.Thread)
+	public static class DoubleBone {
+		@Param({"upperArm1", "lowerArm1"})
+		public String bone;
+		IK.doubleIK.AbstractBone b;
+		IK.doubleIK.AbstractKusudama kusudama;
+		math.doubleV.AbstractAxes limitingAxes;
+		math.doubleV.Rot[] poses = new math.doubleV.Rot[POSES];
+		double cosHalfDampen;
+		int pose = 0;
+
+		@Setup
+		public void build() {
+			DoubleRigs.Armature arm = DoubleRigs.torsoArmature(0d, 0d);
+			b = arm.getBoneTagged(bone);
+			kusudama = (IK.doubleIK.AbstractKusudama) b.getConstraint();
+			limitingAxes = b.getMajorRotationAxes();
+			cosHalfDampen = Math.cos(arm.getDampening() / 2d);
+			Random r = new Random(1);
+			for(int i = 0; i < POSES; i++)
+				poses[i] = new math.doubleV.Rot(r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), r.nextGaussian(), true);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FloatBone {
+		@Param({"upperArm1", "lowerArm1"})
+		public String bone;
+		IK.floatIK.AbstractBone b;
+		IK.floatIK.AbstractKusudama kusudama;
+		math.floatV.AbstractAxes limitingAxes;
+		math.floatV.Rot[] poses = new math.floatV.Rot[POSES];
+		float cosHalfDampen;
+		int pose = 0;
+
+		@Setup
+		public void build() {
+			FloatRigs.Armature arm = FloatRigs.torsoArmature(0f, 0f);
+			b = arm.getBoneTagged(bone);
+			kusudama = (IK.floatIK.AbstractKusudama) b.getConstraint();
+			limitingAxes = b.getMajorRotationAxes();
+			cosHalfDampen = (float) Math.cos(arm.getDampening() / 2f);
+			Random r = new Random(1);
+			for(int i = 0; i < POSES; i++)
+				poses[i] = new math.floatV.Rot((float) r.nextGaussian(), (float) r.nextGaussian(), (float) r.nextGaussian(), (float) r.nextGaussian(), true);
+		}
+	}
+
+	@Benchmark
+	public double snapDouble(DoubleBone state) {
+		math.doubleV.AbstractAxes axes = state.b.localAxes();
+		axes.getLocalMBasis().rotateTo(state.poses[state.pose++ & (POSES - 1)]);
+		axes.markDirty();
+		state.kusudama.setAxesToSnapped(axes, state.limitingAxes, state.cosHalfDampen);
+		return axes.getLocalMBasis().rotation.rotation.getQ0();
+	}
+
+	@Benchmark
+	public float snapFloat(FloatBone state) {
+		math.floatV.AbstractAxes axes = state.b.localAxes();
+		axes.getLocalMBasis().rotateTo(state.poses[state.pose++ & (POSES - 1)]);
+		axes.markDirty();
+		state.kusudama.setAxesToSnapped(axes, state.limitingAxes, state.cosHalfDampen);
+		return axes.getLocalMBasis().rotation.rotation.getQ0();
+	}
+}
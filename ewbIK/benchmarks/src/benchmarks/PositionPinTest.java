@@ -0,0 +1,68 @@
+package benchmarks;
+
+/**
+ * Checks that the iterative QCP solver can move a tip pinned by position alone (see {@link DoubleRigs#limb(boolean)},
+ * solved without {@link IK.doubleIK.AbstractArmature#setAnalyticTwoBoneSolving(boolean)}). Such a pin contributes
+ * only the tip's position to the headings QCP superposes, so if that position were left out the tip would barely follow its target.
+ *
+ * Builds a fresh limb for each of a number of target placements along the rig's animation, and measures how far its tip
+ * is from the target both before and after solving it a few times with the target held still. Some placements are out of reach,
+ * but the tip must end up, on average, no more than half as far from its target after solving as it was before.
+ *
+ * Run with: java benchmarks.PositionPinTest [placements]
+ * Prints a line per limb and precision, and exits with status 1 if any of them failed.
+ */
+public class PositionPinTest {
+
+	public static void main(String[] args) {
+		int placements = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		boolean passed = true;
+		passed &= report("unconstrained limb", "double", measureDouble(false, placements), placements);
+		passed &= report("unconstrained limb", "float", measureFloat(false, placements), placements);
+		passed &= report("constrained limb", "double", measureDouble(true, placements), placements);
+		passed &= report("constrained limb", "float", measureFloat(true, placements), placements);
+		if(!passed) System.exit(1);
+	}
+
+	/**how many times each limb is solved once its target is placed*/
+	static final int SOLVES = 10;
+
+	/**
+	 * @return the total distance of each limb's tip from its target, before and after solving, 
+	 * over the given number of placements (every tenth frame of the rig's animation).
+	 */
+	static double[] measureDouble(boolean constrained, int placements) {
+		double[] result = new double[2];
+		for(int p = 0; p < placements; p++) {
+			DoubleRigs.Rig rig = DoubleRigs.limb(constrained);
+			IK.doubleIK.AbstractBone tip = rig.armatures.get(0).getBoneTagged("tip");
+			rig.animate(10 * p);
+			result[0] += tip.localAxes().origin_().dist(tip.getIKPin().getLocation_());
+			for(int i = 0; i < SOLVES; i++) 
+				rig.solve();
+			result[1] += tip.localAxes().origin_().dist(tip.getIKPin().getLocation_());
+		}
+		return result;
+	}
+
+	static double[] measureFloat(boolean constrained, int placements) {
+		double[] result = new double[2];
+		for(int p = 0; p < placements; p++) {
+			FloatRigs.Rig rig = FloatRigs.limb(constrained);
+			IK.floatIK.AbstractBone tip = rig.armatures.get(0).getBoneTagged("tip");
+			rig.animate(10 * p);
+			result[0] += tip.localAxes().origin_().dist(tip.getIKPin().getLocation_());
+			for(int i = 0; i < SOLVES; i++) 
+				rig.solve();
+			result[1] += tip.localAxes().origin_().dist(tip.getIKPin().getLocation_());
+		}
+		return result;
+	}
+
+	static boolean report(String limb, String precision, double[] result, int placements) {
+		boolean passed = result[1] <= 0.5 * result[0];
+		System.out.println(limb + " (" + precision + "): " + (passed ? "ok" : "FAILED")
+				+ ", mean distance from target " + result[0] / placements + " before solving, " + result[1] / placements + " after");
+		return passed;
+	}
+}
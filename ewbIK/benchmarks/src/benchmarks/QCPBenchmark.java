@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times QCP.weightedSuperpose on the packed heading arrays the solver passes it, in double and single precision,
+ * with the solver's settings (no eigenvalue refinement iterations, and no translation).
+ *
+ * Each invocation superposes {@link #SETS} different weighted heading sets, so that the timing isn't of a single
+ * set the branch predictor has memorized. The scale parameter multiplies every coordinate, which costs the double
+ * QCP nothing but is where the single precision QCP used to fail (see {@link QCPPrecisionComparison}, which
+ * measures how far the two disagree on the same sets).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QCPBenchmark {
+
+	static final int SETS = 256;
+
+	/**the number of headings per set. 7 is what a pin which cares about position and all three orientation axes contributes*/
+	@Param({"1", "7", "28"})
+	public int headings;
+
+	@Param({"1", "0.001", "10000000"})
+	public double scale;
+
+	double[][] movedD, targetD;
+	double[] weightD;
+	float[][] movedF, targetF;
+	float[] weightF;
+
+	math.doubleV.QCP qcpD;
+	math.floatV.QCP qcpF;
+	math.doubleV.Rot rotD = new math.doubleV.Rot();
+	math.floatV.Rot rotF = new math.floatV.Rot();
+
+	@Setup
+	public void generate() {
+		Random r = new Random(1);
+		movedD = new double[SETS][];
+		targetD = new double[SETS][];
+		movedF = new float[SETS][];
+		targetF = new float[SETS][];
+		for(int s = 0; s < SETS; s++) {
+			double[][] set = QCPPrecisionComparison.headingSet(r, headings, scale);
+			movedD[s] = set[0];
+			targetD[s] = set[1];
+			movedF[s] = QCPPrecisionComparison.toFloat(set[0]);
+			targetF[s] = QCPPrecisionComparison.toFloat(set[1]);
+		}
+		weightD = QCPPrecisionComparison.weights(r, headings);
+		weightF = QCPPrecisionComparison.toFloat(weightD);
+		qcpD = new math.doubleV.QCP(math.doubleV.MathUtils.DOUBLE_ROUNDING_ERROR, math.doubleV.MathUtils.DOUBLE_ROUNDING_ERROR);
+		qcpF = new math.floatV.QCP(math.floatV.MathUtils.FLOAT_ROUNDING_ERROR, math.floatV.MathUtils.FLOAT_ROUNDING_ERROR);
+		qcpD.setMaxIterations(0);
+		qcpF.setMaxIterations(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SETS)
+	public double weightedSuperposeDouble() {
+		double sum = 0d;
+		for(int s = 0; s < SETS; s++) {
+			sum += qcpD.weightedSuperpose(movedD[s], targetD[s], weightD, false, rotD).rotation.getQ0();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SETS)
+	public float weightedSuperposeFloat() {
+		float sum = 0f;
+		for(int s = 0; s < SETS; s++) {
+			sum += qcpF.weightedSuperpose(movedF[s], targetF[s], weightF, false, rotF).rotation.getQ0();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Compares the single precision QCP against the double precision QCP on the same weighted heading sets,
+ * at scales from a millimeter to ten thousand kilometers (if a unit is a meter), and reports the angle between the
+ * rotations the two find, how often the single precision result isn't a number, and how long each takes.
+ *
+ * The double precision QCP is handed the unscaled headings, since the rotation which superposes them doesn't
+ * depend on scale, so its result serves as the reference at every scale.
+ *
+ * Run with: java benchmarks.QCPPrecisionComparison [sets per scale] [scale ...]
+ */
+public class QCPPrecisionComparison {
+
+	static final int HEADINGS = 7;
+
+	public static void main(String[] args) {
+		int sets = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		double[] scales = {1e-3, 1d, 1e7};
+		if(args.length > 1) {
+			scales = new double[args.length - 1];
+			for(int i = 1; i < args.length; i++)
+				scales[i - 1] = Double.parseDouble(args[i]);
+		}
+		for(double scale : scales) {
+			compare(sets, scale);
+		}
+	}
+
+	static void compare(int sets, double scale) {
+		Random r = new Random(1);
+		double[] weightD = weights(r, HEADINGS);
+		float[] weightF = toFloat(weightD);
+		double[][] movedD = new double[sets][], targetD = new double[sets][];
+		float[][] movedF = new float[sets][], targetF = new float[sets][];
+		for(int s = 0; s < sets; s++) {
+			double[][] set = headingSet(r, HEADINGS, 1d);
+			movedD[s] = set[0];
+			targetD[s] = set[1];
+			movedF[s] = toFloat(set[0], scale);
+			targetF[s] = toFloat(set[1], scale);
+		}
+
+		math.doubleV.QCP qcpD = new math.doubleV.QCP(math.doubleV.MathUtils.DOUBLE_ROUNDING_ERROR, math.doubleV.MathUtils.DOUBLE_ROUNDING_ERROR);
+		math.floatV.QCP qcpF = new math.floatV.QCP(math.floatV.MathUtils.FLOAT_ROUNDING_ERROR, math.floatV.MathUtils.FLOAT_ROUNDING_ERROR);
+		qcpD.setMaxIterations(0);
+		qcpF.setMaxIterations(0);
+		math.doubleV.Rot rotD = new math.doubleV.Rot();
+		math.floatV.Rot rotF = new math.floatV.Rot();
+
+		double maxError = 0d, totalError = 0d;
+		int nanCount = 0;
+		for(int s = 0; s < sets; s++) {
+			qcpD.weightedSuperpose(movedD[s], targetD[s], weightD, false, rotD);
+			qcpF.weightedSuperpose(movedF[s], targetF[s], weightF, false, rotF);
+			math.doubleV.MRotation d = rotD.rotation;
+			math.floatV.MRotation f = rotF.rotation;
+			double dot = Math.abs(d.getQ0()*f.getQ0() + d.getQ1()*f.getQ1() + d.getQ2()*f.getQ2() + d.getQ3()*f.getQ3());
+			double angle = 2d * Math.acos(Math.min(1d, dot));
+			if(Double.isNaN(angle)) {
+				nanCount++;
+				continue;
+			}
+			maxError = Math.max(maxError, angle);
+			totalError += angle;
+		}
+		int measured = sets - nanCount;
+
+		//a rough timing, for when JMH isn't at hand. QCPBenchmark is the careful one.
+		long doubleNanos = Long.MAX_VALUE, floatNanos = Long.MAX_VALUE;
+		for(int rep = 0; rep < 5; rep++) {
+			long start = System.nanoTime();
+			for(int s = 0; s < sets; s++) qcpD.weightedSuperpose(movedD[s], targetD[s], weightD, false, rotD);
+			long mid = System.nanoTime();
+			for(int s = 0; s < sets; s++) qcpF.weightedSuperpose(movedF[s], targetF[s], weightF, false, rotF);
+			long end = System.nanoTime();
+			doubleNanos = Math.min(doubleNanos, mid - start);
+			floatNanos = Math.min(floatNanos, end - mid);
+		}
+
+		System.out.println("scale " + scale + ": "
+				+ "max angle error = " + maxError + " rad"
+				+ ", mean angle error = " + (measured == 0 ? Double.NaN : totalError / measured) + " rad"
+				+ ", NaN results = " + nanCount + "/" + sets
+				+ ", double = " + (double)doubleNanos / sets + "ns"
+				+ ", float = " + (double)floatNanos / sets + "ns");
+	}
+
+	/**
+	 * @return a pair of packed heading arrays {moved, target}, with each target heading a noisy version of its moved heading,
+	 * and every coordinate multiplied by scale.
+	 */
+	static double[][] headingSet(Random r, int count, double scale) {
+		double[] moved = new double[count * 3];
+		double[] target = new double[count * 3];
+		for(int i = 0; i < count * 3; i += 3) {
+			double x = r.nextGaussian(), y = r.nextGaussian(), z = r.nextGaussian();
+			moved[i] = x * scale;
+			moved[i + 1] = y * scale;
+			moved[i + 2] = z * scale;
+			target[i] = (x + 0.3 * r.nextGaussian()) * scale;
+			target[i + 1] = (y + 0.3 * r.nextGaussian()) * scale;
+			target[i + 2] = (z - 0.3 * r.nextGaussian()) * scale;
+		}
+		return new double[][] {moved, target};
+	}
+
+	static double[] weights(Random r, int count) {
+		double[] weights = new double[count];
+		for(int i = 0; i < count; i++)
+			weights[i] = 0.5 + r.nextDouble();
+		return weights;
+	}
+
+	static float[] toFloat(double[] values) {
+		return toFloat(values, 1d);
+	}
+
+	static float[] toFloat(double[] values, double scale) {
+		float[] result = new float[values.length];
+		for(int i = 0; i < values.length; i++)
+			result[i] = (float)(values[i] * scale);
+		return result;
+	}
+}
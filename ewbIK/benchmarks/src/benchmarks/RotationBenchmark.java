@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times MRotation composition (applyTo(MRotation, MRotation), which every global basis update performs)
+ * in double and single precision, by accumulating a chain of rotations the way a bone chain does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RotationBenchmark {
+
+	static final int CHAIN = 64;
+
+	math.doubleV.MRotation[] chainD = new math.doubleV.MRotation[CHAIN];
+	math.doubleV.MRotation accumulatedD = new math.doubleV.MRotation();
+	math.floatV.MRotation[] chainF = new math.floatV.MRotation[CHAIN];
+	math.floatV.MRotation accumulatedF = new math.floatV.MRotation();
+
+	@Setup
+	public void generate() {
+		Random r = new Random(1);
+		for(int i = 0; i < CHAIN; i++) {
+			double q0 = r.nextGaussian(), q1 = r.nextGaussian(), q2 = r.nextGaussian(), q3 = r.nextGaussian();
+			chainD[i] = new math.doubleV.Rot(q0, q1, q2, q3, true).rotation;
+			chainF[i] = new math.floatV.Rot((float) q0, (float) q1, (float) q2, (float) q3, true).rotation;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHAIN)
+	public double composeDouble() {
+		math.doubleV.MRotation acc = accumulatedD;
+		acc.set(1d, 0d, 0d, 0d, false);
+		for(int i = 0; i < CHAIN; i++)
+			chainD[i].applyTo(acc, acc);
+		return acc.getQ0();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHAIN)
+	public float composeFloat() {
+		math.floatV.MRotation acc = accumulatedF;
+		acc.set(1f, 0f, 0f, 0f, false);
+		for(int i = 0; i < CHAIN; i++)
+			chainF[i].applyTo(acc, acc);
+		return acc.getQ0();
+	}
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+/**
+ * Checks that, once warmed up, IKSolver allocates nothing on the heap. Solves each standard rig
+ * (see {@link DoubleRigs}) in double and single precision until the JIT has compiled the solver, then measures
+ * the bytes the calling thread allocates across every IKSolver call over a further run of frames, using
+ * {@link IK.SolveStats#getThreadAllocatedBytes()}.
+ * Any allocation at all fails the check. The limb rig is solved with
+ * {@link IK.doubleIK.AbstractArmature#setAnalyticTwoBoneSolving(boolean)} enabled, since that is the only rig it applies to.
+ *
+ * Whether the JIT's escape analysis removes a short lived object depends on its inlining decisions, which vary
+ * from run to run, so an allocation it happens to remove can reappear in another run. The solver doesn't depend
+ * on it, and the check is strictest with it switched off:
+ *
+ * Run with: java -XX:-DoEscapeAnalysis benchmarks.SolverAllocationTest [warm up frames] [measured frames] [rig ...]
+ * Prints a line per rig and precision, and exits with status 1 if any of them allocated.
+ */
+public class SolverAllocationTest {
+
+	public static void main(String[] args) {
+		int warmupFrames = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int measuredFrames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		String[] rigs = {"torso", "tentacle", "hand", "limb"};
+		if(args.length > 2) {
+			rigs = new String[args.length - 2];
+			System.arraycopy(args, 2, rigs, 0, rigs.length);
+		}
+		if(IK.SolveStats.getThreadAllocatedBytes() == -1L) {
+			System.out.println("this JVM can't measure per thread allocation, so there is nothing to check");
+			return;
+		}
+		boolean passed = true;
+		for(String rig : rigs) {
+			DoubleRigs.Rig doubleRig = DoubleRigs.build(rig);
+			FloatRigs.Rig floatRig = FloatRigs.build(rig);
+			if(rig.equals("limb")) {
+				doubleRig.armatures.get(0).setAnalyticTwoBoneSolving(true);
+				floatRig.armatures.get(0).setAnalyticTwoBoneSolving(true);
+			}
+			passed &= report(rig, "double", measureDouble(doubleRig, warmupFrames, measuredFrames), measuredFrames);
+			passed &= report(rig, "float", measureFloat(floatRig, warmupFrames, measuredFrames), measuredFrames);
+		}
+		if(!passed) System.exit(1);
+	}
+
+	/**
+	 * solves the rig for warmupFrames frames and then for measuredFrames more, through the same code both times,
+	 * so that measuring doesn't introduce a call site which the JIT has yet to compile.
+	 * @return the total number of bytes allocated by the rig's IKSolver calls over the measured frames.
+	 */
+	static long measureDouble(DoubleRigs.Rig rig, int warmupFrames, int measuredFrames) {
+		solveDouble(rig, 0, warmupFrames);
+		return solveDouble(rig, warmupFrames, measuredFrames);
+	}
+
+	/**
+	 * @return the total number of bytes allocated by the rig's IKSolver calls over the given frames.
+	 */
+	static long solveDouble(DoubleRigs.Rig rig, int firstFrame, int frames) {
+		long allocated = 0L;
+		for(int frame = firstFrame; frame < firstFrame + frames; frame++) {
+			rig.animate(frame);
+			for(int i = 0; i < rig.armatures.size(); i++) {
+				DoubleRigs.Armature a = rig.armatures.get(i);
+				long before = IK.SolveStats.getThreadAllocatedBytes();
+				a.IKSolver(a.getRootBone());
+				allocated += IK.SolveStats.getThreadAllocatedBytes() - before;
+			}
+		}
+		return allocated;
+	}
+
+	static long measureFloat(FloatRigs.Rig rig, int warmupFrames, int measuredFrames) {
+		solveFloat(rig, 0, warmupFrames);
+		return solveFloat(rig, warmupFrames, measuredFrames);
+	}
+
+	static long solveFloat(FloatRigs.Rig rig, int firstFrame, int frames) {
+		long allocated = 0L;
+		for(int frame = firstFrame; frame < firstFrame + frames; frame++) {
+			rig.animate(frame);
+			for(int i = 0; i < rig.armatures.size(); i++) {
+				FloatRigs.Armature a = rig.armatures.get(i);
+				long before = IK.SolveStats.getThreadAllocatedBytes();
+				a.IKSolver(a.getRootBone());
+				allocated += IK.SolveStats.getThreadAllocatedBytes() - before;
+			}
+		}
+		return allocated;
+	}
+
+	static boolean report(String rig, String precision, long allocated, int measuredFrames) {
+		boolean passed = allocated == 0L;
+		System.out.println(rig + " (" + precision + "): " + (passed ? "ok" : "FAILED")
+				+ ", " + allocated + " bytes allocated over " + measuredFrames + " frames"
+				+ " (" + (double)allocated / measuredFrames + " per frame)");
+		return passed;
+	}
+}
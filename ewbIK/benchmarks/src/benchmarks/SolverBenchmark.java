@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times a full solve of each standard rig (see {@link DoubleRigs}) with the armatures' default settings,
+ * after moving the rig's targets to the next frame of a looping animation, in double and single precision.
+ * The "torso" result is the figure the README quotes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+	@State(Scope.Thread)
+	public static class DoubleRig {
+		@Param({"torso", "tentacle", "hand", "crowd"})
+		public String rig;
+		DoubleRigs.Rig built;
+		int frame = 0;
+
+		@Setup
+		public void build() {
+			built = DoubleRigs.build(rig);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FloatRig {
+		@Param({"torso", "tentacle", "hand", "crowd"})
+		public String rig;
+		FloatRigs.Rig built;
+		int frame = 0;
+
+		@Setup
+		public void build() {
+			built = FloatRigs.build(rig);
+		}
+	}
+
+	@Benchmark
+	public int solveDouble(DoubleRig state) {
+		state.built.animate(state.frame++);
+		return state.built.solve();
+	}
+
+	@Benchmark
+	public int solveFloat(FloatRig state) {
+		state.built.animate(state.frame++);
+		return state.built.solve();
+	}
+}
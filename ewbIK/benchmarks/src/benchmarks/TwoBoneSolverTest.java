@@ -0,0 +1,119 @@
+package benchmarks;
+
+/**
+ * Checks the closed form two bone solver ({@link IK.doubleIK.AbstractArmature#setAnalyticTwoBoneSolving(boolean)}) 
+ * against the iterative QCP solver it stands in for. Builds two copies of a two bone limb (see {@link DoubleRigs#limb(boolean)}), 
+ * solves one with the closed form solver enabled and the other without it while moving their tip targets identically, 
+ * and compares how far each one's tip ends up from its target every frame. 
+ * 
+ * Unconstrained, the closed form solver's tip should never end up further from the target than QCP's 
+ * (beyond rounding error), though the two are free to bend the limb in different planes. 
+ * Constrained, neither of the closed form solver's bones should ever end up outside of its kusudama's limits (beyond rounding error), 
+ * and its tip should end up no further from the target than QCP's on average.
+ * 
+ * Run with: java benchmarks.TwoBoneSolverTest [frames]
+ * Prints a line per limb and precision, and exits with status 1 if any of them failed.
+ */
+public class TwoBoneSolverTest {
+
+	public static void main(String[] args) {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		boolean passed = true;
+		passed &= report("unconstrained limb", "double", compareDouble(false, frames), 1e-9, frames);
+		passed &= report("unconstrained limb", "float", compareFloat(false, frames), 1e-4, frames);
+		passed &= report("constrained limb", "double", compareDouble(true, frames), 1e-6, frames);
+		passed &= report("constrained limb", "float", compareFloat(true, frames), 2e-3, frames);
+		if(!passed) System.exit(1);
+	}
+
+	/**
+	 * @return the most by which the closed form solver's tip ended up further from its target than the QCP solver's in any frame 
+	 * (or for a constrained limb, the largest angle by which either of the closed form solver's bones ended up outside of its kusudama's limits), 
+	 * followed by the total distance of each solver's tip from its target over every frame.
+	 */
+	static double[] compareDouble(boolean constrained, int frames) {
+		DoubleRigs.Rig analytic = DoubleRigs.limb(constrained);
+		DoubleRigs.Rig iterative = DoubleRigs.limb(constrained);
+		analytic.armatures.get(0).setAnalyticTwoBoneSolving(true);
+		IK.doubleIK.AbstractBone analyticTip = analytic.armatures.get(0).getBoneTagged("tip");
+		IK.doubleIK.AbstractBone analyticUpper = analytic.armatures.get(0).getBoneTagged("upper");
+		IK.doubleIK.AbstractBone analyticLower = analytic.armatures.get(0).getBoneTagged("lower");
+		IK.doubleIK.AbstractBone iterativeTip = iterative.armatures.get(0).getBoneTagged("tip");
+		double[] result = new double[3];
+		for(int frame = 0; frame < frames; frame++) {
+			analytic.animate(frame);
+			iterative.animate(frame);
+			analytic.solve();
+			iterative.solve();
+			math.doubleV.Vec3d<?> analyticOrigin = analyticTip.localAxes().origin_();
+			math.doubleV.Vec3d<?> iterativeOrigin = iterativeTip.localAxes().origin_();
+			double analyticMiss = analyticOrigin.dist(analyticTip.getIKPin().getLocation_());
+			double iterativeMiss = iterativeOrigin.dist(iterativeTip.getIKPin().getLocation_());
+			result[0] = Math.max(result[0], constrained ? 
+					Math.max(angleOutsideLimits(analyticUpper), angleOutsideLimits(analyticLower)) : analyticMiss - iterativeMiss);
+			result[1] += analyticMiss;
+			result[2] += iterativeMiss;
+		}
+		return result;
+	}
+
+	static double[] compareFloat(boolean constrained, int frames) {
+		FloatRigs.Rig analytic = FloatRigs.limb(constrained);
+		FloatRigs.Rig iterative = FloatRigs.limb(constrained);
+		analytic.armatures.get(0).setAnalyticTwoBoneSolving(true);
+		IK.floatIK.AbstractBone analyticTip = analytic.armatures.get(0).getBoneTagged("tip");
+		IK.floatIK.AbstractBone analyticUpper = analytic.armatures.get(0).getBoneTagged("upper");
+		IK.floatIK.AbstractBone analyticLower = analytic.armatures.get(0).getBoneTagged("lower");
+		IK.floatIK.AbstractBone iterativeTip = iterative.armatures.get(0).getBoneTagged("tip");
+		double[] result = new double[3];
+		for(int frame = 0; frame < frames; frame++) {
+			analytic.animate(frame);
+			iterative.animate(frame);
+			analytic.solve();
+			iterative.solve();
+			math.floatV.Vec3f<?> analyticOrigin = analyticTip.localAxes().origin_();
+			math.floatV.Vec3f<?> iterativeOrigin = iterativeTip.localAxes().origin_();
+			double analyticMiss = analyticOrigin.dist(analyticTip.getIKPin().getLocation_());
+			double iterativeMiss = iterativeOrigin.dist(iterativeTip.getIKPin().getLocation_());
+			result[0] = Math.max(result[0], constrained ? 
+					Math.max(angleOutsideLimits(analyticUpper), angleOutsideLimits(analyticLower)) : analyticMiss - iterativeMiss);
+			result[1] += analyticMiss;
+			result[2] += iterativeMiss;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the angle between the given bone's y axis and the nearest direction its kusudama allows it to point in.
+	 */
+	static double angleOutsideLimits(IK.doubleIK.AbstractBone bone) {
+		IK.doubleIK.AbstractKusudama kusudama = (IK.doubleIK.AbstractKusudama)bone.getConstraint();
+		math.doubleV.SGVec_3d heading = new math.doubleV.SGVec_3d();
+		bone.getMajorRotationAxes().setToLocalOf(bone.localAxes().y_().p2(), heading);
+		math.doubleV.SGVec_3d allowed = new math.doubleV.SGVec_3d();
+		kusudama.setToPointInLimits(heading, new double[1], allowed);
+		return math.doubleV.Vec3d.angleBetween(heading, allowed);
+	}
+
+	static double angleOutsideLimits(IK.floatIK.AbstractBone bone) {
+		IK.floatIK.AbstractKusudama kusudama = (IK.floatIK.AbstractKusudama)bone.getConstraint();
+		math.floatV.SGVec_3f heading = new math.floatV.SGVec_3f();
+		bone.getMajorRotationAxes().setToLocalOf(bone.localAxes().y_().p2(), heading);
+		math.floatV.SGVec_3f allowed = new math.floatV.SGVec_3f();
+		kusudama.setToPointInLimits(heading, new float[1], allowed);
+		return math.floatV.Vec3f.angleBetween(heading, allowed);
+	}
+
+	/**
+	 * a limb passes if result[0] is within the given tolerance, and a constrained limb must also have 
+	 * ended up no further from its targets than the QCP solver's on average.
+	 */
+	static boolean report(String limb, String precision, double[] result, double tolerance, int frames) {
+		boolean constrained = limb.startsWith("constrained");
+		boolean passed = result[0] <= tolerance && (!constrained || result[1] <= result[2]);
+		System.out.println(limb + " (" + precision + "): " + (passed ? "ok" : "FAILED")
+				+ (constrained ? ", worst angle outside of limits " : ", worst difference ") + result[0] + " (tolerance " + tolerance + ")"
+				+ ", mean distance from target " + result[1] / frames + " closed form, " + result[2] / frames + " QCP");
+		return passed;
+	}
+}
@@ -1,19 +1,459 @@
 package IK;
 
-import java.util.Stack;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * A hierarchical zone profiler.
+ *
+ * Code to be profiled is bracketed by {@link #begin(Zone)} and {@link #end(Zone)} calls for a {@link Zone}
+ * created once (usually as a static final field) with {@link #zone(String)}. Zones nest, so the time spent in a zone
+ * is attributed to the path of zones enclosing it (e.g., "solve;QCPSolver;kusudama snap").
+ *
+ * Each thread keeps its own zone stack, call tree of totals, and ring buffer of its most recent samples, none of which
+ * are shared with other threads. So profiling from any number of threads at once takes no locks, and allocates only when
+ * a thread first enters a path of zones it hasn't entered before. {@link #snapshot()} aggregates the totals of every thread
+ * which has profiled anything since the last {@link #reset()}, and the result can be queried or written out as
+ * collapsed stacks for flame graph tools.
+ *
+ * Profiling is disabled by default, in which case begin and end return after reading a single flag.
+ *
+ * @author Eron Gjoni
+ */
 public final class PerfTimer {
-	
-	static Stack<Long> startTimes = new Stack<>();
-	static long startTime = 0;
-	
-		public static void start() {
-			startTimes.push(System.nanoTime());
-		}
-	
+
+	private static volatile boolean enabled = false;
+	/**incremented whenever profiling is enabled, so that threads discard any zones left open while it was disabled*/
+	private static volatile int stackEpoch = 0;
+	/**incremented whenever the profiler is reset, so that threads discard what they've recorded*/
+	private static volatile int dataEpoch = 0;
+	private static volatile int ringCapacity = 1024;
+
+	private static final HashMap<String, Zone> zonesByName = new HashMap<>();
+	private static final ArrayList<Zone> zones = new ArrayList<>();
+	private static final ArrayList<ThreadProfile> profiles = new ArrayList<>();
+	private static final ThreadLocal<ThreadProfile> localProfile = ThreadLocal.withInitial(ThreadProfile::new);
+
+	private PerfTimer() {}
+
+	/**
+	 * a named region of code to be profiled. see {@link PerfTimer#zone(String)}
+	 */
+	public static final class Zone {
+		final int id;
+		public final String name;
+
+		private Zone(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * @return the zone with the given name, creating it if it doesn't exist yet.
+	 * Zones live for as long as the program does, so this should be called once per zone, not per use.
+	 */
+	public static Zone zone(String name) {
+		synchronized(zonesByName) {
+			Zone result = zonesByName.get(name);
+			if(result == null) {
+				result = new Zone(zones.size(), name);
+				zones.add(result);
+				zonesByName.put(name, result);
+			}
+			return result;
+		}
+	}
+
+	public static void setEnabled(boolean enable) {
+		if(enable && !enabled)
+			stackEpoch++;
+		enabled = enable;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * sets the number of samples each thread's ring buffer holds. Takes effect for each thread
+	 * the next time it profiles anything after a {@link #reset()}. Default is 1024.
+	 */
+	public static void setRingCapacity(int capacity) {
+		ringCapacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * enters the given zone on the calling thread. Must be followed by a call to {@link #end(Zone)} with the same zone.
+	 */
+	public static void begin(Zone zone) {
+		if(!enabled) return;
+		ThreadProfile p = localProfile.get();
+		p.begin(zone.id);
+	}
+
+	/**
+	 * exits the given zone on the calling thread. Ignored if the given zone isn't the one
+	 * the thread most recently entered (e.g., because profiling was enabled between the calls).
+	 */
+	public static void end(Zone zone) {
+		if(!enabled) return;
+		long now = System.nanoTime();
+		localProfile.get().end(zone.id, now);
+	}
+
+	/**
+	 * discards everything recorded by every thread so far.
+	 */
+	public static void reset() {
+		synchronized(profiles) {
+			profiles.clear();
+			dataEpoch++;
+		}
+	}
+
+	/**
+	 * @return the aggregate of everything recorded by every thread since the last reset. If other threads are
+	 * profiling while this is called, the zones they're in the middle of updating may be slightly out of date.
+	 */
+	public static Snapshot snapshot() {
+		ThreadProfile[] current;
+		synchronized(profiles) {
+			current = profiles.toArray(new ThreadProfile[profiles.size()]);
+		}
+		String[] zoneNames;
+		synchronized(zonesByName) {
+			zoneNames = new String[zones.size()];
+			for(int i = 0; i < zoneNames.length; i++)
+				zoneNames[i] = zones.get(i).name;
+		}
+		return new Snapshot(current, zoneNames);
+	}
+
+	/**
+	 * writes a snapshot of everything recorded so far in collapsed stack format. see {@link Snapshot#writeCollapsedStacks(Writer)}
+	 */
+	public static void writeCollapsedStacks(Writer out) throws IOException {
+		snapshot().writeCollapsedStacks(out);
+	}
+
+	private static final Zone legacyZone = zone("PerfTimer.start");
+
+	/**
+	 * @deprecated use {@link #begin(Zone)}. Enters a zone named "PerfTimer.start" even if profiling is disabled.
+	 */
+	@Deprecated
+	public static void start() {
+		localProfile.get().begin(legacyZone.id);
+	}
+
+	/**
+	 * @deprecated use {@link #end(Zone)}. Exits the zone entered by the last call to {@link #start()} and prints how long it took in nanoseconds.
+	 */
+	@Deprecated
 	public static void printTimeSinceStart(String prepend) {
-		long newDelta = System.nanoTime() - startTimes.pop();
-		System.out.println(prepend+": " + ( newDelta));
+		long now = System.nanoTime();
+		ThreadProfile p = localProfile.get();
+		long started = p.depth == 0 ? now : p.stackStarts[p.depth-1];
+		p.end(legacyZone.id, now);
+		System.out.println(prepend+": " + (now - started));
 	}
 
+	/**
+	 * Everything one thread has recorded. Written only by the thread it belongs to.
+	 */
+	private static final class ThreadProfile {
+		final String threadName = Thread.currentThread().getName();
+		int stackEpoch = -1;
+		int dataEpoch = -1;
+
+		int depth = 0;
+		int[] stackNodes = new int[32];
+		long[] stackStarts = new long[32];
+
+		/**the call tree. Node 0 is the root, which corresponds to no zone*/
+		int nodeCount;
+		int[] nodeZone, nodeParent, nodeFirstChild, nodeNextSibling;
+		long[] nodeCalls, nodeTotalNanos, nodeMaxNanos;
+
+		/**the most recent samples, as the call tree node, start time, and duration of each*/
+		int[] ringNodes;
+		long[] ringStarts, ringDurations;
+		long samplesWritten;
+
+		void restart() {
+			depth = 0;
+			nodeCount = 1;
+			int capacity = 64;
+			nodeZone = new int[capacity];
+			nodeParent = new int[capacity];
+			nodeFirstChild = new int[capacity];
+			nodeNextSibling = new int[capacity];
+			nodeCalls = new long[capacity];
+			nodeTotalNanos = new long[capacity];
+			nodeMaxNanos = new long[capacity];
+			nodeZone[0] = -1;
+			nodeParent[0] = -1;
+			int ring = ringCapacity;
+			ringNodes = new int[ring];
+			ringStarts = new long[ring];
+			ringDurations = new long[ring];
+			samplesWritten = 0;
+			dataEpoch = PerfTimer.dataEpoch;
+			synchronized(profiles) {
+				if(dataEpoch == PerfTimer.dataEpoch)
+					profiles.add(this);
+			}
+		}
+
+		void begin(int zoneId) {
+			if(stackEpoch != PerfTimer.stackEpoch) {
+				stackEpoch = PerfTimer.stackEpoch;
+				depth = 0;
+			}
+			if(dataEpoch != PerfTimer.dataEpoch)
+				restart();
+			int parent = depth == 0 ? 0 : stackNodes[depth-1];
+			int node = childOf(parent, zoneId);
+			if(depth == stackNodes.length) {
+				stackNodes = Arrays.copyOf(stackNodes, depth*2);
+				stackStarts = Arrays.copyOf(stackStarts, depth*2);
+			}
+			stackNodes[depth] = node;
+			stackStarts[depth] = System.nanoTime();
+			depth++;
+		}
+
+		void end(int zoneId, long now) {
+			if(depth == 0 || dataEpoch != PerfTimer.dataEpoch) return;
+			int node = stackNodes[depth-1];
+			if(nodeZone[node] != zoneId) return;
+			depth--;
+			long start = stackStarts[depth];
+			long elapsed = now - start;
+			nodeCalls[node]++;
+			nodeTotalNanos[node] += elapsed;
+			if(elapsed > nodeMaxNanos[node])
+				nodeMaxNanos[node] = elapsed;
+			int slot = (int)(samplesWritten % ringNodes.length);
+			ringNodes[slot] = node;
+			ringStarts[slot] = start;
+			ringDurations[slot] = elapsed;
+			samplesWritten++;
+		}
+
+		private int childOf(int parent, int zoneId) {
+			for(int c = nodeFirstChild[parent]; c != 0; c = nodeNextSibling[c]) {
+				if(nodeZone[c] == zoneId) return c;
+			}
+			if(nodeCount == nodeZone.length) {
+				int capacity = nodeCount*2;
+				nodeZone = Arrays.copyOf(nodeZone, capacity);
+				nodeParent = Arrays.copyOf(nodeParent, capacity);
+				nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+				nodeNextSibling = Arrays.copyOf(nodeNextSibling, capacity);
+				nodeCalls = Arrays.copyOf(nodeCalls, capacity);
+				nodeTotalNanos = Arrays.copyOf(nodeTotalNanos, capacity);
+				nodeMaxNanos = Arrays.copyOf(nodeMaxNanos, capacity);
+			}
+			int c = nodeCount++;
+			nodeZone[c] = zoneId;
+			nodeParent[c] = parent;
+			nodeNextSibling[c] = nodeFirstChild[parent];
+			nodeFirstChild[parent] = c;
+			return c;
+		}
+	}
+
+	/**
+	 * the totals of one path of zones, summed over every thread which entered it.
+	 */
+	public static final class ZoneStats {
+		/**the names of the zones on this path, outermost first*/
+		public final List<String> path;
+		public long calls;
+		public long totalNanos;
+		/**totalNanos minus the totalNanos of this path's children*/
+		public long selfNanos;
+		/**the longest any single call took*/
+		public long maxNanos;
+		public final List<ZoneStats> children = new ArrayList<>();
+
+		ZoneStats(List<String> path) {
+			this.path = path;
+		}
+
+		public String getName() {
+			return path.get(path.size()-1);
+		}
+
+		public double getMeanNanos() {
+			return calls == 0 ? 0d : (double)totalNanos / calls;
+		}
+	}
+
+	/**
+	 * one entry from a thread's ring buffer of recent samples.
+	 */
+	public static final class Sample {
+		public final String threadName;
+		public final List<String> path;
+		public final long startNanos, durationNanos;
+
+		Sample(String threadName, List<String> path, long startNanos, long durationNanos) {
+			this.threadName = threadName;
+			this.path = path;
+			this.startNanos = startNanos;
+			this.durationNanos = durationNanos;
+		}
+	}
+
+	/**
+	 * the zone statistics of every thread at the time {@link PerfTimer#snapshot()} was called, merged by path.
+	 */
+	public static final class Snapshot {
+		private final List<ZoneStats> roots = new ArrayList<>();
+		private final LinkedHashMap<List<String>, ZoneStats> byPath = new LinkedHashMap<>();
+		private final List<Sample> recentSamples = new ArrayList<>();
+
+		Snapshot(ThreadProfile[] profiles, String[] zoneNames) {
+			for(ThreadProfile p : profiles) {
+				int count = p.nodeCount;
+				int[] zone = p.nodeZone, parent = p.nodeParent;
+				long[] calls = p.nodeCalls, total = p.nodeTotalNanos, max = p.nodeMaxNanos;
+				count = Math.min(count, Math.min(zone.length, Math.min(calls.length, Math.min(total.length, max.length))));
+				List<List<String>> paths = new ArrayList<>(Math.max(count, 1));
+				//node 0 is the thread's root, which isn't a zone
+				paths.add(Collections.<String>emptyList());
+				//parents are always created before their children, so are always at lower indices
+				for(int n = 1; n < count; n++) {
+					List<String> parentPath = parent[n] <= 0 ? Collections.<String>emptyList() : paths.get(parent[n]);
+					ArrayList<String> path = new ArrayList<>(parentPath.size()+1);
+					path.addAll(parentPath);
+					path.add(zone[n] < zoneNames.length ? zoneNames[zone[n]] : "?");
+					List<String> unmodifiablePath = Collections.unmodifiableList(path);
+					paths.add(unmodifiablePath);
+					ZoneStats stats = getOrCreate(unmodifiablePath);
+					stats.calls += calls[n];
+					stats.totalNanos += total[n];
+					stats.maxNanos = Math.max(stats.maxNanos, max[n]);
+				}
+				int[] ringNodes = p.ringNodes;
+				long[] ringStarts = p.ringStarts, ringDurations = p.ringDurations;
+				long written = p.samplesWritten;
+				int ring = Math.min(ringNodes.length, Math.min(ringStarts.length, ringDurations.length));
+				for(long s = Math.max(0, written - ring); s < written; s++) {
+					int slot = (int)(s % ring);
+					int node = ringNodes[slot];
+					if(node > 0 && node < count)
+						recentSamples.add(new Sample(p.threadName, paths.get(node), ringStarts[slot], ringDurations[slot]));
+				}
+			}
+			for(ZoneStats stats : byPath.values()) {
+				long childNanos = 0;
+				for(ZoneStats c : stats.children)
+					childNanos += c.totalNanos;
+				stats.selfNanos = Math.max(0, stats.totalNanos - childNanos);
+			}
+			recentSamples.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+		}
+
+		private ZoneStats getOrCreate(List<String> path) {
+			ZoneStats result = byPath.get(path);
+			if(result == null) {
+				result = new ZoneStats(path);
+				byPath.put(path, result);
+				if(path.size() == 1)
+					roots.add(result);
+				else
+					getOrCreate(path.subList(0, path.size()-1)).children.add(result);
+			}
+			return result;
+		}
+
+		/**
+		 * @return the outermost zones entered, each holding the zones entered within it.
+		 */
+		public List<ZoneStats> getRoots() {
+			return roots;
+		}
+
+		/**
+		 * @param path the names of the zones on the path, outermost first
+		 * @return the statistics of the given path, or null if it was never entered.
+		 */
+		public ZoneStats get(String... path) {
+			return byPath.get(Arrays.asList(path));
+		}
+
+		/**
+		 * @return the statistics of each zone summed over every path it appears on, keyed by zone name.
+		 * A zone entered from within itself is counted once per level it was entered at.
+		 */
+		public Map<String, ZoneStats> getTotalsByZone() {
+			LinkedHashMap<String, ZoneStats> result = new LinkedHashMap<>();
+			for(ZoneStats stats : byPath.values()) {
+				ZoneStats total = result.computeIfAbsent(stats.getName(), (name) -> new ZoneStats(Collections.singletonList(name)));
+				total.calls += stats.calls;
+				total.totalNanos += stats.totalNanos;
+				total.selfNanos += stats.selfNanos;
+				total.maxNanos = Math.max(total.maxNanos, stats.maxNanos);
+			}
+			return result;
+		}
+
+		/**
+		 * @return the samples in every thread's ring buffer at the time of the snapshot, ordered by start time.
+		 */
+		public List<Sample> getRecentSamples() {
+			return recentSamples;
+		}
+
+		/**
+		 * writes one line per path of zones, consisting of the zone names separated by semicolons,
+		 * a space, and the self time of that path in nanoseconds. This is the collapsed stack format
+		 * read by flamegraph.pl, speedscope, inferno and most other flame graph tools.
+		 */
+		public void writeCollapsedStacks(Writer out) throws IOException {
+			for(ZoneStats stats : byPath.values()) {
+				if(stats.selfNanos <= 0) continue;
+				out.write(String.join(";", stats.path));
+				out.write(' ');
+				out.write(Long.toString(stats.selfNanos));
+				out.write('\n');
+			}
+			out.flush();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for(ZoneStats r : roots)
+				append(sb, r, 0);
+			return sb.toString();
+		}
+
+		private static void append(StringBuilder sb, ZoneStats stats, int indent) {
+			for(int i = 0; i < indent; i++) sb.append("  ");
+			sb.append(stats.getName()).append(": calls = ").append(stats.calls)
+			.append(", total = ").append(stats.totalNanos/1000000d).append("ms")
+			.append(", self = ").append(stats.selfNanos/1000000d).append("ms")
+			.append(", mean = ").append(stats.getMeanNanos()/1000d).append("us")
+			.append(", max = ").append(stats.maxNanos/1000d).append("us\n");
+			for(ZoneStats c : stats.children)
+				append(sb, c, indent+1);
+		}
+	}
 }
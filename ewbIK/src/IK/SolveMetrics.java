@@ -0,0 +1,45 @@
+package IK;
+
+/**
+ * Receives a report from an armature after each solve it runs while this is installed on it
+ * (see AbstractArmature.setSolveMetrics). {@link SolveStats} aggregates these reports into
+ * latency percentiles and averages, but anything wishing to consume them directly (e.g. to forward them to
+ * an existing telemetry system) can implement this instead.
+ *
+ * Reports are delivered on the thread which called the solver. If the same instance is installed on
+ * armatures which are solved concurrently, it must be thread safe.
+ */
+public interface SolveMetrics {
+
+	/**index into phaseNanos of the time spent aligning the simulation axes to the bones before solving*/
+	public static final int ALIGN = 0;
+	/**index into phaseNanos of the time spent running solver iterations*/
+	public static final int SOLVE = 1;
+	/**index into phaseNanos of the time spent writing the solution back to the bones*/
+	public static final int WRITE_BACK = 2;
+	/**index into phaseNanos of the time spent notifying the bones that a solution has been applied*/
+	public static final int NOTIFY = 3;
+	public static final int PHASE_COUNT = 4;
+
+	/**
+	 * called once at the end of each solve.
+	 *
+	 * @param solveNanos the time the whole call to the solver took, in nanoseconds.
+	 * @param phaseNanos the time spent in each phase, indexed by {@link #ALIGN}, {@link #SOLVE}, {@link #WRITE_BACK} and {@link #NOTIFY}.
+	 * Phases which were skipped (e.g., because incremental solving found nothing had moved) are 0. This array is reused by
+	 * the armature, so copy anything you intend to keep.
+	 * @param iterations the number of iterations the solve actually ran.
+	 * @param error the weighted mean squared distance between the pinned bones and their targets in the pose that was applied.
+	 * @param allocatedBytes the number of bytes allocated by the calling thread during the solve, or -1 if
+	 * {@link #measuresAllocation()} returned false or the JVM can't measure it.
+	 */
+	public void solveFinished(long solveNanos, long[] phaseNanos, int iterations, double error, long allocatedBytes);
+
+	/**
+	 * @return true if the armature should measure how much each solve allocates. Doing so is supported only on
+	 * JVMs which implement com.sun.management.ThreadMXBean, and costs somewhat more than timing does. Default is false.
+	 */
+	public default boolean measuresAllocation() {
+		return false;
+	}
+}
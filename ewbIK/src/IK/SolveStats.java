@@ -0,0 +1,251 @@
+package IK;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * A {@link SolveMetrics} which aggregates solve reports, for querying at any time.
+ *
+ * Solve latencies are recorded into a fixed histogram whose buckets are 1/32nd of a power of two wide, so percentiles
+ * are accurate to within about 3%, and recording a solve costs a few array increments with no allocation.
+ * Iterations, per phase times, error and allocations are kept as totals (from which their means are computed).
+ *
+ * All methods are synchronized, so a single instance can be shared by armatures which are solved concurrently.
+ */
+public class SolveStats implements SolveMetrics {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final boolean measureAllocation;
+	private final long[] latencyCounts = new long[BUCKET_COUNT];
+	private final long[] totalPhaseNanos = new long[PHASE_COUNT];
+	private long solveCount = 0;
+	private long totalSolveNanos = 0;
+	private long maxSolveNanos = 0;
+	private long totalIterations = 0;
+	private int maxIterations = 0;
+	private long errorCount = 0;
+	private double totalError = 0d;
+	private double lastError = Double.NaN;
+	private long allocationCount = 0;
+	private long totalAllocatedBytes = 0;
+
+	/**
+	 * creates a SolveStats which does not measure allocations.
+	 */
+	public SolveStats() {
+		this(false);
+	}
+
+	/**
+	 * @param measureAllocation whether to ask armatures to measure the bytes each solve allocates. see {@link SolveMetrics#measuresAllocation()}
+	 */
+	public SolveStats(boolean measureAllocation) {
+		this.measureAllocation = measureAllocation;
+	}
+
+	@Override
+	public boolean measuresAllocation() {
+		return measureAllocation;
+	}
+
+	@Override
+	public synchronized void solveFinished(long solveNanos, long[] phaseNanos, int iterations, double error, long allocatedBytes) {
+		solveNanos = Math.max(0L, solveNanos);
+		latencyCounts[bucketFor(solveNanos)]++;
+		solveCount++;
+		totalSolveNanos += solveNanos;
+		maxSolveNanos = Math.max(maxSolveNanos, solveNanos);
+		for(int i = 0; i < PHASE_COUNT; i++) {
+			totalPhaseNanos[i] += phaseNanos[i];
+		}
+		totalIterations += iterations;
+		maxIterations = Math.max(maxIterations, iterations);
+		if(!Double.isNaN(error)) {
+			errorCount++;
+			totalError += error;
+		}
+		lastError = error;
+		if(allocatedBytes >= 0) {
+			allocationCount++;
+			totalAllocatedBytes += allocatedBytes;
+		}
+	}
+
+	/**
+	 * @return the number of solves recorded since this was created or last reset.
+	 */
+	public synchronized long getSolveCount() {
+		return solveCount;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the solve latency in nanoseconds which the given percentage of recorded solves took no longer than
+	 * (to within the width of a histogram bucket), or 0 if no solves have been recorded.
+	 */
+	public synchronized long getLatencyPercentile(double percentile) {
+		if(solveCount == 0) return 0L;
+		long rank = (long)Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * solveCount);
+		rank = Math.max(1L, rank);
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += latencyCounts[i];
+			if(seen >= rank)
+				return Math.min(bucketUpperBound(i), maxSolveNanos);
+		}
+		return maxSolveNanos;
+	}
+
+	/**
+	 * @return the median solve latency in nanoseconds. see {@link #getLatencyPercentile(double)}
+	 */
+	public long getMedianLatency() {
+		return getLatencyPercentile(50d);
+	}
+
+	/**
+	 * @return the longest solve recorded, in nanoseconds.
+	 */
+	public synchronized long getMaxLatency() {
+		return maxSolveNanos;
+	}
+
+	/**
+	 * @return the mean solve latency in nanoseconds, or 0 if no solves have been recorded.
+	 */
+	public synchronized double getMeanLatency() {
+		return solveCount == 0 ? 0d : (double)totalSolveNanos / solveCount;
+	}
+
+	/**
+	 * @param phase one of {@link SolveMetrics#ALIGN}, {@link SolveMetrics#SOLVE}, {@link SolveMetrics#WRITE_BACK} or {@link SolveMetrics#NOTIFY}
+	 * @return the mean time spent in the given phase per solve, in nanoseconds.
+	 */
+	public synchronized double getMeanPhaseTime(int phase) {
+		return solveCount == 0 ? 0d : (double)totalPhaseNanos[phase] / solveCount;
+	}
+
+	/**
+	 * @return the mean number of iterations each solve actually ran.
+	 */
+	public synchronized double getMeanIterations() {
+		return solveCount == 0 ? 0d : (double)totalIterations / solveCount;
+	}
+
+	/**
+	 * @return the most iterations any recorded solve ran.
+	 */
+	public synchronized int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @return the error reported by the most recent solve, or NaN if there hasn't been one.
+	 */
+	public synchronized double getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * @return the mean error of the pose each solve applied, or NaN if no solve has reported one.
+	 */
+	public synchronized double getMeanError() {
+		return errorCount == 0 ? Double.NaN : totalError / errorCount;
+	}
+
+	/**
+	 * @return the total number of bytes allocated during recorded solves, or -1 if allocation wasn't measured for any of them.
+	 */
+	public synchronized long getTotalAllocatedBytes() {
+		return allocationCount == 0 ? -1L : totalAllocatedBytes;
+	}
+
+	/**
+	 * @return the mean number of bytes allocated per solve, or -1 if allocation wasn't measured.
+	 */
+	public synchronized double getMeanAllocatedBytes() {
+		return allocationCount == 0 ? -1d : (double)totalAllocatedBytes / allocationCount;
+	}
+
+	/**
+	 * forgets everything recorded so far.
+	 */
+	public synchronized void reset() {
+		Arrays.fill(latencyCounts, 0L);
+		Arrays.fill(totalPhaseNanos, 0L);
+		solveCount = 0;
+		totalSolveNanos = 0;
+		maxSolveNanos = 0;
+		totalIterations = 0;
+		maxIterations = 0;
+		errorCount = 0;
+		totalError = 0d;
+		lastError = Double.NaN;
+		allocationCount = 0;
+		totalAllocatedBytes = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		String result = "solves: " + solveCount
+				+ ", latency p50 = " + getLatencyPercentile(50d)/1000d + "us"
+				+ ", p99 = " + getLatencyPercentile(99d)/1000d + "us"
+				+ ", max = " + maxSolveNanos/1000d + "us"
+				+ ", mean iterations = " + getMeanIterations()
+				+ ", mean phase times (align, solve, write back, notify) = "
+				+ getMeanPhaseTime(ALIGN)/1000d + ", " + getMeanPhaseTime(SOLVE)/1000d + ", "
+				+ getMeanPhaseTime(WRITE_BACK)/1000d + ", " + getMeanPhaseTime(NOTIFY)/1000d + "us"
+				+ ", mean error = " + getMeanError();
+		if(allocationCount > 0)
+			result += ", mean allocated = " + getMeanAllocatedBytes() + " bytes";
+		return result;
+	}
+
+	/**
+	 * @return the number of bytes the calling thread has allocated over its lifetime, or -1 if the JVM can't measure it.
+	 */
+	public static long getThreadAllocatedBytes() {
+		com.sun.management.ThreadMXBean bean = AllocationBean.bean;
+		if(bean == null) return -1L;
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**holds the bean used to measure allocation, so that it's only looked up if allocation is ever measured*/
+	private static class AllocationBean {
+		static final com.sun.management.ThreadMXBean bean = findAllocationBean();
+	}
+
+	private static com.sun.management.ThreadMXBean findAllocationBean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if(bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+				if(sunBean.isThreadAllocatedMemorySupported()) {
+					if(!sunBean.isThreadAllocatedMemoryEnabled())
+						sunBean.setThreadAllocatedMemoryEnabled(true);
+					return sunBean;
+				}
+			}
+		} catch(Throwable t) {
+			//not a HotSpot derived JVM, or management isn't available. Allocation just won't be measured.
+		}
+		return null;
+	}
+
+	private static int bucketFor(long nanos) {
+		if(nanos < SUB_BUCKETS) return (int)nanos;
+		int shift = (63 - Long.numberOfLeadingZeros(nanos)) - SUB_BUCKET_BITS;
+		int sub = (int)(nanos >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift*SUB_BUCKETS + sub;
+	}
+
+	private static long bucketUpperBound(int bucket) {
+		if(bucket < SUB_BUCKETS) return bucket;
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long)(SUB_BUCKETS + sub) << shift) + (1L << shift) - 1L;
+	}
+}
@@ -19,8 +19,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 package IK.doubleIK;
 import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import IK.PerfTimer;
+import IK.SolveMetrics;
+import IK.SolveStats;
 import IK.doubleIK.SegmentedArmature;
 import IK.doubleIK.SegmentedArmature.WorkingBone;
 import asj.LoadManager;
@@ -30,8 +36,8 @@ import asj.data.JSONObject;
 import data.EWBIKLoader;
 import data.EWBIKSaver;
 import math.doubleV.AbstractAxes;
+import math.doubleV.AxesHierarchy;
 import math.doubleV.Rot;
-import math.doubleV.SGVec_3d;
 import math.doubleV.Vec3d;
 
 
@@ -47,6 +53,10 @@ public abstract class AbstractArmature implements Saveable {
 	protected ArrayList<AbstractBone> bones = new ArrayList<AbstractBone>();
 	protected HashMap<String, AbstractBone> tagBoneMap = new HashMap<String, AbstractBone>();
 	protected HashMap<AbstractBone, SegmentedArmature> boneSegmentMap = new HashMap<AbstractBone, SegmentedArmature>();
+	/**the segment and working state of every bone which is part of a segment, indexed by AbstractBone.ikIndex*/
+	private SegmentedArmature[] indexedSegments = new SegmentedArmature[0]; 
+	private WorkingBone[] indexedWorkingBones = new WorkingBone[0];
+	private int indexedBoneCount = 0;
 	protected AbstractBone rootBone;
 	public SegmentedArmature segmentedArmature;
 	//public StrandedArmature strandedArmature;
@@ -58,9 +68,32 @@ public abstract class AbstractArmature implements Saveable {
 	private boolean abilityBiasing = false;
 
 	public double IKSolverStability = 0d; 
-	PerformanceStats performance = new PerformanceStats(); 
+	private SolveMetrics solveMetrics = null;
+	static final PerfTimer.Zone solveZone = PerfTimer.zone("IKSolver");
+	static final PerfTimer.Zone qcpZone = PerfTimer.zone("QCPSolver");
+	static final PerfTimer.Zone alignZone = PerfTimer.zone("align simulation axes");
+	static final PerfTimer.Zone writeBackZone = PerfTimer.zone("write back to bones");
+	/**time spent in each phase of the current solve, reported to solveMetrics. see {@link SolveMetrics#ALIGN}*/
+	private final long[] phaseNanos = new long[SolveMetrics.PHASE_COUNT];
 
 	public int defaultStabilizingPassCount  = 1; 
+	private boolean fastStabilization = false;
+	private boolean analyticTwoBoneSolving = false;
+	private boolean flatAxesHierarchy = false;
+	/**the hierarchy the simulation axes are kept in while flatAxesHierarchy is enabled. Rebuilt on the next solve if released*/
+	private AxesHierarchy simulationHierarchy = null;
+
+	private ForkJoinPool segmentSolverPool = null;
+	private int parallelSegmentThreshold = 16;
+
+	private double convergenceTolerance = 0d;
+	private double stallRatio = 0d;
+	private int lastSolveIterations = 0;
+	private double lastSolveError = Double.NaN;
+
+	private boolean incrementalSolving = false;
+	private double incrementalPositionEpsilon = 0d;
+	private double incrementalCosHalfOrientationEpsilon = 1d;
 
 
 	AbstractAxes fauxParent;
@@ -245,6 +278,88 @@ public abstract class AbstractArmature implements Saveable {
 		SegmentedArmature.recursivelyCreateHeadingArraysFor(segmentedArmature);
 	}
 
+	/**
+	 * forgets the index of every bone which has been given one. Called before the segments are rebuilt.
+	 */
+	void clearBoneIndices() {
+		for(int i = 0; i < indexedBoneCount; i++) {
+			indexedWorkingBones[i].forBone.ikIndex = -1;
+			indexedWorkingBones[i] = null;
+			indexedSegments[i] = null;
+		}
+		indexedBoneCount = 0;
+	}
+
+	/**
+	 * gives the bone the WorkingBone is for the next available index, by which it and 
+	 * the segment it belongs to can later be looked up. 
+	 */
+	void indexBone(WorkingBone wb, SegmentedArmature segment) {
+		if(indexedBoneCount == indexedWorkingBones.length) {
+			int capacity = Math.max(16, indexedBoneCount*2);
+			indexedWorkingBones = Arrays.copyOf(indexedWorkingBones, capacity);
+			indexedSegments = Arrays.copyOf(indexedSegments, capacity);
+		}
+		wb.forBone.ikIndex = indexedBoneCount; 
+		indexedWorkingBones[indexedBoneCount] = wb;
+		indexedSegments[indexedBoneCount] = segment;
+		indexedBoneCount++;
+	}
+
+	/**
+	 * @return the segment the given bone belongs to, or null if it doesn't belong to one
+	 */
+	SegmentedArmature getSegmentFor(AbstractBone b) {
+		int i = b.ikIndex;
+		return i == -1 ? null : indexedSegments[i];
+	}
+
+	/**
+	 * @return the working state the solver keeps for the given bone, or null if it doesn't belong to any segment
+	 */
+	WorkingBone getWorkingBoneFor(AbstractBone b) {
+		int i = b.ikIndex;
+		return i == -1 ? null : indexedWorkingBones[i];
+	}
+
+	/**
+	 * Brings the segments up to date after the given bone has been pinned or unpinned. This is 
+	 * cheaper than {@link #updateArmatureSegments()}, as only the segments whose structure could have been 
+	 * affected by the change are regenerated, and bones which remain part of a segment keep their working state. 
+	 * Only the bones under the regenerated segments are remapped.
+	 * 
+	 * @param changed the bone whose pin was enabled, disabled, added or removed.
+	 */
+	public void updateArmatureSegmentsFor(AbstractBone changed) {
+		AbstractBone b = changed.parentArmature == this ? changed : null;
+		while(b != null && getSegmentFor(b) == null) {
+			b = b.getParent();
+		}
+		if(b == null) {
+			updateArmatureSegments();
+			return;
+		}
+		SegmentedArmature regenerated = getSegmentFor(b).regenerateAffectedSegments();
+		recursivelyRemoveFromBoneSegmentMap(regenerated.segmentRoot);
+		recursivelyUpdateBoneSegmentMapFrom(regenerated);
+		SegmentedArmature.recursivelyCreateHeadingArraysFor(regenerated);
+		for(SegmentedArmature s = regenerated.getParentSegment(); s != null; s = s.getParentSegment()) {
+			s.createHeadingArrays();
+		}
+	}
+
+	/**
+	 * removes the given bone and its descendants from the boneSegmentMap, stopping at any bone which wasn't in it 
+	 * (as none of that bone's descendants can belong to a segment either).
+	 */
+	private void recursivelyRemoveFromBoneSegmentMap(AbstractBone startFrom) {
+		if(boneSegmentMap.remove(startFrom) == null) 
+			return;
+		for(AbstractBone c : startFrom.getChildren()) {
+			recursivelyRemoveFromBoneSegmentMap(c);
+		}
+	}
+
 	private void recursivelyUpdateBoneSegmentMapFrom(SegmentedArmature startFrom) {
 		for(AbstractBone b: startFrom.segmentBoneList) {
 			boneSegmentMap.put(b, startFrom);
@@ -268,8 +383,8 @@ public abstract class AbstractArmature implements Saveable {
 
 		for(AbstractBone b : pinnedBones) {
 			b.notifyAncestorsOfPin(false);
-			updateArmatureSegments();
 		}
+		updateArmatureSegments();
 	}
 
 
@@ -297,9 +412,43 @@ public abstract class AbstractArmature implements Saveable {
 	 * @param stabilizingPasses number of stabilization passes to run. Set this to -1 if you want to use the armature's default. 
 	 */
 	public void IKSolver(AbstractBone bone, double dampening, int iterations, int stabilizingPasses) {
-		performance.startPerformanceMonitor();
-		iteratedImprovedSolver(bone, dampening, iterations, stabilizingPasses);//(bone, dampening, iterations);
-		performance.solveFinished(iterations == -1 ? this.IKIterations : iterations);
+		measuredSolve(bone, dampening, iterations, stabilizingPasses, false, 0L);
+	}
+
+	/**
+	 * solves the IK system of this armature from the given bone using the armature's defaults, 
+	 * but stops iterating once the given deadline has passed. 
+	 * see {@link #IKSolverUntil(AbstractBone, double, int, int, long)}
+	 * 
+	 * @param deadline the value of System.nanoTime() by which solving should stop.
+	 * @return the error of the pose that was applied 
+	 */
+	public double IKSolverUntil(AbstractBone bone, long deadline) {
+		return IKSolverUntil(bone, -1, -1, -1, deadline);
+	}
+
+	/**
+	 * Solves the IK system of this armature from the given bone, running iterations until either the given deadline 
+	 * passes or the iteration count (or any convergence criteria set on this armature) is reached, whichever comes first. 
+	 * The best pose found by any of the iterations which were run is applied to the bones, and its error is returned. 
+	 * 
+	 * The clock is only checked between iterations, so a solve may overrun its deadline by up to one iteration's worth of time. 
+	 * At least one iteration is always run, so that every armature makes some progress even if the deadline has already passed. 
+	 * To share a budget between several armatures, compute the deadline once (e.g. <code>System.nanoTime() + 1500000</code> for 1.5 ms) 
+	 * and pass that same deadline when solving each of them. 
+	 * 
+	 * @param bone
+	 * @param dampening dampening angle in radians. Set this to -1 if you want to use the armature's default. 
+	 * @param iterations the most iterations to run. Set this to -1 if you want to use the armature's default. 
+	 * @param stabilizingPasses number of stabilization passes to run. Set this to -1 if you want to use the armature's default. 
+	 * @param deadline the value of System.nanoTime() by which solving should stop.
+	 * @return the weighted mean squared distance between the pinned bones and their targets in the pose that was applied 
+	 * (see {@link SegmentedArmature#getPinnedMSD()}). 0 if there was nothing to solve, or if incremental solving determined 
+	 * that nothing had moved, the error as of the last solve. 
+	 */
+	public double IKSolverUntil(AbstractBone bone, double dampening, int iterations, int stabilizingPasses, long deadline) {
+		measuredSolve(bone, dampening, iterations, stabilizingPasses, true, deadline);
+		return lastSolveError;
 	}
 
 
@@ -334,21 +483,182 @@ public abstract class AbstractArmature implements Saveable {
 	}
 
 	/**
+	 * If enabled, stabilizing passes judge whether a bone's new orientation is an improvement using the 
+	 * inner products the QCP superposition already computed, rather than bringing every pinned descendant up to date 
+	 * and measuring its distance to its target again. This makes a stabilizing pass which succeeds on its first attempt
+	 * nearly as cheap as no stabilizing pass at all. The error estimates may differ from the measured ones by 
+	 * rounding error, so solutions can differ very slightly from those found with this disabled (the default). 
+	 */
+	public void setFastStabilization(boolean enabled) {
+		this.fastStabilization = enabled;
+	}
+
+	public boolean isFastStabilization() {
+		return fastStabilization;
+	}
+
+	/**
+	 * If enabled, any segment consisting of exactly two bones and a tip pinned by position alone 
+	 * (with no other pins depending on it), as in most arms and legs, is solved in closed form by the law of cosines 
+	 * instead of by superposing its bones one at a time. Dampening still limits how far each bone can rotate per iteration, 
+	 * but an unconstrained limb reaches its target in a single iteration whenever the dampening allows it to rotate that far. 
+	 * Constraints are honored as usual: the limb is bent in whichever plane the lower bone's kusudama allows, 
+	 * and the upper bone is turned toward its own limits about the line to the target before each bone is snapped. 
+	 * Disabled by default, as the poses it finds can differ from those the iterative solver would settle into.
+	 */
+	public void setAnalyticTwoBoneSolving(boolean enabled) {
+		this.analyticTwoBoneSolving = enabled;
+	}
+
+	public boolean isAnalyticTwoBoneSolving() {
+		return analyticTwoBoneSolving;
+	}
+
+	/**
+	 * If enabled, the axes the solver simulates bones with are kept in an {@link AxesHierarchy} rather than 
+	 * relying on their dependency registries, so that marking them dirty and bringing them up to date works on flat arrays 
+	 * rather than walking linked lists of weak references. Results are identical either way. 
 	 * 
-	 * @return a reference to the Axes serving as this Armature's coordinate system. 
+	 * The hierarchy is built on the next solve, and rebuilt whenever the armature's segments change. 
 	 */
-	public AbstractAxes localAxes() {
-		return this.localAxes;
+	public void setFlatAxesHierarchy(boolean enabled) {
+		this.flatAxesHierarchy = enabled;
+		if(!enabled && simulationHierarchy != null) {
+			simulationHierarchy.release();
+			simulationHierarchy = null;
+		}
 	}
 
+	public boolean isFlatAxesHierarchy() {
+		return flatAxesHierarchy;
+	}
 
-	private void recursivelyNotifyBonesOfCompletedIKSolution(SegmentedArmature startFrom) {
-		for(AbstractBone b : startFrom.segmentBoneList) {
-			b.IKUpdateNotification();
-		} 
-		for(SegmentedArmature s : startFrom.childSegments) {
-			recursivelyNotifyBonesOfCompletedIKSolution(s);
+	/**
+	 * builds the simulation axes hierarchy if it's enabled and hasn't been built since the simulation axes were last rearranged, 
+	 * then brings every simulation axes it holds up to date.
+	 */
+	private void updateSimulationHierarchy() {
+		if(!flatAxesHierarchy) return;
+		if(simulationHierarchy == null || simulationHierarchy.isReleased()) {
+			WorkingBone rootmost = getWorkingBoneFor(segmentedArmature.segmentRoot);
+			if(rootmost == null) return;
+			simulationHierarchy = new AxesHierarchy(rootmost.simLocalAxes, rootmost.simConstraintAxes);
 		}
+		simulationHierarchy.updateGlobals();
+	}
+
+	/**
+	 * Enables incremental solving, which is useful in scenes where most pins are idle most of the time. 
+	 * Each solve then skips any segment for which neither the pins it leads to nor the bones it hangs from 
+	 * have moved by more than the given amounts since the last time it was solved. Skipped segments keep 
+	 * their previous solution. If nothing has moved at all, the solve returns without doing anything. 
+	 * 
+	 * Note that a skipped segment won't be refined any further by subsequent solves, nor will it be brought back in line 
+	 * with its pins if its bones have been modified directly. Call {@link #invalidateIncrementalSolveState()}
+	 * after doing so.
+	 * 
+	 * @param positionEpsilon how far a pin or bone may move without requiring a re-solve, in the pin or bone's global units.  
+	 * @param orientationEpsilon how far (in radians) a pin or bone may turn without requiring a re-solve. 
+	 */
+	public void setIncrementalSolving(double positionEpsilon, double orientationEpsilon) {
+		if(!incrementalSolving) invalidateIncrementalSolveState();
+		this.incrementalSolving = true;
+		this.incrementalPositionEpsilon = positionEpsilon; 
+		this.incrementalCosHalfOrientationEpsilon = Math.cos(orientationEpsilon/2d);
+	}
+
+	/**
+	 * disables incremental solving (the default), so that every solve solves every segment. 
+	 */
+	public void disableIncrementalSolving() {
+		this.incrementalSolving = false;
+	}
+
+	public boolean isIncrementalSolving() {
+		return incrementalSolving;
+	}
+
+	/**
+	 * makes the next solve consider every pin and bone to have moved, so that nothing is skipped 
+	 * even if incremental solving is enabled. 
+	 */
+	public void invalidateIncrementalSolveState() {
+		segmentedArmature.invalidateSolvedState();
+	}
+
+	/**
+	 * Allows the solver to stop iterating before it reaches its iteration count once the pinned bones are 
+	 * close enough to their targets. After each iteration, the weighted mean squared distance between the pinned bones 
+	 * and their targets is computed (see {@link SegmentedArmature#getPinnedMSD()}), and the solve ends if it is 
+	 * at or below the given tolerance. If the pins are already within tolerance when the solve starts, no iterations are run at all.
+	 * 
+	 * @param tolerance the mean squared error to accept, or 0 to always run every iteration (the default).
+	 */
+	public void setConvergenceTolerance(double tolerance) {
+		this.convergenceTolerance = Math.max(0d, tolerance);
+	}
+
+	public double getConvergenceTolerance() {
+		return convergenceTolerance;
+	}
+
+	/**
+	 * Allows the solver to stop iterating once further iterations stop helping. The solve ends once two consecutive 
+	 * iterations each reduce the error described in {@link #setConvergenceTolerance(double)} by less than the given 
+	 * fraction of what it was before that iteration (including iterations which increase it, as happens when 
+	 * targets are unreachable). A single such iteration is tolerated, since the first few iterations of 
+	 * a solve sometimes trade a slight increase in error for a better starting point.
+	 * 
+	 * @param ratio for example, 0.01 to stop once an iteration improves things by less than 1%, or 0 to disable stall detection (the default).
+	 */
+	public void setStallRatio(double ratio) {
+		this.stallRatio = Math.max(0d, ratio);
+	}
+
+	public double getStallRatio() {
+		return stallRatio;
+	}
+
+	/**
+	 * @return the number of iterations the most recent call to IKSolver actually ran, which 
+	 * may be fewer than requested if a convergence tolerance or stall ratio has been set. 
+	 */
+	public int getLastSolveIterations() {
+		return lastSolveIterations;
+	}
+
+	/**
+	 * Enables solving independent sibling segments (for example, the arms below a chest, or the 
+	 * fingers of a hand when each is pinned) concurrently on a ForkJoinPool. Results are identical to 
+	 * serial solving, as siblings never modify anything the other siblings read. 
+	 * 
+	 * Bones may share a constraint instance, as each segment evaluates constraints with its own {@link ConstraintScratch}. 
+	 * Bones, their axes and their pins must not be shared with anything another thread might be solving or modifying meanwhile. 
+	 * 
+	 * @param pool the pool to solve on, or null to solve everything on the calling thread (the default). 
+	 * @param minimumBoneCount sibling subtrees with fewer bones than this are solved on whichever thread 
+	 * reaches them, and solves involving fewer bones than this never leave the calling thread, 
+	 * so that small rigs don't pay for task overhead. 
+	 */
+	public void setParallelSegmentSolving(ForkJoinPool pool, int minimumBoneCount) {
+		this.segmentSolverPool = pool;
+		this.parallelSegmentThreshold = Math.max(1, minimumBoneCount);
+	}
+
+	/**
+	 * Enables or disables parallel segment solving on the common ForkJoinPool, with a default subtree size threshold.
+	 * see {@link #setParallelSegmentSolving(ForkJoinPool, int)}
+	 */
+	public void setParallelSegmentSolving(boolean enabled) {
+		setParallelSegmentSolving(enabled ? ForkJoinPool.commonPool() : null, parallelSegmentThreshold);
+	}
+
+	/**
+	 * 
+	 * @return a reference to the Axes serving as this Armature's coordinate system. 
+	 */
+	public AbstractAxes localAxes() {
+		return this.localAxes;
 	}
 
 
@@ -359,52 +669,230 @@ public abstract class AbstractArmature implements Saveable {
 	 */
 
 	public void iteratedImprovedSolver(AbstractBone startFrom, double dampening, int iterations, int stabilizationPasses) {
-		SegmentedArmature armature = boneSegmentMap.get(startFrom);
+		solve(startFrom, dampening, iterations, stabilizationPasses, false, 0L);
+	}
+
+	/**
+	 * solves, and reports how the solve went to solveMetrics if there is one. 
+	 */
+	private void measuredSolve(AbstractBone startFrom, double dampening, int iterations, int stabilizationPasses, boolean timed, long deadline) {
+		SolveMetrics metrics = solveMetrics;
+		PerfTimer.begin(solveZone);
+		if(metrics == null) {
+			solve(startFrom, dampening, iterations, stabilizationPasses, timed, deadline);
+			PerfTimer.end(solveZone);
+			return;
+		}
+		Arrays.fill(phaseNanos, 0L);
+		boolean measureAllocation = metrics.measuresAllocation();
+		long allocatedBefore = measureAllocation ? SolveStats.getThreadAllocatedBytes() : -1L;
+		long start = System.nanoTime();
+		solve(startFrom, dampening, iterations, stabilizationPasses, timed, deadline);
+		long solveNanos = System.nanoTime() - start;
+		long allocated = allocatedBefore == -1L ? -1L : SolveStats.getThreadAllocatedBytes() - allocatedBefore;
+		PerfTimer.end(solveZone);
+		metrics.solveFinished(solveNanos, phaseNanos, lastSolveIterations, lastSolveError, allocated);
+	}
+
+	/**
+	 * adds the time since phaseStart to the given phase of the current solve if it's being measured.
+	 * @return the time now, to be used as the start of the next phase 
+	 */
+	private long endPhase(int phase, long phaseStart) {
+		if(solveMetrics == null) return 0L;
+		long now = System.nanoTime();
+		phaseNanos[phase] += now - phaseStart;
+		return now;
+	}
+
+	private void solve(AbstractBone startFrom, double dampening, int iterations, int stabilizationPasses, boolean timed, long deadline) {
+		SegmentedArmature armature = getSegmentFor(startFrom);
+		lastSolveIterations = 0;
 		
 	
 		if(armature != null) {
 			SegmentedArmature pinnedRootChain = armature.getPinnedRootChainFromHere();
 			armature = pinnedRootChain == null ? armature.getAncestorSegmentContaining(rootBone) : pinnedRootChain;
-			if(armature != null && armature.pinnedDescendants.size() > 0) {
+			if(armature == null || armature.pinnedDescendants.size() == 0) {
+				lastSolveError = 0d;
+			} else {
+				AbstractAxes referenceAxes = null; 
+				if(incrementalSolving) {
+					referenceAxes = armature.segmentRoot.getParent() == null ? localAxes() : armature.segmentRoot.getParent().localAxes();
+					armature.updatePinsSettled(incrementalPositionEpsilon, incrementalCosHalfOrientationEpsilon);
+					if(armature.isSettled(referenceAxes, incrementalPositionEpsilon, incrementalCosHalfOrientationEpsilon)) 
+						return;
+					armature.solvedThisSolve = true;
+				}
+				long phaseStart = solveMetrics == null ? 0L : System.nanoTime();
+				PerfTimer.begin(alignZone);
 				armature.alignSimulationAxesToBones();
+				PerfTimer.end(alignZone);
+				updateSimulationHierarchy();
+				phaseStart = endPhase(SolveMetrics.ALIGN, phaseStart);
 
 				iterations = iterations == -1 ? IKIterations : iterations;
-				double totalIterations = iterations; 
 				//dampening = dampening == -1? this.dampening : dampening;
 				stabilizationPasses = stabilizationPasses == -1 ? this.defaultStabilizingPassCount : stabilizationPasses; 				
-				for(int i = 0; i<iterations; i++) {			
-					if(!armature.isBasePinned() ) {
-						//alignSegmentTipOrientationsFor(armature, dampening);		
-						armature.updateOptimalRotationToPinnedDescendants(armature.segmentRoot, Math.PI, true, stabilizationPasses, i, totalIterations);
-						armature.setProcessed(false);
-						for(SegmentedArmature s : armature.childSegments) {
-							groupedRecursiveSegmentSolver(s, dampening, stabilizationPasses, i, totalIterations);	
-						}
-					} else {
-						groupedRecursiveSegmentSolver(armature, dampening, stabilizationPasses, i, totalIterations);		
-					}
-					//outwardRecursiveSegmentSolver(armature, dampening);
-					//alignSegmentTipOrientationsFor(armature, dampening);
-
+				if(segmentSolverPool != null && armature.subtreeBoneCount >= parallelSegmentThreshold) {
+					armature.updatePinnedAxes();
+					final SegmentedArmature solveFrom = armature;
+					final double solveDampening = dampening; 
+					final int solveIterations = iterations, solvePasses = stabilizationPasses;
+					lastSolveIterations = segmentSolverPool.invoke(ForkJoinTask.adapt(
+							() -> solveIterations(solveFrom, solveDampening, solveIterations, solvePasses, timed, deadline)));
+				} else {
+					lastSolveIterations = solveIterations(armature, dampening, iterations, stabilizationPasses, timed, deadline);
+				}
+				if(solveMetrics != null && !timed && convergenceTolerance <= 0d && stallRatio <= 0d) {
+					//the error is otherwise only computed when something needs it
+					lastSolveError = armature.getPinnedMSD();
+				}
+				phaseStart = endPhase(SolveMetrics.SOLVE, phaseStart);
+				if(incrementalSolving) {
+					armature.recordSolvedState(referenceAxes);
 				}
+				PerfTimer.begin(writeBackZone);
 				armature.recursivelyAlignBonesToSimAxesFrom(armature.segmentRoot);
+				PerfTimer.end(writeBackZone);
+				phaseStart = endPhase(SolveMetrics.WRITE_BACK, phaseStart);
 				recursivelyNotifyBonesOfCompletedIKSolution(armature);
+				endPhase(SolveMetrics.NOTIFY, phaseStart);
+			}
+		} else {
+			lastSolveError = 0d;
+		}
+
+	}
+
+	/**
+	 * runs up to the given number of iterations, stopping early if the convergence tolerance or stall ratio is met. 
+	 * If timed is true, also stops once the deadline has passed (though always after at least one iteration), and leaves 
+	 * the simulation axes in the lowest error state any iteration reached. 
+	 * @return the number of iterations actually run
+	 */
+	private int solveIterations(SegmentedArmature armature, double dampening, int iterations, int stabilizationPasses, boolean timed, long deadline) {
+		double totalIterations = iterations; 
+		boolean checkConvergence = convergenceTolerance > 0d || stallRatio > 0d;
+		double previousMSD = checkConvergence || timed ? armature.getPinnedMSD() : 0d;
+		if(checkConvergence && previousMSD <= convergenceTolerance) {
+			lastSolveError = previousMSD;
+			return 0;
+		}
+		int stalledIterations = 0;
+		double bestMSD = Double.POSITIVE_INFINITY;
+		int bestIteration = -1;
+		int i = 0;
+		while(i<iterations) {			
+			if(!armature.isBasePinned() ) {
+				//alignSegmentTipOrientationsFor(armature, dampening);		
+				armature.updateGlobalTargetHeadings();
+				armature.updateOptimalRotationToPinnedDescendants(armature.segmentRoot, Math.PI, true, stabilizationPasses, i, totalIterations);
+				armature.setProcessed(false);
+				solveChildSegments(armature, armature.childSegments, true, dampening, stabilizationPasses, i, totalIterations);
+			} else {
+				groupedRecursiveSegmentSolver(armature, dampening, stabilizationPasses, i, totalIterations);		
+			}
+			//outwardRecursiveSegmentSolver(armature, dampening);
+			//alignSegmentTipOrientationsFor(armature, dampening);
+			i++;
+			if(checkConvergence || timed) {
+				double msd = armature.getPinnedMSD(); 
+				lastSolveError = msd;
+				if(timed && msd < bestMSD) {
+					bestMSD = msd;
+					bestIteration = i;
+					armature.captureSimulationAxes();
+				}
+				if(msd <= convergenceTolerance) 
+					break;
+				if(stallRatio > 0d && previousMSD - msd < stallRatio*previousMSD) {
+					if(++stalledIterations == 2) break;
+				} else {
+					stalledIterations = 0;
+				}
+				previousMSD = msd;
 			}
+			if(timed && System.nanoTime() - deadline >= 0) 
+				break;
 		}
+		if(timed && bestIteration != i) {
+			armature.restoreSimulationAxes();
+			lastSolveError = bestMSD;
+		}
+		return i;
+	}
 
+	private void recursivelyNotifyBonesOfCompletedIKSolution(SegmentedArmature startFrom) {
+		for(int i = 0; i < startFrom.segmentBoneList.size(); i++) {
+			startFrom.segmentBoneList.get(i).IKUpdateNotification();
+		} 
+		for(int i = 0; i < startFrom.childSegments.size(); i++) {
+			recursivelyNotifyBonesOfCompletedIKSolution(startFrom.childSegments.get(i));
+		}
 	}
 
 	public void groupedRecursiveSegmentSolver(SegmentedArmature startFrom, double dampening, int stabilizationPasses, int iteration, double totalIterations) {	
 		recursiveSegmentSolver(startFrom, dampening, stabilizationPasses, iteration, totalIterations);
-		for(SegmentedArmature a : startFrom.pinnedDescendants) {
-			for(SegmentedArmature c : a.childSegments) {
-				//alignSegmentTipOrientationsFor(startFrom, dampening);
-				groupedRecursiveSegmentSolver(c, dampening, stabilizationPasses, iteration, totalIterations);
-			}
+		for(int i = 0; i < startFrom.pinnedDescendants.size(); i++) {
+			SegmentedArmature a = startFrom.pinnedDescendants.get(i);
+			//alignSegmentTipOrientationsFor(startFrom, dampening);
+			solveChildSegments(a, a.childSegments, true, dampening, stabilizationPasses, iteration, totalIterations);
 		}
 		//alignSegmentTipOrientationsFor(startFrom, dampening);
 	}
 
+	/**
+	 * solves each of the given child segments of parent (via groupedRecursiveSegmentSolver if grouped is true, 
+	 * or recursiveSegmentSolver otherwise). Sibling segments share nothing but the parent's tip, which none of them 
+	 * modify, so if parallel segment solving is enabled and this is running on a ForkJoinPool, any sibling whose subtree 
+	 * has at least parallelSegmentThreshold bones is forked off and solved concurrently with the rest. 
+	 */
+	private void solveChildSegments(SegmentedArmature parent, ArrayList<SegmentedArmature> children, boolean grouped, 
+			double dampening, int stabilizationPasses, int iteration, double totalIterations) {
+		ArrayList<ForkJoinTask<?>> forked = null;
+		if(segmentSolverPool != null && children.size() > 1 && ForkJoinTask.inForkJoinPool()) {
+			//bring the shared parent up to date so the children only ever read from it
+			getWorkingBoneFor(parent.segmentTip).simLocalAxes.updateGlobal();
+			for(int i = 0; i < children.size(); i++) {
+				SegmentedArmature c = children.get(i);
+				if(c.subtreeBoneCount >= parallelSegmentThreshold) {
+					if(forked == null) forked = new ArrayList<>();
+					forked.add(ForkJoinTask.adapt(
+							() -> solveChildSegment(c, grouped, dampening, stabilizationPasses, iteration, totalIterations)).fork());
+				}
+			}
+		}
+		//indexed rather than for-each, since this recurses too deeply for the JIT to eliminate the iterators
+		for(int i = 0; i < children.size(); i++) {
+			SegmentedArmature c = children.get(i);
+			if(forked == null || c.subtreeBoneCount < parallelSegmentThreshold) {
+				solveChildSegment(c, grouped, dampening, stabilizationPasses, iteration, totalIterations);
+			}
+		}
+		if(forked != null) {
+			for(ForkJoinTask<?> t : forked) {
+				t.join();
+			}
+		}
+	}
+
+	private void solveChildSegment(SegmentedArmature c, boolean grouped, double dampening, int stabilizationPasses, int iteration, double totalIterations) {
+		if(incrementalSolving) {
+			if(c.isSettled(c.getSimulatedReferenceAxes(), incrementalPositionEpsilon, incrementalCosHalfOrientationEpsilon)) {
+				if(!grouped) c.setProcessed(true);
+				return;
+			}
+			c.solvedThisSolve = true;
+		}
+		if(grouped) {
+			groupedRecursiveSegmentSolver(c, dampening, stabilizationPasses, iteration, totalIterations);
+		} else {
+			recursiveSegmentSolver(c, dampening, stabilizationPasses, iteration, totalIterations);
+			c.setProcessed(true);
+		}
+	}
+
 	/**given a segmented armature, solves each chain from its pinned 
 	 * tips down to its pinned root. 
 	 * @param armature
@@ -413,10 +901,7 @@ public abstract class AbstractArmature implements Saveable {
 		if(armature.childSegments == null && !armature.isTipPinned()) {
 			return; 
 		} else if(!armature.isTipPinned()) {
-			for(SegmentedArmature c: armature.childSegments) {			
-				recursiveSegmentSolver(c, dampening, stabilizationPasses, iteration, totalIterations);
-				c.setProcessed(true);
-			}
+			solveChildSegments(armature, armature.childSegments, false, dampening, stabilizationPasses, iteration, totalIterations);
 		} 		
 		QCPSolver(armature, dampening, false, stabilizationPasses, iteration, totalIterations);			
 	}
@@ -440,12 +925,18 @@ public abstract class AbstractArmature implements Saveable {
 		
 		AbstractBone currentBone = startFrom;
 		
-		if(debug && chain.simulatedBones.size() < 2) {
+		if(debug && chain.segmentBoneList.size() < 2) {
 
 		} else {	
 			/*if(chain.isTipPinned() && chain.segmentTip.getIKPin().getDepthFalloff() == 0d)
 				alignSegmentTipOrientationsFor(chain, dampening);*/
 			//System.out.print("---------");
+			PerfTimer.begin(qcpZone);
+			chain.updateGlobalTargetHeadings();
+			if(analyticTwoBoneSolving && chain.solveTwoBoneChain(dampening)) {
+				PerfTimer.end(qcpZone);
+				return;
+			}
 			while(currentBone != null) {			
 				if(!currentBone.getIKOrientationLock()) {
 					chain.updateOptimalRotationToPinnedDescendants(currentBone, dampening, false, stabilizationPasses, iteration, totalIterations);
@@ -458,12 +949,13 @@ public abstract class AbstractArmature implements Saveable {
 					break;
 				}
 			}
+			PerfTimer.end(qcpZone);
 		}
 	}
 
 
 	void rootwardlyUpdateFalloffCacheFrom(AbstractBone forBone) {
-		SegmentedArmature current = boneSegmentMap.get(forBone);
+		SegmentedArmature current = getSegmentFor(forBone);
 		while(current != null) {
 			current.createHeadingArrays();
 			current = current.getParentSegment();
@@ -471,12 +963,6 @@ public abstract class AbstractArmature implements Saveable {
 	}
 
 
-	//debug code -- use to set a minimum distance an effector must move
-	// in order to trigger a chain iteration 
-	double debugMag = 5f; 
-	SGVec_3d lastTargetPos = new SGVec_3d(); 
-
-
 	/**
 	 * currently unused
 	 * @param enabled
@@ -507,65 +993,35 @@ public abstract class AbstractArmature implements Saveable {
 	public double getDampening() {
 		return dampening;
 	}
-	boolean monitorPerformance = false;
-	public void setPerformanceMonitor(boolean state) {
-		monitorPerformance = state;
+	/**
+	 * Installs something to report how each subsequent solve goes to. see {@link SolveMetrics}. 
+	 * An {@link SolveStats} is a good default, and is cheap enough to leave installed: 
+	 * with metrics installed, each solve takes a handful of extra calls to System.nanoTime() 
+	 * (and, if it doesn't already, computes the error of the pose it applies). 
+	 * 
+	 * @param metrics the metrics to report to, or null to stop reporting (the default). 
+	 */
+	public void setSolveMetrics(SolveMetrics metrics) {
+		this.solveMetrics = metrics;
 	}
 
-	public class PerformanceStats {
-		int timedCalls = 0;
-		int benchmarkWindow = 60;
-		int iterationCount = 0; 
-		float averageSolutionTime = 0;
-		float averageIterationTime = 0;
-		int solutionCount = 0; 
-		float iterationsPerSecond = 0f; 
-		long totalSolutionTime = 0; 
-
-
-		long startTime = 0;
-		public void startPerformanceMonitor() {
-			if(monitorPerformance) {
-				if(timedCalls > benchmarkWindow) {			
-					performance.resetPerformanceStat();
-				}
-				startTime = System.nanoTime();
-			}
-		}
-
-		public void solveFinished(int iterations) {
-			if(monitorPerformance) {
-				totalSolutionTime += System.nanoTime() - startTime; 
-				//averageSolutionTime *= solutionCount; 
-				solutionCount++;
-				iterationCount+= iterations; 
-
-				if(timedCalls > benchmarkWindow) {
-					timedCalls =0;			
-					performance.printStats();			
-				}
-				timedCalls++;
-			}
-		}
-
-		public void resetPerformanceStat() {
-			startTime = 0;
-			iterationCount = 0; 
-			averageSolutionTime = 0;
-			solutionCount = 0; 
-			iterationsPerSecond = 0f; 
-			totalSolutionTime = 0;
-			averageIterationTime = 0;
-		}
-
-		public void printStats() {
-			averageSolutionTime = (float)(totalSolutionTime/solutionCount) / 1000000f; 
-			averageIterationTime = (float)(totalSolutionTime/iterationCount) / 1000000f; 
-			System.out.println("solution time average: ") ;
-			System.out.println("per call = " + (averageSolutionTime)+  "ms");
-			System.out.println("per iteration = " + (averageIterationTime)+  "ms \n");
-		}
+	/**
+	 * @return the metrics each solve is being reported to, or null if none are installed.
+	 */
+	public SolveMetrics getSolveMetrics() {
+		return solveMetrics;
+	}
 
+	/**
+	 * @deprecated use {@link #setSolveMetrics(SolveMetrics)}, which this now calls with 
+	 * a new {@link SolveStats} if state is true (and none is already installed), or null if state is false. 
+	 */
+	@Deprecated
+	public void setPerformanceMonitor(boolean state) {
+		if(!state) 
+			setSolveMetrics(null);
+		else if(solveMetrics == null) 
+			setSolveMetrics(new SolveStats());
 	}
 
 	@Override
@@ -73,6 +73,9 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	protected boolean orientationLock = false;
 	protected double stiffnessScalar = 0f;
 	public int ancestorCount = 0;
+	/**this bone's index into its armature's working bone tables, assigned whenever the armature's segments are built, 
+	 * or -1 if this bone isn't part of any segment.*/
+	int ikIndex = -1;
 
 	/**
 	 * 
@@ -483,6 +486,16 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 			((AbstractKusudama)constraints).setAxesToSnapped(toSet, limitingAxes, cosHalfAngleDampen);
 		}
 	}
+
+	/**
+	 * same as setAxesToSnapped, but evaluates the constraint using the given scratch, so that 
+	 * bones sharing a constraint can be solved concurrently.
+	 */
+	public void setAxesToSnapped(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen, ConstraintScratch scratch) {
+		if(constraints != null && AbstractKusudama.class.isAssignableFrom(constraints.getClass())) {
+			((AbstractKusudama)constraints).setAxesToSnapped(toSet, limitingAxes, cosHalfAngleDampen, scratch);
+		}
+	}
 	
 	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen, double angleDampen) {
 		if(constraints != null && AbstractKusudama.class.isAssignableFrom(constraints.getClass())) {
@@ -490,6 +503,16 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 		}
 	}
 
+	/**
+	 * same as setAxesToReturnfulled, but evaluates the constraint using the given scratch, so that 
+	 * bones sharing a constraint can be solved concurrently.
+	 */
+	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen, double angleDampen, ConstraintScratch scratch) {
+		if(constraints != null && AbstractKusudama.class.isAssignableFrom(constraints.getClass())) {
+			((AbstractKusudama)constraints).setAxesToReturnfulled(toSet, limitingAxes, cosHalfAngleDampen, angleDampen, scratch);
+		}
+	}
+
 
 	public void setPin_(SGVec_3d pin) {
 		if(this.pin == null) {
@@ -718,9 +741,9 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	public void disablePin() {
 		pin.disable();
 		if (this.effectoredChildren.size() == 0) {
-			notifyAncestorsOfUnpin();
+			notifyAncestorsOfUnpin(false);
 		}
-		this.updateSegmentedArmature();	
+		parentArmature.updateArmatureSegmentsFor(this);	
 	}	
 
 	/**
@@ -730,10 +753,10 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	public void removePin() {
 		pin.disable();
 		if (this.effectoredChildren.size() == 0) {
-			notifyAncestorsOfUnpin();
+			notifyAncestorsOfUnpin(false);
 		}
 		pin.removalNotification(); 
-		this.updateSegmentedArmature();	
+		parentArmature.updateArmatureSegmentsFor(this);	
 	}
 
 	protected abstract AbstractIKPin createAndReturnPinOnAxes(AbstractAxes a);
@@ -755,14 +778,14 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 		//System.out.println("adding children");
 		for (AbstractBone child : getChildren()) {
 			if (child.pin !=null && !child.pin.isEnabled()) {	    	  
-				addFreeChild(child);
+				addFreeChild(child, false);
 				//System.out.println("childAdd");
 			}
 		}
 		//System.out.println("notifying ancestors");
 		notifyAncestorsOfPin(false);
 		//System.out.println("updating segment armature");
-		this.updateSegmentedArmature();	
+		parentArmature.updateArmatureSegmentsFor(this);	
 		//System.out.println("segment armature updated");
 	}
 
@@ -783,10 +806,11 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 		freeChildren.clear(); 
 		for (AbstractBone child : getChildren()) {
 			if (!child.pin.isEnabled()) {
-				addFreeChild(child);
+				addFreeChild(child, false);
 			}
 		}
-		notifyAncestorsOfPin();
+		notifyAncestorsOfPin(false);
+		parentArmature.updateArmatureSegmentsFor(this);
 		//this.updateSegmentedArmature();	
 	}
 
@@ -809,7 +833,7 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	public void togglePin() {
 		if(this.pin == null) this.enablePin();
 		this.pin.toggle();
-		updateSegmentedArmature();
+		parentArmature.updateArmatureSegmentsFor(this);
 	}
 
 
@@ -857,10 +881,14 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	}
 
 	public void notifyAncestorsOfUnpin() {
+		notifyAncestorsOfUnpin(true);
+	}
+
+	void notifyAncestorsOfUnpin(boolean updateSegments) {
 		if (this.parent != null) {
-			parent.removeFromEffectored(this);
+			parent.removeFromEffectored(this, false);
 		}
-		parentArmature.updateArmatureSegments();
+		if(updateSegments) parentArmature.updateArmatureSegments();
 	}
 
 	public void addToEffectored(AbstractBone abstractBone) {
@@ -877,15 +905,22 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	}
 
 	public void removeFromEffectored(AbstractBone abstractBone) {
+		removeFromEffectored(abstractBone, true);
+	}
+
+	/**
+	 * @param updateSegments if false, the armature's segments are left for the caller to update once it's done making changes. 
+	 */
+	void removeFromEffectored(AbstractBone abstractBone, boolean updateSegments) {
 		int effectoredIndex  = effectoredChildren.indexOf(abstractBone);
 		if ( effectoredIndex != -1) effectoredChildren.remove(effectoredIndex);
 
 		if (freeChildren.contains(abstractBone)) {
 		} else {
-			addFreeChild(abstractBone);
+			addFreeChild(abstractBone, updateSegments);
 		}
 		if (this.parent != null && this.effectoredChildren.size() == 0 && this.pin != null && this.pin.isEnabled()) {
-			parent.removeFromEffectored(this);
+			parent.removeFromEffectored(this, updateSegments);
 		}
 	}
 
@@ -1005,10 +1040,17 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 
 
 	public void addFreeChild(AbstractBone bone) {		
+		addFreeChild(bone, true);
+	}
+
+	/**
+	 * @param updateSegments if false, the armature's segments are left for the caller to update once it's done making changes. 
+	 */
+	void addFreeChild(AbstractBone bone, boolean updateSegments) {		
 		if(this.freeChildren.indexOf(bone) == -1) {
 			freeChildren.add(bone);
 		}
-		parentArmature.updateArmatureSegments();
+		if(updateSegments) parentArmature.updateArmatureSegments();
 	}
 
 	public void addEffectoredChild(AbstractBone bone) {		
@@ -1059,12 +1101,9 @@ public abstract class AbstractBone implements Saveable, Comparable<AbstractBone>
 	public void setStiffness(double stiffness) {
 		stiffnessScalar = stiffness;
 		if(parentArmature != null) {
-			SegmentedArmature s = parentArmature.boneSegmentMap.get(this);
-			if(s != null ) {
-				WorkingBone wb = s.simulatedBones.get(this);
-				if(wb != null) {
-					wb.updateCosDampening();
-				}
+			WorkingBone wb = parentArmature.getWorkingBoneFor(this);
+			if(wb != null) {
+				wb.updateCosDampening();
 			}
 		}
 	}
@@ -4,6 +4,7 @@
 package IK.doubleIK;
 import java.util.ArrayList;
 
+import IK.PerfTimer;
 import IK.doubleIK.SegmentedArmature.WorkingBone;
 import data.EWBIKLoader;
 import data.EWBIKSaver;
@@ -26,6 +27,8 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 
 	public static final double TAU = Math.PI*2;
 	public static final double PI = Math.PI;
+	static final PerfTimer.Zone snapZone = PerfTimer.zone("kusudama snap");
+	static final PerfTimer.Zone returnfulnessZone = PerfTimer.zone("kusudama returnfulness");
 	protected AbstractAxes limitingAxes; 
 	protected double painfullness; 
 
@@ -134,12 +137,147 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 			AbstractLimitCone next = i<limitCones.size() -1 ? limitCones.get(i+1) : null;
 			limitCones.get(i).updateTangentHandles(next);
 		}
+		bakeBoundsTable();
+	}
+
+	private static final byte CELL_OUTSIDE = -1, CELL_BOUNDARY = 0, CELL_INSIDE = 1;
+	/**
+	 * if not null, classifies each cell of an octahedral grid over the unit sphere (in limitingAxes space) as being entirely 
+	 * within the limitCones and the paths between them, entirely outside of them, or straddling their boundary. 
+	 * Cells are indexed by u*boundsTableResolution + v. See setBoundsTableResolution.
+	 */
+	private byte[] boundsTable = null;
+	private int boundsTableResolution = 0;
+
+	/**
+	 * Kusudamas with more than one limitCone normally check each point against the path between every pair of 
+	 * adjacent cones. Setting a resolution greater than 0 bakes the limits into a resolution x resolution grid 
+	 * covering the sphere, so that any point falling in a cell well inside the limits is accepted in constant time. 
+	 * Points near the boundary or outside of it are still checked (and snapped) exactly. 
+	 * The grid is rebaked whenever the limitCones change, and takes resolution^2 bytes. 
+	 * Something in the range of 32 to 128 is a reasonable tradeoff. 
+	 * 
+	 * @param resolution the number of cells along each side of the grid, or 0 to disable the grid (the default).
+	 */
+	public void setBoundsTableResolution(int resolution) {
+		boundsTableResolution = Math.max(0, resolution);
+		bakeBoundsTable();
+	}
+
+	public int getBoundsTableResolution() {
+		return boundsTableResolution;
+	}
+
+	/**
+	 * (re)builds the boundsTable. A cell counts as inside only if its corners, edge midpoints, and center are all within limits, 
+	 * and it isn't adjacent to any cell which isn't. Cells on the outer edge of the grid (where the octahedral map folds over 
+	 * and grid neighbors are no longer neighbors on the sphere) are never counted as inside.
+	 */
+	private void bakeBoundsTable() {
+		int res = boundsTableResolution;
+		if(res == 0 || limitCones.size() < 2) {
+			boundsTable = null;
+			return;
+		}
+		int samplesPerSide = 2*res+1;
+		boolean[] sampleIn = new boolean[samplesPerSide*samplesPerSide];
+		ConstraintScratch bakeScratch = new ConstraintScratch();
+		SGVec_3d samplePoint = new SGVec_3d();
+		for(int su = 0; su < samplesPerSide; su++) {
+			for(int sv = 0; sv < samplesPerSide; sv++) {
+				double u = ((double)su / (samplesPerSide-1))*2d - 1d;
+				double v = ((double)sv / (samplesPerSide-1))*2d - 1d;
+				sampleIn[su*samplesPerSide + sv] = isInConeSequence(octahedralToSphere(u, v, samplePoint), bakeScratch);
+			}
+		}
+		byte[] coarse = new byte[res*res];
+		for(int cu = 0; cu < res; cu++) {
+			for(int cv = 0; cv < res; cv++) {
+				int inCount = 0; 
+				for(int su = 2*cu; su <= 2*cu+2; su++) {
+					for(int sv = 2*cv; sv <= 2*cv+2; sv++) {
+						if(sampleIn[su*samplesPerSide + sv]) inCount++;
+					}
+				}
+				coarse[cu*res+cv] = inCount == 9 ? CELL_INSIDE : inCount == 0 ? CELL_OUTSIDE : CELL_BOUNDARY;
+			}
+		}
+		byte[] table = new byte[res*res];
+		for(int cu = 0; cu < res; cu++) {
+			for(int cv = 0; cv < res; cv++) {
+				byte cell = coarse[cu*res+cv];
+				if(cell == CELL_INSIDE) {
+					if(cu == 0 || cv == 0 || cu == res-1 || cv == res-1) {
+						cell = CELL_BOUNDARY;
+					} else {
+						for(int nu = cu-1; nu <= cu+1; nu++) {
+							for(int nv = cv-1; nv <= cv+1; nv++) {
+								if(coarse[nu*res+nv] != CELL_INSIDE) cell = CELL_BOUNDARY;
+							}
+						}
+					}
+				}
+				table[cu*res+cv] = cell;
+			}
+		}
+		boundsTable = table;
+	}
+
+	/**
+	 * @return the index into the boundsTable of the cell containing the given unit vector.
+	 */
+	private static int boundsTableCell(Vec3d<?> p, int res) {
+		double l1 = Math.abs(p.x) + Math.abs(p.y) + Math.abs(p.z);
+		double u = p.x / l1, v = p.y / l1; 
+		if(p.z < 0d) {
+			double fu = (1d - Math.abs(v)) * (u < 0d ? -1d : 1d);
+			v = (1d - Math.abs(u)) * (v < 0d ? -1d : 1d);
+			u = fu; 
+		}
+		int cu = (int)((u + 1d) * 0.5d * res);
+		int cv = (int)((v + 1d) * 0.5d * res);
+		cu = cu < 0 ? 0 : cu >= res ? res-1 : cu;
+		cv = cv < 0 ? 0 : cv >= res ? res-1 : cv;
+		return cu*res + cv;
+	}
+
+	/**
+	 * sets storeIn to the unit vector the octahedral map sends to (u, v), both in the range [-1, 1].
+	 */
+	private static <V extends Vec3d<?>> V octahedralToSphere(double u, double v, V storeIn) {
+		double z = 1d - Math.abs(u) - Math.abs(v);
+		if(z < 0d) {
+			storeIn.set((1d - Math.abs(v)) * (u < 0d ? -1d : 1d), (1d - Math.abs(u)) * (v < 0d ? -1d : 1d), z);
+		} else {
+			storeIn.set(u, v, z);
+		}
+		storeIn.normalize();
+		return storeIn;
+	}
+
+	/**
+	 * @return true if setToPointInLimits would consider the given unit vector to be in bounds. 
+	 * Vectors parallel to a control point (which inBoundsFromThisToNext can't construct a rotation from) 
+	 * are conservatively reported as out of bounds.
+	 */
+	private boolean isInConeSequence(Vec3d<?> point, ConstraintScratch scratch) {
+		for(AbstractLimitCone lc : limitCones) {
+			if(scratch.coneCross.set(lc.getControlPoint()).crs(point).magSq() == 0d) 
+				return false;
+		}
+		for (int i =0; i<limitCones.size() -1; i++) {
+			if(limitCones.get(i).inBoundsFromThisToNext(limitCones.get(i+1), point, scratch.collisionPoint, scratch))
+				return true;
+		}
+		return false;
 	}
 
 
 	
-	sgRayd boneRay = new sgRayd(new SGVec_3d(), new SGVec_3d());
-	sgRayd constrainedRay = new sgRayd(new SGVec_3d(), new SGVec_3d());
+	/**
+	 * used by the overloads which don't take a ConstraintScratch. 
+	 */
+	ConstraintScratch scratch = new ConstraintScratch();
 	
 	/**
 	 * Snaps the bone this Kusudama is constraining to be within the Kusudama's orientational and axial limits. 
@@ -161,34 +299,56 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @param toSet
 	 */
 	public void setAxesToSnapped(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen) {
+		setAxesToSnapped(toSet, limitingAxes, cosHalfAngleDampen, scratch);
+	}
+
+	/**
+	 * Same as setAxesToSnapped, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToSnapped(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen, ConstraintScratch scratch) {
 		if(limitingAxes != null) {					
+			PerfTimer.begin(snapZone);
 			if(orientationallyConstrained) {
-				setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen);
+				setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen, scratch);
 			} 		
 			if(axiallyConstrained) {
-				snapToTwistLimits(toSet, limitingAxes);
+				snapToTwistLimits(toSet, limitingAxes, scratch);
 			}		
+			PerfTimer.end(snapZone);
 		}
 	}
 	
 	
 	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfReturnfullness, double angleReturnfullness) {
+		setAxesToReturnfulled(toSet, limitingAxes, cosHalfReturnfullness, angleReturnfullness, scratch);
+	}
+
+	/**
+	 * Same as setAxesToReturnfulled, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfReturnfullness, double angleReturnfullness, ConstraintScratch scratch) {
 		if(limitingAxes != null && painfullness >0d) {
+			PerfTimer.begin(returnfulnessZone);
 			if(orientationallyConstrained) {				
-				Vec3d<?> origin = toSet.origin_();
-				Vec3d<?> inPoint = toSet.y_().p2().copy();
-				Vec3d<?> pathPoint = pointOnPathSequence(inPoint, limitingAxes);
+				toSet.updateGlobal();
+				Vec3d<?> origin = toSet.getGlobalMBasis().getOrigin();
+				Vec3d<?> inPoint = scratch.fromHeading.set(toSet.y_().p2());
+				Vec3d<?> pathPoint = setToPointOnPathSequence(inPoint, limitingAxes, scratch.toHeading, scratch);
 				inPoint.sub(origin);
 				pathPoint.sub(origin);				
-				Rot toClamp = new Rot(inPoint, pathPoint);				
+				Rot toClamp = scratch.rot;
+				toClamp.set(inPoint, pathPoint);				
 				toClamp.rotation.clampToQuadranceAngle(cosHalfReturnfullness);
 				toSet.rotateBy(toClamp);
 			}
 			if(axiallyConstrained) {
-				double angleToTwistMid = angleToTwistCenter(toSet, limitingAxes);
+				double angleToTwistMid = angleToTwistCenter(toSet, limitingAxes, scratch);
 				double clampedAngle = MathUtils.clamp(angleToTwistMid, -angleReturnfullness, angleReturnfullness);
 				toSet.rotateAboutY(clampedAngle, false);
 			}
+			PerfTimer.end(returnfulnessZone);
 		}
 	}
 	
@@ -208,12 +368,9 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	public void setPainfullness(double amt) {
 		painfullness = amt;
 		if(attachedTo() != null && attachedTo().parentArmature != null) {
-			SegmentedArmature s =  attachedTo().parentArmature.boneSegmentMap.get(this.attachedTo());
-			if(s != null ) {
-				WorkingBone wb = s.simulatedBones.get(this.attachedTo());
-				if(wb != null) {
-					wb.updateCosDampening();
-				}
+			WorkingBone wb = attachedTo().parentArmature.getWorkingBoneFor(this.attachedTo());
+			if(wb != null) {
+				wb.updateCosDampening();
 			}
 		}
 	}
@@ -245,17 +402,31 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @param toSet
 	 */
 	public void setAxesToOrientationSnap(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen) {
-		double[] inBounds = {1d}; 
+		setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen, scratch);
+	}
+
+	/**
+	 * Same as setAxesToOrientationSnap, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToOrientationSnap(AbstractAxes toSet, AbstractAxes limitingAxes, double cosHalfAngleDampen, ConstraintScratch scratch) {
+		double[] inBounds = scratch.inBounds;
+		inBounds[0] = 1d;
+		sgRayd boneRay = scratch.boneRay;
+		sgRayd constrainedRay = scratch.constrainedRay;
 		//boneRay.p1().set(toSet.origin_()); boneRay.p2().set(toSet.y_().p2());    
 		//Vec3d<?> inLimits = this.pointInLimits(boneRay.p2(), inBounds, limitingAxes);
 		limitingAxes.updateGlobal();
-		boneRay.p1().set(limitingAxes.origin_()); boneRay.p2().set(toSet.y_().p2());
-		Vec3d<?> bonetip = limitingAxes.getLocalOf(toSet.y_().p2());
-		Vec3d<?> inLimits = this.pointInLimits(bonetip, inBounds);
+		boneRay.p1().set(limitingAxes.getGlobalMBasis().getOrigin()); boneRay.p2().set(toSet.y_().p2());
+		limitingAxes.setToLocalOf(toSet.y_().p2(), scratch.boneTip);
+		Vec3d<?> inLimits = this.setToPointInLimits(scratch.boneTip, inBounds, scratch.inLimits, scratch);
 		
 		if (inBounds[0] == -1 && inLimits != null) {     
-			constrainedRay.p1().set(boneRay.p1()); constrainedRay.p2().set(limitingAxes.getGlobalOf(inLimits)); 
-			Rot rectifiedRot = new Rot(boneRay.heading(), constrainedRay.heading());
+			constrainedRay.p1().set(boneRay.p1()); limitingAxes.setToGlobalOf(inLimits, constrainedRay.p2()); 
+			scratch.fromHeading.set(boneRay.p2()).sub(boneRay.p1());
+			scratch.toHeading.set(constrainedRay.p2()).sub(constrainedRay.p1());
+			Rot rectifiedRot = scratch.rot;
+			rectifiedRot.set(scratch.fromHeading, scratch.toHeading);
 			
 			//rectifiedRot.rotation.clampToQuadranceAngle(cosHalfAngleDampen);
 			toSet.rotateBy(rectifiedRot);
@@ -303,12 +474,20 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @return radians of twist required to snap bone into twist limits (0 if bone is already in twist limits)
 	 */
 	public double snapToTwistLimits(AbstractAxes toSet, AbstractAxes limitingAxes) {
+		return snapToTwistLimits(toSet, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as snapToTwistLimits, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public double snapToTwistLimits(AbstractAxes toSet, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		if(!axiallyConstrained) return 0d;
 
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3d(0,1,0));
-		double angleDelta2 = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1d; 
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation, alignRot);
+		double angleDelta2 = alignRot.getYTwistAngle()*-1d; 
 		angleDelta2 = toTau(angleDelta2);
 		double fromMinToAngleDelta = toTau(signedAngleDifference(angleDelta2, TAU - this.minAxialAngle())); 
 
@@ -334,12 +513,19 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	
 	
 	public double angleToTwistCenter(AbstractAxes toSet, AbstractAxes limitingAxes) {
+		return angleToTwistCenter(toSet, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as angleToTwistCenter, but thread-safe so long as each thread passes its own scratch.
+	 */
+	public double angleToTwistCenter(AbstractAxes toSet, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		if(!axiallyConstrained) return 0d;
 
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3d(0,1,0));
-		double angleDelta2 = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1d; 
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation, alignRot);
+		double angleDelta2 = alignRot.getYTwistAngle()*-1d; 
 		angleDelta2 = toTau(angleDelta2);
 		              
 		double distToMid =  signedAngleDifference(angleDelta2, TAU-(this.minAxialAngle()+(range/2d)));
@@ -348,12 +534,20 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	}
 
 	public boolean inTwistLimits(AbstractAxes boneAxes, AbstractAxes limitingAxes) {
+		return inTwistLimits(boneAxes, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as inTwistLimits, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own limitingAxes).
+	 */
+	public boolean inTwistLimits(AbstractAxes boneAxes, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		limitingAxes.updateGlobal();
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(boneAxes.globalMBasis.rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3d(0,1,0));
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(boneAxes.globalMBasis.rotation, alignRot);
 
-		double angleDelta = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1;
+		double angleDelta = alignRot.getYTwistAngle()*-1;
 		//uncomment the next line for reflectable axis  support (removed for performance reasons) 
 		angleDelta*= limitingAxes.getGlobalChirality()*(limitingAxes.isGlobalAxisFlipped(AbstractAxes.Y) ? -1 : 1);;
 
@@ -395,49 +589,77 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @return the original point, if it's in limits, or the closest point which is in limits.
 	 */
 	public <V extends Vec3d<?>> Vec3d<?> pointInLimits(V inPoint, double[] inBounds) {
+		Vec3d<?> result = setToPointInLimits(inPoint, inBounds, inPoint.copy());
+		return inBounds[0] == -1 ? result : inPoint;
+	}
+	
+	/**
+	 * Same as pointInLimits, but writes its result into storeIn instead of allocating. 
+	 * @param inPoint the point to test.
+	 * @param inBounds see pointInLimits
+	 * @param storeIn will be set to inPoint if inPoint is within the limits, or to the closest point which is in limits otherwise. 
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3d<?>> Vec3d<?> setToPointInLimits(V inPoint, double[] inBounds, Vec3d<?> storeIn) {
+		return setToPointInLimits(inPoint, inBounds, storeIn, scratch);
+	}
+
+	/**
+	 * Same as setToPointInLimits, but thread-safe so long as each thread passes its own scratch. 
+	 * storeIn may be any of the scratch's vectors other than point, collisionPoint or closestPoint.
+	 */
+	public <V extends Vec3d<?>> Vec3d<?> setToPointInLimits(V inPoint, double[] inBounds, Vec3d<?> storeIn, ConstraintScratch scratch) {
 
-		Vec3d<?> point = inPoint.copy(); 
+		Vec3d<?> point = scratch.point.set(inPoint); 
 		point.normalize(); 		
 		//point.mult(attachedTo.boneHeight);
 
 		inBounds[0] = -1;
 
-		Vec3d<?> closestCollisionPoint = null; 
+		boolean collided = false; 
 		double closestCos = -2d;
-		if (limitCones.size() > 1 && this.orientationallyConstrained) {
+		byte[] table = boundsTable;
+		if (limitCones.size() > 1 && this.orientationallyConstrained 
+				&& table != null && table[boundsTableCell(point, boundsTableResolution)] == CELL_INSIDE) {
+			inBounds[0] = 1;
+			storeIn.set(inPoint);
+		} else if (limitCones.size() > 1 && this.orientationallyConstrained) {
 			for (int i =0; i<limitCones.size() -1; i++) {
-				Vec3d<?> collisionPoint = inPoint.copy(); collisionPoint.set(0,0,0);
+				Vec3d<?> collisionPoint = scratch.collisionPoint; collisionPoint.set(0,0,0);
 				AbstractLimitCone nextCone = limitCones.get(i+1);				
-				boolean inSegBounds = limitCones.get(i).inBoundsFromThisToNext(nextCone, point, collisionPoint);				
+				boolean inSegBounds = limitCones.get(i).inBoundsFromThisToNext(nextCone, point, collisionPoint, scratch);				
 				if( inSegBounds == true) {
 					inBounds[0] = 1;  
 				} else {
 					double thisCos =  collisionPoint.dot(point); 
-					if(closestCollisionPoint == null || thisCos > closestCos) {
-						closestCollisionPoint = collisionPoint.copy();
+					if(!collided || thisCos > closestCos) {
+						scratch.closestPoint.set(collisionPoint);
+						collided = true;
 						closestCos = thisCos;
 					}
 				} 
 			}   
 			if (inBounds[0] == -1) { 
-				return closestCollisionPoint;
+				storeIn.set(scratch.closestPoint);
 			} else { 
-				return inPoint;
+				storeIn.set(inPoint);
 			}
 		} else if(orientationallyConstrained) {
 			if(point.dot(limitCones.get(0).getControlPoint()) > limitCones.get(0).getRadiusCosine()) {
 				inBounds[0] = 1;
-				return inPoint;
+				storeIn.set(inPoint);
 			} else {
-				Vec3d<?> axis = limitCones.get(0).getControlPoint().crossCopy(point);
+				Vec3d<?> axis = scratch.collisionPoint.set(limitCones.get(0).getControlPoint()).crs(point);
 				//Rot toLimit = new Rot(limitCones.get(0).getControlPoint(), point);
-				Rot toLimit = new Rot(axis, limitCones.get(0).getRadius());
-				return toLimit.applyToCopy(limitCones.get(0).getControlPoint());
+				Rot toLimit = scratch.rot; 
+				toLimit.set(axis, limitCones.get(0).getRadius());
+				toLimit.applyTo(limitCones.get(0).getControlPoint(), storeIn);
 			}
 		} else {
 			inBounds[0] = 1;
-			return inPoint;
+			storeIn.set(inPoint);
 		}
+		return storeIn;
 	}
 	
 	
@@ -464,6 +686,36 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 		return limitingAxes.getGlobalOf(result); 
 	}
 
+	/**
+	 * Same as pointOnPathSequence, but thread-safe so long as each thread passes its own scratch. 
+	 * storeIn may be any of the scratch's vectors other than point, collisionPoint or closestPoint.
+	 */
+	public Vec3d<?> setToPointOnPathSequence(Vec3d<?> inPoint, AbstractAxes limitingAxes, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		double closestPointDot = 0d; 
+		Vec3d<?> point = scratch.point;
+		limitingAxes.setToLocalOf(inPoint, point);
+		point.normalize();
+		Vec3d<?> result = scratch.closestPoint.set(point);
+				
+		if(limitCones.size() == 1) {
+			result.set(limitCones.get(0).controlPoint);
+		} else {
+			Vec3d<?> closestPathPoint = scratch.collisionPoint;
+			for (int i =0; i<limitCones.size() -1; i++) {
+				AbstractLimitCone nextCone = limitCones.get(i+1);
+				limitCones.get(i).setToClosestPathPoint(nextCone, point, closestPathPoint, scratch);
+				double closeDot = closestPathPoint.dot(point);
+				if(closeDot > closestPointDot) {
+					result.set(closestPathPoint);
+					closestPointDot = closeDot;
+				}
+			}
+		}		
+		
+		limitingAxes.setToGlobalOf(result, storeIn);
+		return storeIn;
+	}
+
 	//public double softLimit
 
 	public AbstractBone attachedTo() {
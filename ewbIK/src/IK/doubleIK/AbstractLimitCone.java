@@ -89,29 +89,48 @@ public abstract class AbstractLimitCone implements Saveable {
 	 * @return
 	 */
 	public boolean inBoundsFromThisToNext(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> collisionPoint) {
-		boolean isInBounds = false;//determineIfInBounds(next, input);
-		//if(!isInBounds) {
-		Vec3d<?> closestCollision = getClosestCollision(next, input);
-		if(closestCollision == null) {
-			/**
-			 * getClosestCollision returns null if the point is already in bounds,
-			 * so we set isInBounds to true.  
-			 */
-			isInBounds = true;
-			collisionPoint.x = input.x; 
-			collisionPoint.y = input.y; 
-			collisionPoint.z = input.z;			
-		} else {
-			collisionPoint.x = closestCollision.x; 
-			collisionPoint.y = closestCollision.y; 
-			collisionPoint.z = closestCollision.z;
+		return inBoundsFromThisToNext(next, input, collisionPoint, parentKusudama.scratch);
+	}
+
+	/**
+	 * same as inBoundsFromThisToNext, but safe to call from multiple threads at once so long as 
+	 * each passes its own scratch.
+	 */
+	public boolean inBoundsFromThisToNext(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> collisionPoint, ConstraintScratch scratch) {
+		/**
+		 * setToClosestCollision returns false if the point is already in bounds
+		 * (in which case collisionPoint is just set to the input). This is the same
+		 * logic as getClosestCollision, but without allocating on every call.
+		 */
+		return !setToClosestCollision(next, input, collisionPoint, scratch);
+	}
+	
+	/**
+	 * allocation-free equivalent of getClosestCollision. 
+	 * @param next
+	 * @param input
+	 * @param storeIn will be set to the input if it's already in bounds, or to the input's rectified position otherwise
+	 * @param scratch working storage. Only its cone variables are used, so the caller may use the rest freely. 
+	 * @return false if the input is already in bounds (getClosestCollision would return null), true otherwise.
+	 */
+	public boolean setToClosestCollision(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		if(setToOnGreatTangentTriangle(next, input, storeIn, scratch)) {
+			return true; 
+		} 
+		if(!this.setToClosestToCone(input, storeIn, scratch)) {
+			storeIn.set(input);
+			return false;
+		}
+		double cosToFirst = input.dot(storeIn);
+		if(!next.setToClosestToCone(input, scratch.coneVector, scratch)) {
+			storeIn.set(input);
+			return false;
 		}
-		/*} else {
-			collisionPoint.x = input.x; 
-			collisionPoint.y = input.y; 
-			collisionPoint.z = input.z;
-		}*/
-		return isInBounds;
+		double cosToSecond = input.dot(scratch.coneVector);
+		if(!(cosToFirst > cosToSecond)) {
+			storeIn.set(scratch.coneVector);
+		}
+		return true;
 	}
 
 	/**
@@ -137,6 +156,20 @@ public abstract class AbstractLimitCone implements Saveable {
 		}
 		return result;
 	}
+
+	/**
+	 * allocation-free equivalent of getClosestPathPoint. 
+	 * @param storeIn set to the point getClosestPathPoint would have returned
+	 * @param scratch working storage. Only its cone variables are used, so the caller may use the rest freely. 
+	 */
+	public void setToClosestPathPoint(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		if(!setToOnPathSequence(next, input, storeIn, scratch)) {
+			if(input.dot(controlPoint) > input.dot(next.controlPoint)) 
+				storeIn.set(controlPoint);
+			else 
+				storeIn.set(next.controlPoint);
+		}
+	}
 	
 	
 	
@@ -237,6 +270,46 @@ public abstract class AbstractLimitCone implements Saveable {
 	}
 	
 	
+	/**
+	 * allocation-free equivalent of getOnPathSequence. 
+	 * @return false if getOnPathSequence would have returned null. Otherwise, 
+	 * sets storeIn to the value getOnPathSequence would have returned, and returns true. 
+	 */
+	boolean setToOnPathSequence(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		SGVec_3d workingCross = scratch.coneCross;
+		Vec3d<?> tangentCenter;
+		double c1c2dir = input.dot(workingCross.set(controlPoint).crs(next.controlPoint));
+		if(c1c2dir < 0.0) { 
+			if(input.dot(workingCross.set(controlPoint).crs(tangentCircleCenterNext1)) > 0 
+					&& input.dot(workingCross.set(tangentCircleCenterNext1).crs(next.controlPoint)) > 0) {
+				tangentCenter = tangentCircleCenterNext1;
+			} else {
+				return false;
+			}
+		} else {
+			if(input.dot(workingCross.set(tangentCircleCenterNext2).crs(controlPoint)) > 0 
+					&& input.dot(workingCross.set(next.controlPoint).crs(tangentCircleCenterNext2)) > 0) {
+				tangentCenter = tangentCircleCenterNext2;
+			} else {
+				return false;
+			}
+		}
+		//where the ray from the tangent center through the input meets the plane through the origin and both control points.
+		//this is sgRayd.intersectsPlane's arithmetic step for step, so the result matches getOnPathSequence's exactly.
+		SGVec_3d originFromCenter = workingCross.set(0d, 0d, 0d).sub(tangentCenter);
+		SGVec_3d normal = scratch.pathU.set(controlPoint).sub(tangentCenter).sub(originFromCenter);
+		SGVec_3d edge = scratch.pathV.set(next.controlPoint).sub(tangentCenter).sub(originFromCenter);
+		normal.crs(edge);
+		SGVec_3d centerFromOrigin = edge.set(0d, 0d, 0d).sub(originFromCenter);
+		SGVec_3d heading = scratch.coneVector.set(input).sub(tangentCenter);
+		double r = -(normal.dot(centerFromOrigin)) / normal.dot(heading);
+		storeIn.set(heading);
+		storeIn.mult(r);
+		storeIn.add(tangentCenter);
+		storeIn.normalize();
+		return true;
+	}
+	
 	public <V extends Vec3d<?>> Vec3d<?> getOnGreatTangentTriangle(AbstractLimitCone next, V input) {
 		Vec3d c1xc2 = controlPoint.crossCopy(next.controlPoint);		
 		double c1c2dir = input.dot(c1xc2);
@@ -273,6 +346,46 @@ public abstract class AbstractLimitCone implements Saveable {
 
 	}
 
+	/**
+	 * allocation-free equivalent of getOnGreatTangentTriangle. 
+	 * @return false if getOnGreatTangentTriangle would have returned null. Otherwise, 
+	 * sets storeIn to the value getOnGreatTangentTriangle would have returned, and returns true. 
+	 */
+	boolean setToOnGreatTangentTriangle(AbstractLimitCone next, Vec3d<?> input, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		SGVec_3d workingCross = scratch.coneCross;
+		Rot workingRot = scratch.coneRot;
+		double c1c2dir = input.dot(workingCross.set(controlPoint).crs(next.controlPoint));
+		if(c1c2dir < 0.0) { 
+			if(input.dot(workingCross.set(controlPoint).crs(tangentCircleCenterNext1)) > 0 
+					&& input.dot(workingCross.set(tangentCircleCenterNext1).crs(next.controlPoint)) > 0) {
+				if(input.dot(tangentCircleCenterNext1) > tangentCircleRadiusNextCos) {
+					workingCross.set(tangentCircleCenterNext1).crs(input); 
+					workingRot.set(workingCross, tangentCircleRadiusNext);
+					workingRot.applyTo(tangentCircleCenterNext1, storeIn);
+				}  else {
+					storeIn.set(input);
+				}
+				return true;
+			} else {
+				return false;
+			}			
+		} else {
+			if(input.dot(workingCross.set(tangentCircleCenterNext2).crs(controlPoint)) > 0 
+					&& input.dot(workingCross.set(next.controlPoint).crs(tangentCircleCenterNext2)) > 0) {
+				if(input.dot(tangentCircleCenterNext2) > tangentCircleRadiusNextCos) {
+					workingCross.set(tangentCircleCenterNext2).crs(input); 
+					workingRot.set(workingCross, tangentCircleRadiusNext);
+					workingRot.applyTo(tangentCircleCenterNext2, storeIn);
+				} else {
+					storeIn.set(input);
+				} 
+				return true;
+			} else {
+				return false;
+			}
+		}	
+	}
+
 	/**
 	 * returns null if no rectification is required.
 	 * @param next
@@ -325,6 +438,24 @@ public abstract class AbstractLimitCone implements Saveable {
 	}
 
 
+	/**
+	 * allocation-free equivalent of closestToCone. 
+	 * @param input
+	 * @param storeIn set to the closest point on this cone's boundary if the input is outside of this cone, left untouched otherwise
+	 * @return false if no rectification is required (closestToCone would return null), true otherwise
+	 */
+	boolean setToClosestToCone(Vec3d<?> input, Vec3d<?> storeIn, ConstraintScratch scratch) {
+		if(input.dot(this.getControlPoint()) > this.getRadiusCosine()) {
+			return false;
+		} else {
+			scratch.coneCross.set(this.getControlPoint()).crs(input);
+			scratch.coneRot.set(scratch.coneCross, this.getRadius());
+			scratch.coneRot.applyTo(this.getControlPoint(), storeIn);
+			return true;
+		}
+	}
+
+
 	public void updateTangentHandles(AbstractLimitCone next) {    
 		this.controlPoint.normalize();
 		if(next !=null) {
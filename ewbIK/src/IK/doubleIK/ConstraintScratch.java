@@ -0,0 +1,38 @@
+package IK.doubleIK;
+
+import math.doubleV.Rot;
+import math.doubleV.SGVec_3d;
+import math.doubleV.sgRayd;
+
+/**
+ * Working storage for evaluating kusudamas and their limit cones.
+ *
+ * Constraint methods which accept a ConstraintScratch write only to it (and to the axes they are asked to modify),
+ * never to the constraint itself. So a single kusudama definition can be evaluated by any number of threads at once,
+ * so long as each thread passes its own ConstraintScratch. The solver keeps one per SegmentedArmature.
+ *
+ * The overloads which don't accept a ConstraintScratch use one owned by the kusudama, and so
+ * should only be called by one thread at a time.
+ */
+public class ConstraintScratch {
+	//used by AbstractKusudama
+	double[] inBounds = {1d};
+	SGVec_3d boneTip = new SGVec_3d();
+	SGVec_3d inLimits = new SGVec_3d();
+	SGVec_3d point = new SGVec_3d();
+	SGVec_3d collisionPoint = new SGVec_3d();
+	SGVec_3d closestPoint = new SGVec_3d();
+	SGVec_3d fromHeading = new SGVec_3d();
+	SGVec_3d toHeading = new SGVec_3d();
+	sgRayd boneRay = new sgRayd(new SGVec_3d(), new SGVec_3d());
+	sgRayd constrainedRay = new sgRayd(new SGVec_3d(), new SGVec_3d());
+	Rot rot = new Rot();
+	Rot alignRot = new Rot();
+
+	//used by AbstractLimitCone
+	SGVec_3d coneCross = new SGVec_3d();
+	SGVec_3d coneVector = new SGVec_3d();
+	SGVec_3d pathU = new SGVec_3d();
+	SGVec_3d pathV = new SGVec_3d();
+	Rot coneRot = new Rot();
+}
@@ -20,10 +20,13 @@ package IK.doubleIK;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.WeakHashMap;
 
 import IK.PerfTimer;
 import math.doubleV.AbstractAxes;
+import math.doubleV.AbstractBasis;
+import math.doubleV.MRotation;
 import math.doubleV.MathUtils;
 import math.doubleV.QCP;
 import math.doubleV.Rot;
@@ -48,17 +51,30 @@ public class SegmentedArmature {
 	public ArrayList<SegmentedArmature> pinnedDescendants = new ArrayList<SegmentedArmature>();
 	WorkingBone[] pinnedBones;	
 
-	HashMap<AbstractBone, WorkingBone> simulatedBones = new HashMap<>();
+	/**working state for each bone in this segment, in the same order as segmentBoneList*/
+	ArrayList<WorkingBone> simulatedBones = new ArrayList<>();
 	ArrayList<AbstractBone> segmentBoneList = new ArrayList<AbstractBone>();
+	final AbstractArmature armature;
 
 	private SegmentedArmature parentSegment = null;
 	private boolean basePinned = false; 
 	private boolean tipPinned = false;
 	private boolean processed  = false; 
 	public int distanceToRoot = 0;
+	/**the position of this segment in a preorder traversal of the segment tree, and that of its last descendant, 
+	 * so that whether one segment descends from another can be determined without searching*/
+	private int preorderIndex = 0, lastDescendantIndex = 0;
 
 	public int chainLength = 0;
+	/**number of bones in this segment and all of its descendant segments*/
+	int subtreeBoneCount = 0;
 	boolean includeInIK = true;
+	/**true if none of the pins on this segment or its descendants have moved since they were last solved for*/
+	boolean pinsSettled = false;
+	/**true if this segment was solved (rather than skipped) at least once during the current solve*/
+	boolean solvedThisSolve = false;
+	/**the pose of the axes this segment's root hangs from the last time this segment was solved*/
+	private SolvedPose solvedReferencePose = new SolvedPose();
 	int pinDepth = 1; 
 
 
@@ -66,18 +82,71 @@ public class SegmentedArmature {
 	public AbstractAxes debugTipAxes;
 	public AbstractAxes debugTargetAxes;
 
-	SGVec_3d[] localizedTargetHeadings; 
-	SGVec_3d [] localizedTipHeadings;
+	/**
+	 * the target and tip headings relative to the bone currently being solved for, 
+	 * packed as interleaved x, y, z values (3 per heading) for QCP. 
+	 */
+	double[] localizedTargetHeadings; 
+	double[] localizedTipHeadings;
 	double[] weights;
+	/**
+	 * the global position (x, y, z) of each target heading, before being localized to any particular bone. 
+	 * Filled by updateGlobalTargetHeadings once per pass over this segment, as targets don't move during a solve. 
+	 * For the x, y, and z headings, this is the target's origin, and the scaled direction is kept apart in globalTargetOffsets 
+	 * and only added once the origin has been localized, as (origin - bone) + direction rounds differently 
+	 * from (origin + direction) - bone, and the former is how the headings have always been localized. 
+	 */
+	double[] globalTargetHeadings;
+	double[] globalTargetOffsets;
+	/**
+	 * the simulation axes of every bone between this segment's root and the pinned bones it solves for, 
+	 * with every parent appearing before its children.
+	 */
+	private AbstractAxes[] tipPathAxes = new AbstractAxes[0];
+	
+	/**
+	 * scratch objects reused by updateOptimalRotationToPinnedDescendants, 
+	 * so that solving doesn't allocate once the segment has been created.
+	 */
+	private QCP qcpConvergenceCheck = new QCP(MathUtils.DOUBLE_ROUNDING_ERROR, MathUtils.DOUBLE_ROUNDING_ERROR);
+	private Rot bestOrientation = new Rot();
+	private Rot qcpRot = new Rot();
+	private Rot passStartInverse = new Rot();
+	private Rot passRotation = new Rot();
+	private SGVec_3d translateBy = new SGVec_3d();
+	private SGVec_3d tipScratch = new SGVec_3d();
+	private SGVec_3d targetScratch = new SGVec_3d();
+	private SGVec_3d jointScratch = new SGVec_3d();
+	private SGVec_3d bendScratch = new SGVec_3d();
+	private SGVec_3d planeScratch = new SGVec_3d();
+	private SGVec_3d swivelScratch = new SGVec_3d();
+	private SGVec_3d headingScratch = new SGVec_3d();
+	private SGVec_3d limitedScratch = new SGVec_3d();
+	private Rot limitRot = new Rot();
+	private double[] inBounds = new double[1];
+	/**how many planes (evenly spaced around the upper bone) solveTwoBoneChain will try bending the lower bone in*/
+	private static final int TWO_BONE_BEND_PLANES = 16;
+	/**how many times solveTwoBoneChain swivels the upper bone toward its limits before letting snapping take care of the rest*/
+	private static final int TWO_BONE_SWIVEL_STEPS = 4;
+	/**
+	 * the rootmost and middle bones of this segment if it is a two bone chain leading to a single position pin 
+	 * on its tip (see solveTwoBoneChain), or null otherwise. Determined whenever the heading arrays are rebuilt.
+	 */
+	private WorkingBone twoBoneUpper, twoBoneLower;
+	private ConstraintScratch constraintScratch = new ConstraintScratch();
 
 	public SegmentedArmature(AbstractBone rootBone) {
 		segmentRoot = armatureRootBone(rootBone);
+		armature = segmentRoot.parentArmature;
+		armature.clearBoneIndices();
 		generateArmatureSegments();
+		reindexSegmentTree();
 		ensureAxesHeirarchy();
 	}
 
 	public SegmentedArmature(SegmentedArmature inputParentSegment, AbstractBone inputSegmentRoot) {
 		this.segmentRoot = inputSegmentRoot;
+		this.armature = inputParentSegment.armature;
 		this.setParentSegment(inputParentSegment);
 		this.distanceToRoot = this.getParentSegment().distanceToRoot+1;
 		generateArmatureSegments();  
@@ -117,6 +186,11 @@ public class SegmentedArmature {
 		}
 		updatePinnedDescendants();	    
 		generateSegmentMaps(); 
+		solvedReferencePose.invalidate();
+		subtreeBoneCount = segmentBoneList.size();
+		for(SegmentedArmature c : childSegments) {
+			subtreeBoneCount += c.subtreeBoneCount;
+		}
 	}
 
 
@@ -142,74 +216,128 @@ public class SegmentedArmature {
 	}
 
 
+	/**
+	 * (re)builds pinnedBones, weights, and the heading arrays for the pins this segment is solving for. 
+	 * The existing arrays are refilled in place if the number of pins and headings hasn't changed 
+	 * (as when only a pin's weight, priorities, or falloff have been modified). 
+	 */
 	void createHeadingArrays( ) {
-		ArrayList<ArrayList<Double>> penaltyArray = new ArrayList<ArrayList<Double>>();
-		ArrayList<WorkingBone> pinSequence = new ArrayList<>();		
-		recursivelyCreatePenaltyArray(this, penaltyArray, pinSequence, 1d);
-		pinnedBones = new WorkingBone[pinSequence.size()];	
-		int totalHeadings = 0;
-		for(ArrayList<Double> a : penaltyArray) {			
-			totalHeadings += a.size();
-		}
-		for(int i =0; i< pinSequence.size(); i++) {
-			pinnedBones[i] = pinSequence.get(i);
-		}
-		localizedTargetHeadings = new SGVec_3d[totalHeadings]; 
-		localizedTipHeadings = new SGVec_3d[totalHeadings]; 
-		weights = new double[totalHeadings];
-		int currentHeading = 0;
-		for(ArrayList<Double> a : penaltyArray) {
-			for(Double ad : a) {
-				weights[currentHeading] = ad;
-				localizedTargetHeadings[currentHeading] = new SGVec_3d();
-				localizedTipHeadings[currentHeading] = new SGVec_3d();
-				currentHeading++;
+		int[] counts = new int[2];
+		recursivelyCountPenalties(this, counts, 1d);
+		int pinCount = counts[0], totalHeadings = counts[1];
+		if(pinnedBones == null || pinnedBones.length != pinCount) {
+			pinnedBones = new WorkingBone[pinCount];
+		}
+		if(weights == null || weights.length != totalHeadings) {
+			weights = new double[totalHeadings];
+			globalTargetHeadings = new double[totalHeadings*3];
+			globalTargetOffsets = new double[totalHeadings*3];
+			localizedTargetHeadings = new double[totalHeadings*3]; 
+			localizedTipHeadings = new double[totalHeadings*3]; 
+		}
+		counts[0] = 0; counts[1] = 0;
+		recursivelyCreatePenaltyArray(this, counts, 1d);
+		createTipPathAxes();
+		
+		AbstractBone lower = segmentTip.getParent();
+		if(weights.length == 1 && pinnedBones[0].forBone == segmentTip 
+				&& segmentRoot.getParent() != null && lower != null && lower.getParent() == segmentRoot) {
+			twoBoneUpper = getWorkingBone(segmentRoot);
+			twoBoneLower = getWorkingBone(lower);
+		} else {
+			twoBoneUpper = null;
+			twoBoneLower = null;
+		}
+	}
+
+	/**
+	 * collects the simulation axes of the bones on the paths from this segment's root 
+	 * to each of its pinnedBones into tipPathAxes, rootmost first.
+	 */
+	private void createTipPathAxes() {
+		HashSet<AbstractBone> onPath = new HashSet<>();
+		for(WorkingBone wb : pinnedBones) {
+			AbstractBone b = wb.forBone;
+			while(b != null && onPath.add(b) && b != segmentRoot) {
+				b = b.getParent();
 			}
-		}	
+		}
+		ArrayList<AbstractBone> order = new ArrayList<>();
+		if(onPath.contains(segmentRoot)) 
+			order.add(segmentRoot);
+		for(int i = 0; i < order.size(); i++) {
+			for(AbstractBone c : order.get(i).getChildren()) {
+				if(onPath.contains(c)) order.add(c);
+			}
+		}
+		if(tipPathAxes.length != order.size()) 
+			tipPathAxes = new AbstractAxes[order.size()];
+		for(int i = 0; i < tipPathAxes.length; i++) {
+			tipPathAxes[i] = armature.getWorkingBoneFor(order.get(i)).simLocalAxes;
+		}
+	}
+
+	/**
+	 * brings the global transforms of every pinned bone this segment solves for up to date in a single 
+	 * rootward to tipward sweep, recomputing only those which are dirty. As each axes' parent has 
+	 * already been brought up to date by the time it's reached, no axes is ever visited more than once, 
+	 * where updating each pinned bone individually would re-walk their shared ancestors.
+	 */
+	void updateTipPathGlobals() {
+		for(AbstractAxes a : tipPathAxes) {
+			a.updateGlobal();
+		}
+	}
+
+	/**
+	 * counts the pins (into counts[0]) and the headings (into counts[1]) recursivelyCreatePenaltyArray would produce.
+	 */
+	private static void recursivelyCountPenalties(SegmentedArmature from, int[] counts, double currentFalloff) {
+		if(currentFalloff == 0) 
+			return;
+		AbstractIKPin pin = from.segmentTip.getIKPin(); 
+		if(pin != null) {
+			counts[0]++;
+			counts[1] += 1 + 2*Integer.bitCount(pin.getModeCode() & (AbstractIKPin.XDir | AbstractIKPin.YDir | AbstractIKPin.ZDir));
+		}
+		double thisFalloff = pin == null ? 1d : pin.getDepthFalloff();
+		for(SegmentedArmature s : from.childSegments) { 				
+			recursivelyCountPenalties(s, counts, currentFalloff*thisFalloff);
+		}
 	}
 
-	void recursivelyCreatePenaltyArray(SegmentedArmature from, ArrayList<ArrayList<Double>> weightArray, ArrayList<WorkingBone> pinSequence, double currentFalloff) {
+	/**
+	 * writes the weight of each heading and the bone of each pin this segment solves for into weights and pinnedBones, 
+	 * starting from the pin at counts[0] and the heading at counts[1]. 
+	 */
+	void recursivelyCreatePenaltyArray(SegmentedArmature from, int[] counts, double currentFalloff) {
 		if(currentFalloff == 0) {
 			return;
 		} else {
 			AbstractIKPin pin = from.segmentTip.getIKPin(); 
 			if(pin != null) {
-				ArrayList<Double> innerWeightArray = new ArrayList<Double>();
-				weightArray.add(innerWeightArray);
 				byte modeCode = pin.getModeCode();
-				innerWeightArray.add(pin.getPinWeight()*currentFalloff);
-				double maxPinWeight = 0d;
-				if((modeCode & AbstractIKPin.XDir) != 0)
-					maxPinWeight = MathUtils.max(maxPinWeight, pin.getXPriority());					
-				if((modeCode & AbstractIKPin.YDir) != 0) 
-					maxPinWeight = MathUtils.max(maxPinWeight, pin.getYPriority());				
-				if((modeCode & AbstractIKPin.ZDir) != 0)
-					maxPinWeight = MathUtils.max(maxPinWeight, pin.getZPriority());
-
-				if(maxPinWeight == 0d) maxPinWeight = 1d;
-
-				maxPinWeight = 1d;
-
+				weights[counts[1]++] = pin.getPinWeight()*currentFalloff;
 				if((modeCode & AbstractIKPin.XDir) != 0) {
-					double subTargetWeight = pin.getPinWeight() * (pin.getXPriority()/maxPinWeight)*currentFalloff;
-					innerWeightArray.add(subTargetWeight);
-					innerWeightArray.add(subTargetWeight);
+					double subTargetWeight = pin.getPinWeight() * pin.getXPriority()*currentFalloff;
+					weights[counts[1]++] = subTargetWeight;
+					weights[counts[1]++] = subTargetWeight;
 				}
 				if((modeCode & AbstractIKPin.YDir) != 0) {
-					double subTargetWeight = pin.getPinWeight() * (pin.getYPriority()/maxPinWeight)*currentFalloff;
-					innerWeightArray.add(subTargetWeight);
-					innerWeightArray.add(subTargetWeight);
+					double subTargetWeight = pin.getPinWeight() * pin.getYPriority()*currentFalloff;
+					weights[counts[1]++] = subTargetWeight;
+					weights[counts[1]++] = subTargetWeight;
 				}
 				if((modeCode & AbstractIKPin.ZDir) != 0) {
-					double subTargetWeight = pin.getPinWeight() * (pin.getZPriority()/maxPinWeight)*currentFalloff;
-					innerWeightArray.add(subTargetWeight);
-					innerWeightArray.add(subTargetWeight);
+					double subTargetWeight = pin.getPinWeight() * pin.getZPriority()*currentFalloff;
+					weights[counts[1]++] = subTargetWeight;
+					weights[counts[1]++] = subTargetWeight;
 				}
-				pinSequence.add(pin.forBone().parentArmature.boneSegmentMap.get(pin.forBone()).simulatedBones.get(pin.forBone())); 
+				pinnedBones[counts[0]++] = pin.forBone().parentArmature.getWorkingBoneFor(pin.forBone()); 
 			}
 			double thisFalloff = pin == null ? 1d : pin.getDepthFalloff();
 			for(SegmentedArmature s : from.childSegments) { 				
-				recursivelyCreatePenaltyArray(s, weightArray, pinSequence, currentFalloff*thisFalloff);
+				recursivelyCreatePenaltyArray(s, counts, currentFalloff*thisFalloff);
 			}
 
 		}
@@ -231,7 +359,7 @@ public class SegmentedArmature {
 	private void recursivelyEnsureAxesHeirarchyFor(AbstractBone b, AbstractAxes parentTo) {
 		SegmentedArmature chain = getChainFor(b); 
 		if(chain != null) {
-			WorkingBone sb = chain.simulatedBones.get(b);
+			WorkingBone sb = chain.getWorkingBone(b);
 			sb.simLocalAxes.setParent(parentTo);
 			sb.simConstraintAxes.setParent(parentTo);
 			for(AbstractBone c : b.getChildren()) {
@@ -244,13 +372,64 @@ public class SegmentedArmature {
 		if(this.getParentSegment() != null) {
 			this.getParentSegment().updateSegmentedArmature();
 		} else { 
+			armature.clearBoneIndices();
 			generateArmatureSegments();
+			reindexSegmentTree();
 			ensureAxesHeirarchy();
 		}
 	}
 
+	/**
+	 * Regenerates the segments affected by a bone in or beneath this segment having been pinned or unpinned. 
+	 * Climbs rootward until it reaches a segment whose parent's structure (where the parent ends, and which child segments it has)
+	 * is unaffected by the change, then regenerates only that segment and its descendants, reusing the WorkingBones
+	 * of any bones which still belong to a segment. The segments above it only have their pinned descendants 
+	 * and bone counts refreshed. 
+	 * 
+	 * @return the rootmost segment which was regenerated
+	 */
+	SegmentedArmature regenerateAffectedSegments() {
+		SegmentedArmature target = this;
+		while(target.parentSegment != null && !target.parentSegment.isTipStructureCurrent()) {
+			target = target.parentSegment;
+		}
+		target.generateArmatureSegments();
+		for(SegmentedArmature s = target.parentSegment; s != null; s = s.parentSegment) {
+			s.updatePinnedDescendants();
+			s.subtreeBoneCount = s.segmentBoneList.size();
+			for(SegmentedArmature c : s.childSegments) {
+				s.subtreeBoneCount += c.subtreeBoneCount;
+			}
+		}
+		SegmentedArmature rootStrand = target; 
+		while(rootStrand.parentSegment != null) {
+			rootStrand = rootStrand.parentSegment;
+		}
+		rootStrand.reindexSegmentTree();
+		AbstractBone rootParent = target.segmentRoot.getParent();
+		target.recursivelyEnsureAxesHeirarchyFor(target.segmentRoot, 
+				rootParent == null ? armature.localAxes() : armature.getWorkingBoneFor(rootParent).simLocalAxes);
+		return target;
+	}
+
+	/**
+	 * @return true if regenerating this segment would have it end at the same tip with the same child segments as it currently does.
+	 */
+	private boolean isTipStructureCurrent() {
+		ArrayList<AbstractBone> childrenWithPinnedDescendants = segmentTip.returnChildrenWithPinnedDescendants();
+		if(!segmentTip.isPinned() && childrenWithPinnedDescendants.size() == 1) 
+			return false;
+		if(childrenWithPinnedDescendants.size() != childSegments.size()) 
+			return false;
+		for(SegmentedArmature c : childSegments) {
+			if(!childrenWithPinnedDescendants.contains(c.segmentRoot)) 
+				return false;
+		}
+		return true;
+	}
+
 	public void generateSegmentMaps(){
-		for(WorkingBone b: simulatedBones.values()) {
+		for(WorkingBone b: simulatedBones) {
 			b.simConstraintAxes.emancipate();
 			b.simLocalAxes.emancipate();
 		}
@@ -260,11 +439,11 @@ public class SegmentedArmature {
 		AbstractBone currentBone = segmentTip; 
 		AbstractBone stopOn = segmentRoot;
 		while(currentBone != null) {
-			WorkingBone sb = simulatedBones.get(currentBone);
-			if(sb == null) { 
-				simulatedBones.put(currentBone, new WorkingBone(currentBone));
-				segmentBoneList.add(0, currentBone);
-			}
+			//reuse the bone's previous working state if it had one (as it will when only part of the armature is being regenerated)
+			WorkingBone sb = armature.getWorkingBoneFor(currentBone);
+			if(sb == null) sb = new WorkingBone(currentBone);
+			simulatedBones.add(0, sb);
+			segmentBoneList.add(0, currentBone);
 
 			if(currentBone == stopOn) break;
 			currentBone = currentBone.getParent();
@@ -274,6 +453,13 @@ public class SegmentedArmature {
 		//strandsBoneList.addAll(boneRotationMap.keySet());
 	}
 
+	/**
+	 * @return the working state of the given bone, which should belong to this segment
+	 */
+	WorkingBone getWorkingBone(AbstractBone b) {
+		return armature.getWorkingBoneFor(b);
+	}
+
 	public ArrayList<AbstractBone> getStrandFromTip(AbstractBone pinnedBone) {
 		ArrayList<AbstractBone> result = new ArrayList<AbstractBone>();
 
@@ -311,13 +497,13 @@ public class SegmentedArmature {
 	}
 
 
-	public double getManualMSD(SGVec_3d[] locTips, SGVec_3d[] locTargets, double[] weights ) {
+	public double getManualMSD(double[] locTips, double[] locTargets, double[] weights ) {
 		double manualRMSD = 0d; 
 		double wsum = 0d;
-		for(int i=0; i<locTargets.length; i++) {
-			double xd = locTargets[i].x - locTips[i].x;
-			double yd = locTargets[i].y - locTips[i].y;
-			double zd = locTargets[i].z - locTips[i].z;			
+		for(int i=0, c=0; i<weights.length; i++, c+=3) {
+			double xd = locTargets[c] - locTips[c];
+			double yd = locTargets[c+1] - locTips[c+1];
+			double zd = locTargets[c+2] - locTips[c+2];			
 			double magsq = weights[i]* (xd*xd + yd*yd + zd*zd);
 			manualRMSD += magsq;
 			wsum += weights[i];
@@ -345,33 +531,34 @@ public class SegmentedArmature {
 			int iteration,
 			double totalIterations) {
 
-		WorkingBone sb = simulatedBones.get(forBone);
+		WorkingBone sb = getWorkingBone(forBone);
 		AbstractAxes thisBoneAxes = sb.simLocalAxes;
 		thisBoneAxes.updateGlobal();
 
-		Rot bestOrientation = new Rot(thisBoneAxes.getGlobalMBasis().rotation.rotation);
+		bestOrientation.set(thisBoneAxes.getGlobalMBasis().rotation.rotation);
 		double newDampening = -1; 
-		if(forBone.getParent() == null || localizedTargetHeadings.length == 1) 
+		if(forBone.getParent() == null || weights.length == 1) 
 			stabilizationPasses = 0;
 		if(translate == true) {
 			newDampening = Math.PI;
 		}
 
 
-		updateTargetHeadings(localizedTargetHeadings, weights, thisBoneAxes);
+		updateTargetHeadings(localizedTargetHeadings, thisBoneAxes);
 		upateTipHeadings(localizedTipHeadings, thisBoneAxes);		
 
 		double bestRMSD = 0d; 
-		QCP qcpConvergenceCheck = new QCP(MathUtils.DOUBLE_ROUNDING_ERROR, MathUtils.DOUBLE_ROUNDING_ERROR);
 		double newRMSD = 999999d;
-
+		boolean fastStabilization = stabilizationPasses > 0 && !translate && armature.isFastStabilization(); 
 		
 		
-		if(stabilizationPasses > 0)
+		if(stabilizationPasses > 0 && !fastStabilization)
 			bestRMSD = getManualMSD(localizedTipHeadings, localizedTargetHeadings, weights);
 
 
 		for(int i=0; i<stabilizationPasses + 1; i++) {
+			if(fastStabilization) 
+				setToInverse(thisBoneAxes.getGlobalMBasis().rotation, passStartInverse);
 			updateOptimalRotationToPinnedDescendants(
 					sb, newDampening, 
 					translate, 
@@ -384,8 +571,14 @@ public class SegmentedArmature {
 
 			if(stabilizationPasses > 0) {
 				//newDampening = dampening == -1 ? sb.forBone.parentArmature.dampening 
-				upateTipHeadings(localizedTipHeadings, thisBoneAxes);		
-				newRMSD = getManualMSD(localizedTipHeadings, localizedTargetHeadings, weights);
+				if(fastStabilization) {
+					if(i == 0) 
+						bestRMSD = qcpConvergenceCheck.getWeightedMSDAfterRotating(MRotation.IDENTITY);
+					newRMSD = getMSDSincePassStart(thisBoneAxes);
+				} else {
+					upateTipHeadings(localizedTipHeadings, thisBoneAxes);		
+					newRMSD = getManualMSD(localizedTipHeadings, localizedTargetHeadings, weights);
+				}
 				
 
 				if(bestRMSD >= newRMSD) {				
@@ -396,12 +589,16 @@ public class SegmentedArmature {
 							double totaliterationssq = totalIterations*totalIterations;
 							double scaledDampenedAngle = dampenedAngle*((totaliterationssq-(iteration * iteration))/totaliterationssq);
 							double cosHalfAngle = Math.cos(0.5*scaledDampenedAngle);		
-							sb.forBone.setAxesToReturnfulled(sb.simLocalAxes, sb.simConstraintAxes, cosHalfAngle, scaledDampenedAngle);
+							sb.forBone.setAxesToReturnfulled(sb.simLocalAxes, sb.simConstraintAxes, cosHalfAngle, scaledDampenedAngle, constraintScratch);
 						} else {
-							sb.forBone.setAxesToReturnfulled(sb.simLocalAxes, sb.simConstraintAxes, sb.cosHalfReturnfullnessDampened[iteration], sb.halfReturnfullnessDampened[iteration]);
+							sb.forBone.setAxesToReturnfulled(sb.simLocalAxes, sb.simConstraintAxes, sb.cosHalfReturnfullnessDampened[iteration], sb.halfReturnfullnessDampened[iteration], constraintScratch);
+						}
+						if(fastStabilization) {
+							newRMSD = getMSDSincePassStart(thisBoneAxes);
+						} else {
+							upateTipHeadings(localizedTipHeadings, thisBoneAxes);		
+							newRMSD = getManualMSD(localizedTipHeadings, localizedTargetHeadings, weights);
 						}
-						upateTipHeadings(localizedTipHeadings, thisBoneAxes);		
-						newRMSD = getManualMSD(localizedTipHeadings, localizedTargetHeadings, weights);
 					}
 					bestOrientation.set(thisBoneAxes.getGlobalMBasis().rotation.rotation);
 					bestRMSD = newRMSD;		
@@ -409,6 +606,9 @@ public class SegmentedArmature {
 					//if(i>0) 
 					//System.out.println("inner retired after " + i + " attempts.");
 					break;				
+				} else if(fastStabilization && i < stabilizationPasses) {
+					//the next pass superposes from wherever this one left the tips
+					upateTipHeadings(localizedTipHeadings, thisBoneAxes);
 				}
 			} else {
 				//System.out.println("retired after " + i + " attempts.");
@@ -422,23 +622,185 @@ public class SegmentedArmature {
 		}
 	}
 
+	/**
+	 * @return the weighted mean squared distance between the tip and target headings after rotating the tip headings 
+	 * by however much thisBoneAxes has rotated since the start of the current stabilization pass, as estimated from 
+	 * the inner products of that pass's superposition. 
+	 */
+	private double getMSDSincePassStart(AbstractAxes thisBoneAxes) {
+		thisBoneAxes.updateGlobal();
+		thisBoneAxes.getGlobalMBasis().rotation.applyTo(passStartInverse, passRotation);
+		return qcpConvergenceCheck.getWeightedMSDAfterRotating(passRotation.rotation);
+	}
+
+	private static void setToInverse(Rot r, Rot storeIn) {
+		MRotation q = r.rotation;
+		storeIn.rotation.set(q.getQ0(), -q.getQ1(), -q.getQ2(), -q.getQ3(), false);
+	}
+
 	//AbstractAxes tempAxes = null;
 
 	private void updateOptimalRotationToPinnedDescendants( 
 			WorkingBone sb,
 			double dampening,
 			boolean translate,
-			SGVec_3d[] localizedTipHeadings,
-			SGVec_3d[] localizedTargetHeadings, 
+			double[] localizedTipHeadings,
+			double[] localizedTargetHeadings, 
 			double[] weights,
 			QCP qcpOrientationAligner,
 			int iteration,
 			double totalIterations) {
 
-		qcpOrientationAligner.setMaxIterations(0);		
-		Rot qcpRot =  qcpOrientationAligner.weightedSuperpose(localizedTipHeadings, localizedTargetHeadings, weights, translate);
+		if(weights.length == 1 && !translate) {
+			//the optimal rotation for a single heading is just the shortest arc from the tip to the target, 
+			//so there's no need to build QCP's inner product matrix for it.
+			tipScratch.set(localizedTipHeadings[0], localizedTipHeadings[1], localizedTipHeadings[2]);
+			targetScratch.set(localizedTargetHeadings[0], localizedTargetHeadings[1], localizedTargetHeadings[2]);
+			qcpRot.set(tipScratch, targetScratch);
+		} else {
+			qcpOrientationAligner.setMaxIterations(0);		
+			qcpOrientationAligner.weightedSuperpose(localizedTipHeadings, localizedTargetHeadings, weights, translate, qcpRot);
+		}
+		qcpOrientationAligner.getTranslation(translateBy);
+		rotateAndSnap(sb, dampening);
+	}
+
+	/**
+	 * solves this segment in closed form, if it is a two bone chain (an upper bone, a lower bone, and the pinned tip) 
+	 * whose tip is the only thing it solves for and is pinned by position alone. 
+	 * The lower bone is bent until the distance from the upper bone to the tip matches the distance from the upper bone 
+	 * to the target (by the law of cosines, as nearly as the bone lengths allow), then the upper bone is swung to point the tip at the target. 
+	 * Every rotation is dampened and snapped just as updateOptimalRotationToPinnedDescendants would. 
+	 * 
+	 * The law of cosines only fixes how far the lower bone bends, not which way. It bends within the plane the chain already lies in 
+	 * unless the lower bone's kusudama won't allow that, in which case the bend is swung around toward the nearest direction it does allow. 
+	 * Likewise, the upper bone can be rotated about the line from it to the target without moving the tip off that line, 
+	 * so it is rotated about that line toward the nearest orientation its own kusudama allows before being snapped. 
+	 * 
+	 * @return false (having done nothing) if this segment isn't such a chain, or if its upper or lower bone is orientation locked.
+	 */
+	boolean solveTwoBoneChain(double dampening) {
+		if(twoBoneUpper == null || twoBoneUpper.forBone.getIKOrientationLock() 
+				|| twoBoneLower.forBone.getIKOrientationLock())
+			return false;
+		WorkingBone tip = pinnedBones[0];
+		translateBy.setZero();
+		if(!tip.forBone.getIKOrientationLock()) {
+			//the tip's own heading is the zero vector, so it only needs snapping.
+			qcpRot.set(MRotation.IDENTITY);
+			rotateAndSnap(tip, dampening);
+		}
+		updateTipPathGlobals();
+		Vec3d<?> upperOrigin = twoBoneUpper.simLocalAxes.getGlobalMBasis().getOrigin();
+		Vec3d<?> lowerOrigin = twoBoneLower.simLocalAxes.getGlobalMBasis().getOrigin();
+		Vec3d<?> tipOrigin = tip.simLocalAxes.getGlobalMBasis().getOrigin();
+		targetScratch.set(globalTargetHeadings[0], globalTargetHeadings[1], globalTargetHeadings[2]);
+		double reachSq = targetScratch.distSq(upperOrigin);
+		
+		jointScratch.set(upperOrigin).sub(lowerOrigin);
+		tipScratch.set(tipOrigin).sub(lowerOrigin);
+		double upperLength = jointScratch.mag(); 
+		double lowerLength = tipScratch.mag();
+		if(upperLength > 0d && lowerLength > 0d) {
+			double cosBend = (upperLength*upperLength + lowerLength*lowerLength - reachSq) / (2d*upperLength*lowerLength);
+			cosBend = Math.max(-1d, Math.min(1d, cosBend));
+			double sinBend = Math.sqrt(1d - cosBend*cosBend);
+			jointScratch.normalize();
+			//the plane the chain already lies in, or any plane if it's straight.
+			planeScratch.set(jointScratch).mult(-jointScratch.dot(tipScratch)).add(tipScratch);
+			if(planeScratch.magSq() <= MathUtils.DOUBLE_ROUNDING_ERROR*lowerLength*lowerLength) {
+				//same plane getOrthogonal() would give, without the allocation.
+				boolean xAxis = Math.abs(jointScratch.x) <= 0.6d;
+				boolean yAxis = !xAxis && Math.abs(jointScratch.y) <= 0.6d;
+				planeScratch.set(jointScratch).crs(xAxis ? 1d : 0d, yAxis ? 1d : 0d, xAxis || yAxis ? 0d : 1d);
+			}
+			planeScratch.normalize();
+			swivelScratch.set(jointScratch).crs(planeScratch);
+			//a kusudama's allowed region needn't be convex, so rather than bending in the current plane and snapping back 
+			//to wherever is nearest, try planes successively further around the upper bone from the current one 
+			//and bend in the first the lower bone's kusudama allows (or failing that, the one it comes closest to allowing). 
+			double bestPlane = 0d, bestCos = -2d;
+			for(int i = 0; i < TWO_BONE_BEND_PLANES; i++) {
+				double plane = ((i+1)/2) * (i % 2 == 0 ? 2d : -2d) * Math.PI / TWO_BONE_BEND_PLANES;
+				setToBend(cosBend, sinBend, plane, bendScratch);
+				qcpRot.set(tipScratch, bendScratch);
+				if(!setToLimitedHeading(twoBoneLower, qcpRot, headingScratch, limitedScratch)) {
+					bestCos = 2d;
+					break;
+				}
+				double cosToLimits = headingScratch.dot(limitedScratch) / Math.sqrt(headingScratch.magSq() * limitedScratch.magSq());
+				if(cosToLimits > bestCos) {
+					bestCos = cosToLimits;
+					bestPlane = plane;
+				}
+			}
+			if(bestCos != 2d) {
+				setToBend(cosBend, sinBend, bestPlane, bendScratch);
+				qcpRot.set(tipScratch, bendScratch);
+			}
+			rotateAndSnap(twoBoneLower, dampening);
+			updateTipPathGlobals();
+		}
+		
+		tipScratch.set(tipOrigin).sub(upperOrigin);
+		targetScratch.sub(upperOrigin);
+		qcpRot.set(tipScratch, targetScratch);
+		targetScratch.normalize();
+		for(int i = 0; i < TWO_BONE_SWIVEL_STEPS && reachSq > 0d
+				&& setToLimitedHeading(twoBoneUpper, qcpRot, headingScratch, limitedScratch); i++) {
+			//the angle about the line to the target between where the upper bone would point and the nearest direction it's allowed to.
+			headingScratch.sub(planeScratch.set(targetScratch).mult(targetScratch.dot(headingScratch)));
+			limitedScratch.sub(planeScratch.set(targetScratch).mult(targetScratch.dot(limitedScratch)));
+			double cosSwivel = headingScratch.dot(limitedScratch);
+			double sinSwivel = planeScratch.set(headingScratch).crs(limitedScratch).dot(targetScratch);
+			if(cosSwivel == 0d && sinSwivel == 0d) 
+				break;
+			limitRot.set(targetScratch, Math.atan2(sinSwivel, cosSwivel));
+			limitRot.applyTo(qcpRot, qcpRot);
+		}
+		rotateAndSnap(twoBoneUpper, dampening);
+		return true;
+	}
+
+	/**
+	 * sets storeIn to the direction at the given bend (the cosine and sine of the angle away from jointScratch) 
+	 * in the plane the given angle around jointScratch from planeScratch. 
+	 */
+	private void setToBend(double cosBend, double sinBend, double plane, SGVec_3d storeIn) {
+		double cosPlane = Math.cos(plane), sinPlane = Math.sin(plane);
+		storeIn.set(
+				jointScratch.x*cosBend + (planeScratch.x*cosPlane + swivelScratch.x*sinPlane)*sinBend, 
+				jointScratch.y*cosBend + (planeScratch.y*cosPlane + swivelScratch.y*sinPlane)*sinBend, 
+				jointScratch.z*cosBend + (planeScratch.z*cosPlane + swivelScratch.z*sinPlane)*sinBend);
+	}
+
+	/**
+	 * sets heading to the direction the given bone's y axis would point in (globally) after rotating it by the given rotation, 
+	 * and limited to the nearest direction its kusudama allows it to point in. 
+	 * @return true if limited was set, false (in which case limited is meaningless) if the bone has no kusudama or its kusudama allows heading.
+	 */
+	private boolean setToLimitedHeading(WorkingBone sb, Rot rotation, SGVec_3d heading, SGVec_3d limited) {
+		Constraint constraint = sb.forBone.getConstraint();
+		if(!(constraint instanceof AbstractKusudama)) 
+			return false;
+		sgRayd yRay = sb.simLocalAxes.y_();
+		heading.set(yRay.p2()).sub(yRay.p1());
+		rotation.applyTo(heading, heading);
+		AbstractAxes limitingAxes = sb.simConstraintAxes;
+		limitingAxes.setToLocalOf(limited.set(yRay.p1()).add(heading), limited);
+		((AbstractKusudama)constraint).setToPointInLimits(limited, inBounds, limited, constraintScratch);
+		if(inBounds[0] != -1) 
+			return false;
+		limitingAxes.setToGlobalOf(limited, limited);
+		limited.sub(yRay.p1());
+		return true;
+	}
 
-		SGVec_3d translateBy = qcpOrientationAligner.getTranslation();
+	/**
+	 * rotates the given bone by qcpRot (clamped to the given dampening, or the bone's own if dampening is -1), 
+	 * snaps it to its constraint, and translates it by translateBy.
+	 */
+	private void rotateAndSnap(WorkingBone sb, double dampening) {
 		double boneDamp = sb.cosHalfDampen; 
 				
 		if(dampening != -1) {
@@ -451,84 +813,146 @@ public class SegmentedArmature {
 		
 		sb.simLocalAxes.updateGlobal();	
 		
-		sb.forBone.setAxesToSnapped(sb.simLocalAxes, sb.simConstraintAxes, boneDamp);
+		sb.forBone.setAxesToSnapped(sb.simLocalAxes, sb.simConstraintAxes, boneDamp, constraintScratch);
 		sb.simLocalAxes.translateByGlobal(translateBy);
 		sb.simConstraintAxes.translateByGlobal(translateBy);		
 		
 	}
 
 
-	public void updateTargetHeadings(Vec3d<?>[] localizedTargetHeadings, double[] weights, AbstractAxes thisBoneAxes) {		
-
+	/**
+	 * computes the global position of every target heading this segment solves for into globalTargetHeadings. 
+	 * Must be called before each pass over this segment's bones, so that updateTargetHeadings only 
+	 * has to localize them to each bone. 
+	 */
+	void updateGlobalTargetHeadings() {
 		int hdx = 0;
+		//origins are read straight from the global bases rather than through origin_(), 
+		//as the latter writes to the axes, which the target axes may be sharing with another thread.
 		for(int i =0; i<pinnedBones.length; i++) {
 			WorkingBone sb = pinnedBones[i];
 			AbstractIKPin pin = sb.forBone.getIKPin();
 			AbstractAxes targetAxes = pin.forBone.getPinnedAxes();
 			targetAxes.updateGlobal();
-			Vec3d<?> origin  = thisBoneAxes.origin_();
-			localizedTargetHeadings[hdx].set(targetAxes.origin_()).sub( origin);
+			Vec3d<?> targetOrigin = targetAxes.getGlobalMBasis().getOrigin();
+			int t = hdx*3;
+			globalTargetHeadings[t] = targetOrigin.x;
+			globalTargetHeadings[t+1] = targetOrigin.y;
+			globalTargetHeadings[t+2] = targetOrigin.z;
+			//adding -0 leaves any value, including either zero, exactly as it was.
+			globalTargetOffsets[t] = -0d;
+			globalTargetOffsets[t+1] = -0d;
+			globalTargetOffsets[t+2] = -0d;
 			byte  modeCode = pin.getModeCode();
 			hdx++;
 			
 			if((modeCode & AbstractIKPin.XDir) != 0) {
-				sgRayd xTarget = targetAxes.x_().getRayScaledBy(weights[hdx]);
-				localizedTargetHeadings[hdx].set(xTarget.p2()).sub(origin);
-				xTarget.setToInvertedTip(localizedTargetHeadings[hdx+1]).sub(origin);
+				setToScaledHeadings(targetAxes.x_(), weights[hdx], globalTargetHeadings, globalTargetOffsets, hdx*3);
 				hdx +=2;
 			}
 			if((modeCode & AbstractIKPin.YDir) != 0) {
-				sgRayd yTarget = targetAxes.y_().getRayScaledBy(weights[hdx]);
-				localizedTargetHeadings[hdx] =  Vec3d.sub(yTarget.p2(), origin);
-				yTarget.setToInvertedTip(localizedTargetHeadings[hdx+1]).sub(origin);
+				setToScaledHeadings(targetAxes.y_(), weights[hdx], globalTargetHeadings, globalTargetOffsets, hdx*3);
 				hdx +=2;
 			}
 			if((modeCode & AbstractIKPin.ZDir) != 0) {
-				sgRayd zTarget = targetAxes.z_().getRayScaledBy(weights[hdx]);
-				localizedTargetHeadings[hdx] =  Vec3d.sub(zTarget.p2(), origin);
-				zTarget.setToInvertedTip(localizedTargetHeadings[hdx+1]).sub(origin);
+				setToScaledHeadings(targetAxes.z_(), weights[hdx], globalTargetHeadings, globalTargetOffsets, hdx*3);
 				hdx +=2;
 			}			
 		}		
+	}
 
+	/**
+	 * sets localizedTargetHeadings to the target headings last computed by updateGlobalTargetHeadings, 
+	 * relative to the origin of thisBoneAxes. 
+	 */
+	public void updateTargetHeadings(double[] localizedTargetHeadings, AbstractAxes thisBoneAxes) {		
+		thisBoneAxes.updateGlobal();
+		Vec3d<?> origin  = thisBoneAxes.getGlobalMBasis().getOrigin();
+		double ox = origin.x, oy = origin.y, oz = origin.z;
+		double[] g = globalTargetHeadings;
+		double[] d = globalTargetOffsets;
+		for(int t = 0; t < localizedTargetHeadings.length; t+=3) {
+			localizedTargetHeadings[t] = (g[t] - ox) + d[t];
+			localizedTargetHeadings[t+1] = (g[t+1] - oy) + d[t+1];
+			localizedTargetHeadings[t+2] = (g[t+2] - oz) + d[t+2];
+		}
 	}
 
-	public void upateTipHeadings(Vec3d<?>[] localizedTipHeadings, AbstractAxes thisBoneAxes) {
+	public void upateTipHeadings(double[] localizedTipHeadings, AbstractAxes thisBoneAxes) {
 		int hdx = 0;
+		thisBoneAxes.updateGlobal();
+		updateTipPathGlobals();
+		Vec3d<?> origin  = thisBoneAxes.getGlobalMBasis().getOrigin();
 		
 		for(int i =0; i<pinnedBones.length; i++) {
 			WorkingBone sb = pinnedBones[i];
 			AbstractIKPin pin = sb.forBone.getIKPin();
 			AbstractAxes tipAxes = sb.simLocalAxes;
-			tipAxes.updateGlobal();
-			Vec3d<?> origin  = thisBoneAxes.origin_();
 			byte  modeCode = pin.getModeCode();
 			
-			AbstractAxes targetAxes = pin.forBone.getPinnedAxes();
-			targetAxes.updateGlobal();
-			double scaleBy  = thisBoneAxes.origin_().dist(targetAxes.origin_());
+			int t = hdx*3;
+			double dx = globalTargetHeadings[t] - origin.x;
+			double dy = globalTargetHeadings[t+1] - origin.y;
+			double dz = globalTargetHeadings[t+2] - origin.z;
+			double scaleBy  = Math.sqrt(dx*dx + dy*dy + dz*dz);
+			Vec3d<?> tipOrigin = tipAxes.getGlobalMBasis().getOrigin();
+			localizedTipHeadings[t] = tipOrigin.x - origin.x;
+			localizedTipHeadings[t+1] = tipOrigin.y - origin.y;
+			localizedTipHeadings[t+2] = tipOrigin.z - origin.z;
 			hdx++;
 
 			if((modeCode & AbstractIKPin.XDir) != 0) {
-				sgRayd xTip = tipAxes.x_().getRayScaledBy(scaleBy);
-				localizedTipHeadings[hdx].set(xTip.p2()).sub(origin);
-				xTip.setToInvertedTip(localizedTipHeadings[hdx+1]).sub(origin);
+				setToScaledHeadings(tipAxes.x_(), scaleBy, origin, localizedTipHeadings, hdx*3);
 				hdx+=2;
 			}
 			if((modeCode & AbstractIKPin.YDir) != 0) {
-				sgRayd yTip = tipAxes.y_().getRayScaledBy(scaleBy);
-				localizedTipHeadings[hdx].set(yTip.p2()).sub(origin);
-				yTip.setToInvertedTip(localizedTipHeadings[hdx+1]).sub(origin);
+				setToScaledHeadings(tipAxes.y_(), scaleBy, origin, localizedTipHeadings, hdx*3);
 				hdx+=2;
 			}
 			if((modeCode & AbstractIKPin.ZDir) != 0) {
-				sgRayd zTip = tipAxes.z_().getRayScaledBy(scaleBy);
-				localizedTipHeadings[hdx].set(zTip.p2()).sub(origin);
-				zTip.setToInvertedTip(localizedTipHeadings[hdx+1]).sub(origin);;
+				setToScaledHeadings(tipAxes.z_(), scaleBy, origin, localizedTipHeadings, hdx*3);
 				hdx+=2;
 			}			
 		}
 	}
+	
+	/**
+	 * Allocation-free equivalent of 
+	 * <pre>
+	 * sgRayd scaled = ray.getRayScaledBy(scaleBy);
+	 * tip.set(scaled.p2()).sub(origin); 
+	 * scaled.setToInvertedTip(invertedTip).sub(origin);
+	 * </pre>
+	 * with tip written to into[at..at+2] and invertedTip to into[at+3..at+5].
+	 */
+	private static void setToScaledHeadings(sgRayd ray, double scaleBy, Vec3d<?> origin, double[] into, int at) {
+		Vec3d<?> p1 = ray.p1(); 
+		Vec3d<?> p2 = ray.p2();
+		double hx = (p2.x - p1.x) * scaleBy;
+		double hy = (p2.y - p1.y) * scaleBy;
+		double hz = (p2.z - p1.z) * scaleBy;
+		double bx = p1.x - origin.x;
+		double by = p1.y - origin.y;
+		double bz = p1.z - origin.z;
+		into[at] = bx + hx; into[at+1] = by + hy; into[at+2] = bz + hz;
+		into[at+3] = bx - hx; into[at+4] = by - hy; into[at+5] = bz - hz;
+	}
+
+	/**
+	 * writes the global origin of ray into both into[at..at+2] and into[at+3..at+5], and its heading scaled by scaleBy 
+	 * (and the negation of that, for the inverted tip) into offsets[at..at+2] and offsets[at+3..at+5].
+	 */
+	private static void setToScaledHeadings(sgRayd ray, double scaleBy, double[] into, double[] offsets, int at) {
+		Vec3d<?> p1 = ray.p1(); 
+		Vec3d<?> p2 = ray.p2();
+		double hx = (p2.x - p1.x) * scaleBy;
+		double hy = (p2.y - p1.y) * scaleBy;
+		double hz = (p2.z - p1.z) * scaleBy;
+		into[at] = p1.x; into[at+1] = p1.y; into[at+2] = p1.z;
+		into[at+3] = p1.x; into[at+4] = p1.y; into[at+5] = p1.z;
+		offsets[at] = hx; offsets[at+1] = hy; offsets[at+2] = hz;
+		offsets[at+3] = -hx; offsets[at+4] = -hy; offsets[at+5] = -hz;
+	}
 
 	/**
 	 * 
@@ -536,36 +960,66 @@ public class SegmentedArmature {
 	 * @return returns the segment chain (pinned or unpinned, doesn't matter) to which the inputBone belongs. 
 	 */
 	public SegmentedArmature getChainFor(AbstractBone chainMember) {
-		//AbstractBone candidate = this.segmentTip; 
-		SegmentedArmature result = null; 
-		if(this.segmentBoneList.contains(chainMember)) 
-			return this;
-		if(this.parentSegment != null) 
-			result = this.parentSegment.getAncestorSegmentContaining(chainMember);
-		if(result == null)
-			result = getChildSegmentContaining(chainMember);
-		return result;
-	}	
+		SegmentedArmature containing = segmentContaining(chainMember);
+		if(containing != null && (containing.isInSubtreeOf(this) || this.isInSubtreeOf(containing))) 
+			return containing;
+		return null;
+	}
+
+	/**
+	 * @return the segment containing b if it is this segment or one of its descendants, null otherwise.
+	 */
 	public SegmentedArmature getChildSegmentContaining(AbstractBone b) {
-		if(segmentBoneList.contains(b)) { 
-			return this;
-		} else {
-			for(SegmentedArmature s : childSegments) {
-				SegmentedArmature childContaining = s.getChildSegmentContaining(b);
-				if(childContaining != null) 
-					return childContaining;
-			}
-		}
+		SegmentedArmature containing = segmentContaining(b);
+		if(containing != null && containing.isInSubtreeOf(this)) 
+			return containing;
 		return null;
 	}
 
+	/**
+	 * @return the segment containing b if it is this segment or one of its ancestors, null otherwise.
+	 */
 	public SegmentedArmature getAncestorSegmentContaining(AbstractBone b) {
-		if(segmentBoneList.contains(b)) 
-			return this;
-		else if(this.parentSegment != null) 
-			return this.parentSegment.getAncestorSegmentContaining(b);
-		else 
-			return null;
+		SegmentedArmature containing = segmentContaining(b);
+		if(containing != null && this.isInSubtreeOf(containing)) 
+			return containing;
+		return null;
+	}
+
+	private SegmentedArmature segmentContaining(AbstractBone b) {
+		return b.parentArmature == armature ? armature.getSegmentFor(b) : null;
+	}
+
+	/**
+	 * @return true if this segment is the given segment or one of its descendants.
+	 */
+	boolean isInSubtreeOf(SegmentedArmature s) {
+		return s.preorderIndex <= preorderIndex && preorderIndex <= s.lastDescendantIndex;
+	}
+
+	/**
+	 * numbers this segment and its descendants in preorder, starting from the given number, 
+	 * and indexes their bones with the armature. 
+	 * @return the next unused number
+	 */
+	private int indexSegments(int next) {
+		preorderIndex = next++;
+		for(WorkingBone wb : simulatedBones) {
+			armature.indexBone(wb, this);
+		}
+		for(SegmentedArmature c : childSegments) {
+			next = c.indexSegments(next);
+		}
+		lastDescendantIndex = next - 1;
+		return next;
+	}
+
+	/**
+	 * replaces the armature's bone index with one describing the segment tree rooted at this segment.
+	 */
+	private void reindexSegmentTree() {
+		armature.clearBoneIndices();
+		indexSegments(0);
 	}
 
 	/**
@@ -632,7 +1086,7 @@ public class SegmentedArmature {
 	public void recursivelyAlignSimAxesOutwardFrom(AbstractBone b, boolean forceGlobal) {
 		SegmentedArmature bChain = getChildSegmentContaining(b);
 		if(bChain != null) {
-			WorkingBone sb = bChain.simulatedBones.get(b);
+			WorkingBone sb = bChain.getWorkingBone(b);
 			AbstractAxes bAxes = sb.simLocalAxes;
 			AbstractAxes cAxes = sb.simConstraintAxes;
 			if(forceGlobal) {
@@ -644,8 +1098,11 @@ public class SegmentedArmature {
 				bAxes.alignLocalsTo(b.localAxes());
 				cAxes.alignLocalsTo(b.getMajorRotationAxes());
 			}
-			for(AbstractBone bc: b.getChildren()) {
-				bChain.recursivelyAlignSimAxesOutwardFrom(bc, false);	
+			ArrayList<? extends AbstractBone> children = b.getChildren();
+			//indexed, like the other walks made on every solve, since recursion this deep keeps the JIT 
+			//from eliminating a for-each loop's iterator
+			for(int i = 0; i < children.size(); i++) {
+				bChain.recursivelyAlignSimAxesOutwardFrom(children.get(i), false);	
 			}			
 		}
 	}
@@ -654,9 +1111,9 @@ public class SegmentedArmature {
 
 	public void recursivelyAlignSimAxesRootwardFrom(AbstractBone b) {
 		if(b!= null) {
-			SegmentedArmature bChain = b.parentArmature.boneSegmentMap.get(b); // getChainFor(b);			
+			SegmentedArmature bChain = b.parentArmature.getSegmentFor(b); // getChainFor(b);			
 			AbstractBone parent = b.getParent(); 
-			WorkingBone sb = bChain.simulatedBones.get(b);
+			WorkingBone sb = bChain.getWorkingBone(b);
 			AbstractAxes bAxes = sb.simLocalAxes;
 			AbstractAxes cAxes = sb.simConstraintAxes;
 			bChain.simAligned = true;
@@ -665,7 +1122,7 @@ public class SegmentedArmature {
 			cAxes.alignGlobalsTo(b.getMajorRotationAxes());
 			cAxes.markDirty(); cAxes.updateGlobal();			
 			if(parent != null) {
-				SegmentedArmature bParentChain =  b.parentArmature.boneSegmentMap.get(parent);//getChainFor(parent);
+				SegmentedArmature bParentChain =  b.parentArmature.getSegmentFor(parent);//getChainFor(parent);
 				if(bParentChain != bChain && bParentChain.simAligned) {
 					return; // the parent chain doesn't need aligning, it is safe to just update these simAxes
 				}
@@ -684,9 +1141,9 @@ public class SegmentedArmature {
 	 * @param b bone to start from
 	 */
 	public void recursivelyAlignBonesToSimAxesFrom(AbstractBone b) {
-		SegmentedArmature chain = b.parentArmature.boneSegmentMap.get(b); //getChainFor(b);
+		SegmentedArmature chain = b.parentArmature.getSegmentFor(b); //getChainFor(b);
 		if(chain != null) {			
-			WorkingBone sb = chain.simulatedBones.get(b);
+			WorkingBone sb = chain.getWorkingBone(b);
 			AbstractAxes simulatedLocalAxes = sb.simLocalAxes;
 			if(b.parent != null) { 
 				b.localAxes().alignOrientationTo(simulatedLocalAxes);
@@ -699,8 +1156,9 @@ public class SegmentedArmature {
 				b.localAxes().localMBasis.rotateTo(simulatedLocalAxes.localMBasis.rotation);
 				b.localAxes().markDirty(); b.localAxes().updateGlobal();
 			}*/
-			for(AbstractBone bc: b.getChildren()) {
-				recursivelyAlignBonesToSimAxesFrom(bc);	
+			ArrayList<? extends AbstractBone> children = b.getChildren();
+			for(int i = 0; i < children.size(); i++) {
+				recursivelyAlignBonesToSimAxesFrom(children.get(i));	
 			}			
 			chain.simAligned = false;
 			chain.processed = false;
@@ -729,11 +1187,183 @@ public class SegmentedArmature {
 
 
 
+	/**
+	 * brings the global state of the pinned axes of the pinned tips of this segment and its descendants up to date, 
+	 * so that solving doesn't have to (which could race if the pins share parents). 
+	 */
+	void updatePinnedAxes() {
+		if(segmentTip.getIKPin() != null) {
+			segmentTip.getPinnedAxes().updateGlobal();
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			childSegments.get(i).updatePinnedAxes();
+		}
+	}
+
+	/**
+	 * @return the weighted mean of the squared distances between the simulated pinned bones of this segment and its descendants 
+	 * and their targets. Each pin contributes the squared distance between its bone's origin and its target's origin 
+	 * (weighted by the pin weight), plus the squared distance between the unit x, y, and z headings of 
+	 * the bone and target for each direction the pin cares about (weighted by the pin weight times that direction's priority). 
+	 */
+	public double getPinnedMSD() {
+		double wsum = getPinnedErrorWeight();
+		return wsum == 0d ? 0d : getWeightedPinnedSquaredError() / wsum;
+	}
+
+	/**
+	 * @return the sum of the weights getPinnedMSD() averages over
+	 */
+	private double getPinnedErrorWeight() {
+		double wsum = 0d;
+		AbstractIKPin pin = segmentTip.getIKPin();
+		if(pin != null && pin.isEnabled()) {
+			double weight = pin.getPinWeight();
+			byte modeCode = pin.getModeCode();
+			wsum += weight;
+			if((modeCode & AbstractIKPin.XDir) != 0) wsum += weight * pin.getXPriority();
+			if((modeCode & AbstractIKPin.YDir) != 0) wsum += weight * pin.getYPriority();
+			if((modeCode & AbstractIKPin.ZDir) != 0) wsum += weight * pin.getZPriority();
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			wsum += childSegments.get(i).getPinnedErrorWeight();
+		}
+		return wsum;
+	}
+
+	/**
+	 * @return the weighted sum of squared distances getPinnedMSD() averages
+	 */
+	private double getWeightedPinnedSquaredError() {
+		double msd = 0d;
+		AbstractIKPin pin = segmentTip.getIKPin();
+		if(pin != null && pin.isEnabled()) {
+			AbstractAxes tipAxes = getWorkingBone(segmentTip).simLocalAxes;
+			AbstractAxes targetAxes = pin.getAxes();
+			tipAxes.updateGlobal();
+			targetAxes.updateGlobal();
+			AbstractBasis tip = tipAxes.getGlobalMBasis();
+			AbstractBasis target = targetAxes.getGlobalMBasis();
+			double weight = pin.getPinWeight();
+			double xd = tip.translate.x - target.translate.x;
+			double yd = tip.translate.y - target.translate.y;
+			double zd = tip.translate.z - target.translate.z;
+			msd += weight * (xd*xd + yd*yd + zd*zd);
+			byte modeCode = pin.getModeCode();
+			if((modeCode & AbstractIKPin.XDir) != 0) 
+				msd += weight * pin.getXPriority() * headingDistSq(tip.getXRay(), target.getXRay());
+			if((modeCode & AbstractIKPin.YDir) != 0) 
+				msd += weight * pin.getYPriority() * headingDistSq(tip.getYRay(), target.getYRay());
+			if((modeCode & AbstractIKPin.ZDir) != 0) 
+				msd += weight * pin.getZPriority() * headingDistSq(tip.getZRay(), target.getZRay());
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			msd += childSegments.get(i).getWeightedPinnedSquaredError();
+		}
+		return msd;
+	}
+
+	private static double headingDistSq(sgRayd a, sgRayd b) {
+		double xd = (a.p2().x - a.p1().x) - (b.p2().x - b.p1().x);
+		double yd = (a.p2().y - a.p1().y) - (b.p2().y - b.p1().y);
+		double zd = (a.p2().z - a.p1().z) - (b.p2().z - b.p1().z);
+		return xd*xd + yd*yd + zd*zd;
+	}
+
+	/**
+	 * records the current local transforms of the simulation axes of every bone in this segment and its descendants,  
+	 * so that they can be returned to by restoreSimulationAxes(). 
+	 */
+	void captureSimulationAxes() {
+		for(int i = 0; i < simulatedBones.size(); i++) {
+			simulatedBones.get(i).captureSimulationAxes();
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			childSegments.get(i).captureSimulationAxes();
+		}
+	}
+
+	/**
+	 * sets the local transforms of the simulation axes of every bone in this segment and its descendants back 
+	 * to those last recorded by captureSimulationAxes(). 
+	 */
+	void restoreSimulationAxes() {
+		for(int i = 0; i < simulatedBones.size(); i++) {
+			simulatedBones.get(i).restoreSimulationAxes();
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			childSegments.get(i).restoreSimulationAxes();
+		}
+	}
+
+	/**
+	 * determines for this segment and each of its descendants whether any of the pins they contain have moved by more than 
+	 * the given tolerances since they were last solved for. 
+	 * @return true if none of them have
+	 */
+	boolean updatePinsSettled(double positionEpsilon, double cosHalfOrientationEpsilon) {
+		boolean settled = true;
+		if(isTipPinned()) {
+			AbstractIKPin pin = segmentTip.getIKPin();
+			settled = !pin.hasMovedBeyond(positionEpsilon, cosHalfOrientationEpsilon);
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			settled &= childSegments.get(i).updatePinsSettled(positionEpsilon, cosHalfOrientationEpsilon);
+		}
+		pinsSettled = settled;
+		return settled;
+	}
+
+	/**
+	 * @param referenceAxes the axes this segment's root currently hangs from
+	 * @return true if neither the pins on this segment or its descendants (as of the last call to updatePinsSettled) 
+	 * nor the given reference axes have moved by more than the given tolerances since this segment was last solved, 
+	 * in which case solving this segment again can be skipped in favor of its previous solution.
+	 */
+	boolean isSettled(AbstractAxes referenceAxes, double positionEpsilon, double cosHalfOrientationEpsilon) {
+		return pinsSettled && !solvedReferencePose.differs(referenceAxes, positionEpsilon, cosHalfOrientationEpsilon);
+	}
+
+	/**
+	 * @return the simulation axes this segment's root hangs from 
+	 */
+	AbstractAxes getSimulatedReferenceAxes() {
+		return getWorkingBone(segmentRoot).simLocalAxes.getParentAxes();
+	}
+
+	/**
+	 * records the state each segment which was solved during the solve which just completed was solved for, 
+	 * so that the next solve can tell whether it needs to solve them again. 
+	 * @param referenceAxes the axes this segment's root hangs from
+	 */
+	void recordSolvedState(AbstractAxes referenceAxes) {
+		if(solvedThisSolve) {
+			solvedReferencePose.record(referenceAxes);
+			if(isTipPinned()) segmentTip.getIKPin().markSolved();
+			solvedThisSolve = false;
+		}
+		for(int i = 0; i < childSegments.size(); i++) {
+			SegmentedArmature c = childSegments.get(i);
+			c.recordSolvedState(c.getSimulatedReferenceAxes());
+		}
+	}
+
+	/**
+	 * forgets the state this segment, its descendants, and their pins were last solved for.
+	 */
+	void invalidateSolvedState() {
+		solvedReferencePose.invalidate();
+		if(isTipPinned()) segmentTip.getIKPin().invalidateSolvedState();
+		for(SegmentedArmature c : childSegments) {
+			c.invalidateSolvedState();
+		}
+	}
+
 	public void setProcessed(boolean b) {
 		this.processed = b;
 		if(processed == false) {
-			for(SegmentedArmature c : childSegments) {
-				c.setProcessed(false);
+			for(int i = 0; i < childSegments.size(); i++) {
+				childSegments.get(i).setProcessed(false);
 			}
 		}
 	}
@@ -754,6 +1384,9 @@ public class SegmentedArmature {
 		double cosHalfReturnfullnessDampened[];
 		double halfReturnfullnessDampened[];
 		boolean springy = false;
+		/**the local transform of simLocalAxes as of the last call to captureSimulationAxes()*/
+		private Rot capturedRotation = new Rot();
+		private SGVec_3d capturedTranslation = new SGVec_3d();
 
 		public WorkingBone(AbstractBone toSimulate) {
 			forBone = toSimulate;
@@ -786,6 +1419,20 @@ public class SegmentedArmature {
 			}
 		}
 		
+		void captureSimulationAxes() {
+			AbstractBasis local = simLocalAxes.getLocalMBasis();
+			MRotation r = local.rotation.rotation;
+			capturedRotation.rotation.set(r.getQ0(), r.getQ1(), r.getQ2(), r.getQ3(), false);
+			capturedTranslation.set(local.translate);
+		}
+
+		void restoreSimulationAxes() {
+			AbstractBasis local = simLocalAxes.getLocalMBasis();
+			local.rotateTo(capturedRotation);
+			local.translateTo(capturedTranslation);
+			simLocalAxes.markDirty();
+		}
+
 		public void populateReturnDampeningIterationArray(AbstractKusudama k) {
 			double predamp = 1d-forBone.getStiffness();
 			double defaultDampening = forBone.parentArmature.dampening;
@@ -28,6 +28,8 @@ public abstract class AbstractIKPin implements Saveable {
 	static final short XDir = 1, YDir = 2, ZDir = 4;
 	protected float xPriority =1f , yPriority =1f, zPriority = 1f;
 	float depthFalloff= 0f;
+	/**the pose this pin's axes had the last time the segment it ends was solved*/
+	private SolvedPose solvedPose = new SolvedPose();
 	
 	public AbstractIKPin() {}
 	
@@ -56,10 +58,41 @@ public abstract class AbstractIKPin implements Saveable {
 	
 	public void enable() {
 		this.isEnabled = true; 
+		solvedPose.invalidate();
 	}
 	
 	public void disable() {
 		this.isEnabled = false;
+		solvedPose.invalidate();
+	}
+
+	/**
+	 * @param positionEpsilon how far the pin may have moved without being considered to have moved
+	 * @param orientationEpsilon how far (in radians) the pin may have turned without being considered to have turned
+	 * @return true if this pin has moved or turned by more than the given amounts since the last solve which 
+	 * took it into account (or if its weight, priorities, falloff or enabled state have changed since then). 
+	 * Pins are only tracked in this way while their armature has incremental solving enabled.
+	 */
+	public boolean hasMovedSinceLastSolve(float positionEpsilon, float orientationEpsilon) {
+		return solvedPose.differs(axes, positionEpsilon, MathUtils.cos(orientationEpsilon/2f));
+	}
+
+	boolean hasMovedBeyond(float positionEpsilon, float cosHalfOrientationEpsilon) {
+		return solvedPose.differs(axes, positionEpsilon, cosHalfOrientationEpsilon);
+	}
+
+	/**
+	 * records the current pose of this pin as the one it was last solved for.
+	 */
+	void markSolved() {
+		solvedPose.record(axes);
+	}
+
+	/**
+	 * forgets the pose this pin was last solved for, so that the next solve will consider it to have moved.
+	 */
+	void invalidateSolvedState() {
+		solvedPose.invalidate();
 	}
 	
 	/**
@@ -88,6 +121,7 @@ public abstract class AbstractIKPin implements Saveable {
 	 */
 	public void setDepthFalloff(float depth) {
 		this.depthFalloff = depth;		
+		solvedPose.invalidate();
 		this.forBone.parentArmature.rootwardlyUpdateFalloffCacheFrom(forBone);
 	}
 	
@@ -126,6 +160,7 @@ public abstract class AbstractIKPin implements Saveable {
 		this.xPriority = xPriority;
 		this.yPriority = yPriority;
 		this.zPriority = zPriority;
+		solvedPose.invalidate();
 		this.forBone.parentArmature.rootwardlyUpdateFalloffCacheFrom(forBone);
 	}
 	
@@ -307,6 +342,7 @@ public abstract class AbstractIKPin implements Saveable {
 	 */
 	public void setPinWeight(float weight) {
 		this.pinWeight = weight;
+		solvedPose.invalidate();
 		this.forBone.parentArmature.rootwardlyUpdateFalloffCacheFrom(forBone);
 	}
 	
@@ -4,6 +4,7 @@
 package IK.floatIK;
 import java.util.ArrayList;
 
+import IK.PerfTimer;
 import IK.floatIK.SegmentedArmature.WorkingBone;
 import data.EWBIKLoader;
 import data.EWBIKSaver;
@@ -26,6 +27,8 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 
 	public static final float TAU = MathUtils.PI*2;
 	public static final float PI = MathUtils.PI;
+	static final PerfTimer.Zone snapZone = PerfTimer.zone("kusudama snap");
+	static final PerfTimer.Zone returnfulnessZone = PerfTimer.zone("kusudama returnfulness");
 	protected AbstractAxes limitingAxes; 
 	protected float painfullness; 
 
@@ -134,12 +137,147 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 			AbstractLimitCone next = i<limitCones.size() -1 ? limitCones.get(i+1) : null;
 			limitCones.get(i).updateTangentHandles(next);
 		}
+		bakeBoundsTable();
+	}
+
+	private static final byte CELL_OUTSIDE = -1, CELL_BOUNDARY = 0, CELL_INSIDE = 1;
+	/**
+	 * if not null, classifies each cell of an octahedral grid over the unit sphere (in limitingAxes space) as being entirely 
+	 * within the limitCones and the paths between them, entirely outside of them, or straddling their boundary. 
+	 * Cells are indexed by u*boundsTableResolution + v. See setBoundsTableResolution.
+	 */
+	private byte[] boundsTable = null;
+	private int boundsTableResolution = 0;
+
+	/**
+	 * Kusudamas with more than one limitCone normally check each point against the path between every pair of 
+	 * adjacent cones. Setting a resolution greater than 0 bakes the limits into a resolution x resolution grid 
+	 * covering the sphere, so that any point falling in a cell well inside the limits is accepted in constant time. 
+	 * Points near the boundary or outside of it are still checked (and snapped) exactly. 
+	 * The grid is rebaked whenever the limitCones change, and takes resolution^2 bytes. 
+	 * Something in the range of 32 to 128 is a reasonable tradeoff. 
+	 * 
+	 * @param resolution the number of cells along each side of the grid, or 0 to disable the grid (the default).
+	 */
+	public void setBoundsTableResolution(int resolution) {
+		boundsTableResolution = Math.max(0, resolution);
+		bakeBoundsTable();
+	}
+
+	public int getBoundsTableResolution() {
+		return boundsTableResolution;
+	}
+
+	/**
+	 * (re)builds the boundsTable. A cell counts as inside only if its corners, edge midpoints, and center are all within limits, 
+	 * and it isn't adjacent to any cell which isn't. Cells on the outer edge of the grid (where the octahedral map folds over 
+	 * and grid neighbors are no longer neighbors on the sphere) are never counted as inside.
+	 */
+	private void bakeBoundsTable() {
+		int res = boundsTableResolution;
+		if(res == 0 || limitCones.size() < 2) {
+			boundsTable = null;
+			return;
+		}
+		int samplesPerSide = 2*res+1;
+		boolean[] sampleIn = new boolean[samplesPerSide*samplesPerSide];
+		ConstraintScratch bakeScratch = new ConstraintScratch();
+		SGVec_3f samplePoint = new SGVec_3f();
+		for(int su = 0; su < samplesPerSide; su++) {
+			for(int sv = 0; sv < samplesPerSide; sv++) {
+				float u = ((float)su / (samplesPerSide-1))*2f - 1f;
+				float v = ((float)sv / (samplesPerSide-1))*2f - 1f;
+				sampleIn[su*samplesPerSide + sv] = isInConeSequence(octahedralToSphere(u, v, samplePoint), bakeScratch);
+			}
+		}
+		byte[] coarse = new byte[res*res];
+		for(int cu = 0; cu < res; cu++) {
+			for(int cv = 0; cv < res; cv++) {
+				int inCount = 0; 
+				for(int su = 2*cu; su <= 2*cu+2; su++) {
+					for(int sv = 2*cv; sv <= 2*cv+2; sv++) {
+						if(sampleIn[su*samplesPerSide + sv]) inCount++;
+					}
+				}
+				coarse[cu*res+cv] = inCount == 9 ? CELL_INSIDE : inCount == 0 ? CELL_OUTSIDE : CELL_BOUNDARY;
+			}
+		}
+		byte[] table = new byte[res*res];
+		for(int cu = 0; cu < res; cu++) {
+			for(int cv = 0; cv < res; cv++) {
+				byte cell = coarse[cu*res+cv];
+				if(cell == CELL_INSIDE) {
+					if(cu == 0 || cv == 0 || cu == res-1 || cv == res-1) {
+						cell = CELL_BOUNDARY;
+					} else {
+						for(int nu = cu-1; nu <= cu+1; nu++) {
+							for(int nv = cv-1; nv <= cv+1; nv++) {
+								if(coarse[nu*res+nv] != CELL_INSIDE) cell = CELL_BOUNDARY;
+							}
+						}
+					}
+				}
+				table[cu*res+cv] = cell;
+			}
+		}
+		boundsTable = table;
+	}
+
+	/**
+	 * @return the index into the boundsTable of the cell containing the given unit vector.
+	 */
+	private static int boundsTableCell(Vec3f<?> p, int res) {
+		float l1 = MathUtils.abs(p.x) + MathUtils.abs(p.y) + MathUtils.abs(p.z);
+		float u = p.x / l1, v = p.y / l1; 
+		if(p.z < 0f) {
+			float fu = (1f - MathUtils.abs(v)) * (u < 0f ? -1f : 1f);
+			v = (1f - MathUtils.abs(u)) * (v < 0f ? -1f : 1f);
+			u = fu; 
+		}
+		int cu = (int)((u + 1f) * 0.5f * res);
+		int cv = (int)((v + 1f) * 0.5f * res);
+		cu = cu < 0 ? 0 : cu >= res ? res-1 : cu;
+		cv = cv < 0 ? 0 : cv >= res ? res-1 : cv;
+		return cu*res + cv;
+	}
+
+	/**
+	 * sets storeIn to the unit vector the octahedral map sends to (u, v), both in the range [-1, 1].
+	 */
+	private static <V extends Vec3f<?>> V octahedralToSphere(float u, float v, V storeIn) {
+		float z = 1f - MathUtils.abs(u) - MathUtils.abs(v);
+		if(z < 0f) {
+			storeIn.set((1f - MathUtils.abs(v)) * (u < 0f ? -1f : 1f), (1f - MathUtils.abs(u)) * (v < 0f ? -1f : 1f), z);
+		} else {
+			storeIn.set(u, v, z);
+		}
+		storeIn.normalize();
+		return storeIn;
+	}
+
+	/**
+	 * @return true if setToPointInLimits would consider the given unit vector to be in bounds. 
+	 * Vectors parallel to a control point (which inBoundsFromThisToNext can't construct a rotation from) 
+	 * are conservatively reported as out of bounds.
+	 */
+	private boolean isInConeSequence(Vec3f<?> point, ConstraintScratch scratch) {
+		for(AbstractLimitCone lc : limitCones) {
+			if(scratch.coneCross.set(lc.getControlPoint()).crs(point).magSq() == 0f) 
+				return false;
+		}
+		for (int i =0; i<limitCones.size() -1; i++) {
+			if(limitCones.get(i).inBoundsFromThisToNext(limitCones.get(i+1), point, scratch.collisionPoint, scratch))
+				return true;
+		}
+		return false;
 	}
 
 
 	
-	sgRayf boneRay = new sgRayf(new SGVec_3f(), new SGVec_3f());
-	sgRayf constrainedRay = new sgRayf(new SGVec_3f(), new SGVec_3f());
+	/**
+	 * used by the overloads which don't take a ConstraintScratch. 
+	 */
+	ConstraintScratch scratch = new ConstraintScratch();
 	
 	/**
 	 * Snaps the bone this Kusudama is constraining to be within the Kusudama's orientational and axial limits. 
@@ -161,34 +299,56 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @param toSet
 	 */
 	public void setAxesToSnapped(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfAngleDampen) {
+		setAxesToSnapped(toSet, limitingAxes, cosHalfAngleDampen, scratch);
+	}
+
+	/**
+	 * Same as setAxesToSnapped, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToSnapped(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfAngleDampen, ConstraintScratch scratch) {
 		if(limitingAxes != null) {					
+			PerfTimer.begin(snapZone);
 			if(orientationallyConstrained) {
-				setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen);
+				setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen, scratch);
 			} 		
 			if(axiallyConstrained) {
-				snapToTwistLimits(toSet, limitingAxes);
+				snapToTwistLimits(toSet, limitingAxes, scratch);
 			}		
+			PerfTimer.end(snapZone);
 		}
 	}
 	
 	
 	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfReturnfullness, float angleReturnfullness) {
+		setAxesToReturnfulled(toSet, limitingAxes, cosHalfReturnfullness, angleReturnfullness, scratch);
+	}
+
+	/**
+	 * Same as setAxesToReturnfulled, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToReturnfulled(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfReturnfullness, float angleReturnfullness, ConstraintScratch scratch) {
 		if(limitingAxes != null && painfullness >0f) {
+			PerfTimer.begin(returnfulnessZone);
 			if(orientationallyConstrained) {				
-				Vec3f<?> origin = toSet.origin_();
-				Vec3f<?> inPoint = toSet.y_().p2().copy();
-				Vec3f<?> pathPoint = pointOnPathSequence(inPoint, limitingAxes);
+				toSet.updateGlobal();
+				Vec3f<?> origin = toSet.getGlobalMBasis().getOrigin();
+				Vec3f<?> inPoint = scratch.fromHeading.set(toSet.y_().p2());
+				Vec3f<?> pathPoint = setToPointOnPathSequence(inPoint, limitingAxes, scratch.toHeading, scratch);
 				inPoint.sub(origin);
 				pathPoint.sub(origin);				
-				Rot toClamp = new Rot(inPoint, pathPoint);				
+				Rot toClamp = scratch.rot;
+				toClamp.set(inPoint, pathPoint);				
 				toClamp.rotation.clampToQuadranceAngle(cosHalfReturnfullness);
 				toSet.rotateBy(toClamp);
 			}
 			if(axiallyConstrained) {
-				float angleToTwistMid = angleToTwistCenter(toSet, limitingAxes);
+				float angleToTwistMid = angleToTwistCenter(toSet, limitingAxes, scratch);
 				float clampedAngle = MathUtils.clamp(angleToTwistMid, -angleReturnfullness, angleReturnfullness);
 				toSet.rotateAboutY(clampedAngle, false);
 			}
+			PerfTimer.end(returnfulnessZone);
 		}
 	}
 	
@@ -208,12 +368,9 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	public void setPainfullness(float amt) {
 		painfullness = amt;
 		if(attachedTo() != null && attachedTo().parentArmature != null) {
-			SegmentedArmature s =  attachedTo().parentArmature.boneSegmentMap.get(this.attachedTo());
-			if(s != null ) {
-				WorkingBone wb = s.simulatedBones.get(this.attachedTo());
-				if(wb != null) {
-					wb.updateCosDampening();
-				}
+			WorkingBone wb = attachedTo().parentArmature.getWorkingBoneFor(this.attachedTo());
+			if(wb != null) {
+				wb.updateCosDampening();
 			}
 		}
 	}
@@ -245,15 +402,29 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @param toSet
 	 */
 	public void setAxesToOrientationSnap(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfAngleDampen) {
-		float[] inBounds = {1f}; 
+		setAxesToOrientationSnap(toSet, limitingAxes, cosHalfAngleDampen, scratch);
+	}
+
+	/**
+	 * Same as setAxesToOrientationSnap, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public void setAxesToOrientationSnap(AbstractAxes toSet, AbstractAxes limitingAxes, float cosHalfAngleDampen, ConstraintScratch scratch) {
+		float[] inBounds = scratch.inBounds;
+		inBounds[0] = 1f;
+		sgRayf boneRay = scratch.boneRay;
+		sgRayf constrainedRay = scratch.constrainedRay;
 		limitingAxes.updateGlobal();
-		boneRay.p1().set(limitingAxes.origin_()); boneRay.p2().set(toSet.y_().p2());
-		Vec3f<?> bonetip = limitingAxes.getLocalOf(toSet.y_().p2());
-		Vec3f<?> inLimits = this.pointInLimits(bonetip, inBounds);
+		boneRay.p1().set(limitingAxes.getGlobalMBasis().getOrigin()); boneRay.p2().set(toSet.y_().p2());
+		limitingAxes.setToLocalOf(toSet.y_().p2(), scratch.boneTip);
+		Vec3f<?> inLimits = this.setToPointInLimits(scratch.boneTip, inBounds, scratch.inLimits, scratch);
 
 		if (inBounds[0] == -1 && inLimits != null) {     
-			constrainedRay.p1().set(boneRay.p1()); constrainedRay.p2().set(limitingAxes.getGlobalOf(inLimits)); 
-			Rot rectifiedRot = new Rot(boneRay.heading(), constrainedRay.heading());
+			constrainedRay.p1().set(boneRay.p1()); limitingAxes.setToGlobalOf(inLimits, constrainedRay.p2()); 
+			scratch.fromHeading.set(boneRay.p2()).sub(boneRay.p1());
+			scratch.toHeading.set(constrainedRay.p2()).sub(constrainedRay.p1());
+			Rot rectifiedRot = scratch.rot;
+			rectifiedRot.set(scratch.fromHeading, scratch.toHeading);
 			toSet.rotateBy(rectifiedRot);
 			toSet.updateGlobal();			
 		}		
@@ -299,12 +470,20 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @return radians of twist required to snap bone into twist limits (0 if bone is already in twist limits)
 	 */
 	public float snapToTwistLimits(AbstractAxes toSet, AbstractAxes limitingAxes) {
+		return snapToTwistLimits(toSet, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as snapToTwistLimits, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own toSet and limitingAxes).
+	 */
+	public float snapToTwistLimits(AbstractAxes toSet, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		if(!axiallyConstrained) return 0f;
 
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3f(0,1,0));
-		float angleDelta2 = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1f; 
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation, alignRot);
+		float angleDelta2 = alignRot.getYTwistAngle()*-1f; 
 		angleDelta2 = toTau(angleDelta2);
 		float fromMinToAngleDelta = toTau(signedAngleDifference(angleDelta2, TAU - this.minAxialAngle())); 
 
@@ -330,12 +509,19 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	
 	
 	public float angleToTwistCenter(AbstractAxes toSet, AbstractAxes limitingAxes) {
+		return angleToTwistCenter(toSet, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as angleToTwistCenter, but thread-safe so long as each thread passes its own scratch.
+	 */
+	public float angleToTwistCenter(AbstractAxes toSet, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		if(!axiallyConstrained) return 0f;
 
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3f(0,1,0));
-		float angleDelta2 = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1f; 
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(toSet.getGlobalMBasis().rotation, alignRot);
+		float angleDelta2 = alignRot.getYTwistAngle()*-1f; 
 		angleDelta2 = toTau(angleDelta2);
 		              
 		float distToMid =  signedAngleDifference(angleDelta2, TAU-(this.minAxialAngle()+(range/2f)));
@@ -344,12 +530,20 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	}
 
 	public boolean inTwistLimits(AbstractAxes boneAxes, AbstractAxes limitingAxes) {
+		return inTwistLimits(boneAxes, limitingAxes, scratch);
+	}
+
+	/**
+	 * Same as inTwistLimits, but thread-safe so long as each thread passes its own scratch 
+	 * (and its own limitingAxes).
+	 */
+	public boolean inTwistLimits(AbstractAxes boneAxes, AbstractAxes limitingAxes, ConstraintScratch scratch) {
 
 		limitingAxes.updateGlobal();
-		Rot alignRot = limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(boneAxes.globalMBasis.rotation);
-		Rot[] decomposition = alignRot.getSwingTwist(new SGVec_3f(0,1,0));
+		Rot alignRot = scratch.alignRot;
+		limitingAxes.getGlobalMBasis().getInverseRotation().applyTo(boneAxes.globalMBasis.rotation, alignRot);
 
-		float angleDelta = decomposition[1].getAngle() * decomposition[1].getAxis().y*-1;
+		float angleDelta = alignRot.getYTwistAngle()*-1;
 		//uncomment the next line for reflectable axis  support (removed for performance reasons) 
 		angleDelta*= limitingAxes.getGlobalChirality()*(limitingAxes.isGlobalAxisFlipped(AbstractAxes.Y) ? -1 : 1);;
 
@@ -391,52 +585,80 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 	 * @return the original point, if it's in limits, or the closest point which is in limits.
 	 */
 	public <V extends Vec3f<?>> Vec3f<?> pointInLimits(V inPoint, float[] inBounds) {
+		Vec3f<?> result = setToPointInLimits(inPoint, inBounds, inPoint.copy());
+		boolean multiCone = limitCones.size() > 1 && this.orientationallyConstrained;
+		return inBounds[0] == -1 || multiCone ? result : inPoint;
+	}
+	
+	/**
+	 * Same as pointInLimits, but writes its result into storeIn instead of allocating. 
+	 * @param inPoint the point to test.
+	 * @param inBounds see pointInLimits
+	 * @param storeIn will be set to the (normalized) point if it is within the limits, or to the closest point which is in limits otherwise. 
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3f<?>> Vec3f<?> setToPointInLimits(V inPoint, float[] inBounds, Vec3f<?> storeIn) {
+		return setToPointInLimits(inPoint, inBounds, storeIn, scratch);
+	}
+
+	/**
+	 * Same as setToPointInLimits, but thread-safe so long as each thread passes its own scratch. 
+	 * storeIn may be any of the scratch's vectors other than point, collisionPoint or closestPoint.
+	 */
+	public <V extends Vec3f<?>> Vec3f<?> setToPointInLimits(V inPoint, float[] inBounds, Vec3f<?> storeIn, ConstraintScratch scratch) {
 
-		Vec3f<?> point = inPoint.copy(); 
+		Vec3f<?> point = scratch.point.set(inPoint); 
 		point.normalize(); 		
 		//point.mult(attachedTo.boneHeight);
 
 		inBounds[0] = -1;
 
-		Vec3f<?> closestCollisionPoint = null; 
+		boolean collided = false; 
 		float closestCos = -2f;
-		if (limitCones.size() > 1 && this.orientationallyConstrained) {
+		byte[] table = boundsTable;
+		if (limitCones.size() > 1 && this.orientationallyConstrained 
+				&& table != null && table[boundsTableCell(point, boundsTableResolution)] == CELL_INSIDE) {
+			inBounds[0] = 1;
+			storeIn.set(inPoint);
+		} else if (limitCones.size() > 1 && this.orientationallyConstrained) {
 			for (int i =0; i<limitCones.size() -1; i++) {
-				Vec3f<?> collisionPoint = inPoint.copy(); collisionPoint.set(0,0,0);
+				Vec3f<?> collisionPoint = scratch.collisionPoint; collisionPoint.set(0,0,0);
 				AbstractLimitCone nextCone = limitCones.get(i+1);				
-				boolean inSegBounds = limitCones.get(i).inBoundsFromThisToNext(nextCone, point, collisionPoint);				
+				boolean inSegBounds = limitCones.get(i).inBoundsFromThisToNext(nextCone, point, collisionPoint, scratch);				
 				if( inSegBounds == true) {
 					inBounds[0] = 1;  
 				} else {
 					float thisCos =  collisionPoint.dot(point); 
-					if(closestCollisionPoint == null || thisCos > closestCos) {
-						closestCollisionPoint = collisionPoint.copy();
+					if(!collided || thisCos > closestCos) {
+						scratch.closestPoint.set(collisionPoint);
+						collided = true;
 						closestCos = thisCos;
 					}
 				} 
 			}   
 			if (inBounds[0] == -1) { 
-				return closestCollisionPoint;
+				storeIn.set(scratch.closestPoint);
 			} else { 
-				return point;
+				storeIn.set(point);
 			}
 		} else if(orientationallyConstrained) {
 			float pointdot = point.dot(limitCones.get(0).getControlPoint()); 
 			float radcos = limitCones.get(0).getRadiusCosine();
 			if(pointdot > radcos) {
 				inBounds[0] = 1;
-				return inPoint;
+				storeIn.set(inPoint);
 			} else {
-				Vec3f<?> axis = limitCones.get(0).getControlPoint().crossCopy(point);
+				Vec3f<?> axis = scratch.collisionPoint.set(limitCones.get(0).getControlPoint()).crs(point);
 				//Rot toLimit = new Rot(limitCones.get(0).getControlPoint(), point);
-				Rot toLimit = new Rot(axis, limitCones.get(0).getRadius());
-				Vec3f<?> newPoint = toLimit.applyToCopy(limitCones.get(0).getControlPoint());
-				return newPoint;
+				Rot toLimit = scratch.rot; 
+				toLimit.set(axis, limitCones.get(0).getRadius());
+				toLimit.applyTo(limitCones.get(0).getControlPoint(), storeIn);
 			}
 		} else {
 			inBounds[0] = 1;
-			return inPoint;
+			storeIn.set(inPoint);
 		}
+		return storeIn;
 	}
 	
 	
@@ -463,6 +685,36 @@ public abstract class AbstractKusudama implements Constraint, Saveable {
 		return limitingAxes.getGlobalOf(result); 
 	}
 
+	/**
+	 * Same as pointOnPathSequence, but thread-safe so long as each thread passes its own scratch. 
+	 * storeIn may be any of the scratch's vectors other than point, collisionPoint or closestPoint.
+	 */
+	public Vec3f<?> setToPointOnPathSequence(Vec3f<?> inPoint, AbstractAxes limitingAxes, Vec3f<?> storeIn, ConstraintScratch scratch) {
+		float closestPointDot = 0f; 
+		Vec3f<?> point = scratch.point;
+		limitingAxes.setToLocalOf(inPoint, point);
+		point.normalize();
+		Vec3f<?> result = scratch.closestPoint.set(point);
+				
+		if(limitCones.size() == 1) {
+			result.set(limitCones.get(0).controlPoint);
+		} else {
+			Vec3f<?> closestPathPoint = scratch.collisionPoint;
+			for (int i =0; i<limitCones.size() -1; i++) {
+				AbstractLimitCone nextCone = limitCones.get(i+1);
+				limitCones.get(i).setToClosestPathPoint(nextCone, point, closestPathPoint, scratch);
+				float closeDot = closestPathPoint.dot(point);
+				if(closeDot > closestPointDot) {
+					result.set(closestPathPoint);
+					closestPointDot = closeDot;
+				}
+			}
+		}		
+		
+		limitingAxes.setToGlobalOf(result, storeIn);
+		return storeIn;
+	}
+
 	//public float softLimit
 
 	public AbstractBone attachedTo() {
@@ -0,0 +1,154 @@
+package IK.floatIK;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many armatures at once (crowds, for example) by spreading them across the
+ * worker threads of a ForkJoinPool, which balances the load between threads by work stealing.
+ *
+ * Every armature keeps its own working state, so armatures can be solved concurrently
+ * so long as no bone or pin belongs to more than one of them. Armatures may share constraints,
+ * as each segment evaluates constraints with its own {@link ConstraintScratch}. Armatures (or their targets)
+ * may share parent axes, as the shared axes are brought up to date on the calling thread before solving begins.
+ */
+public class ArmatureBatchSolver {
+
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private ArrayList<AbstractArmature> armatures = new ArrayList<>();
+	private ArrayList<AbstractBone> solveFrom = new ArrayList<>();
+
+	/**
+	 * creates a batch solver which runs on the common ForkJoinPool.
+	 */
+	public ArmatureBatchSolver() {
+		this(ForkJoinPool.commonPool(), false);
+	}
+
+	/**
+	 * creates a batch solver with its own pool of the given number of worker threads.
+	 * Call {@link #shutdown()} once you're done with it.
+	 */
+	public ArmatureBatchSolver(int threadCount) {
+		this(new ForkJoinPool(threadCount), true);
+	}
+
+	/**
+	 * creates a batch solver which runs on the given pool.
+	 */
+	public ArmatureBatchSolver(ForkJoinPool pool) {
+		this(pool, false);
+	}
+
+	private ArmatureBatchSolver(ForkJoinPool pool, boolean ownsPool) {
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+	}
+
+	/**
+	 * adds an armature to the batch, to be solved from its root bone.
+	 */
+	public void add(AbstractArmature armature) {
+		add(armature, armature.getRootBone());
+	}
+
+	/**
+	 * adds an armature to the batch, to be solved from the given bone.
+	 * If the armature is already in the batch, only the bone it should be solved from is updated.
+	 */
+	public void add(AbstractArmature armature, AbstractBone startFrom) {
+		int idx = armatures.indexOf(armature);
+		if(idx == -1) {
+			armatures.add(armature);
+			solveFrom.add(startFrom);
+		} else {
+			solveFrom.set(idx, startFrom);
+		}
+	}
+
+	public void remove(AbstractArmature armature) {
+		int idx = armatures.indexOf(armature);
+		if(idx != -1) {
+			armatures.remove(idx);
+			solveFrom.remove(idx);
+		}
+	}
+
+	public void clear() {
+		armatures.clear();
+		solveFrom.clear();
+	}
+
+	public int size() {
+		return armatures.size();
+	}
+
+	/**
+	 * solves every armature in the batch using its default IK parameters,
+	 * and returns once all of them have been solved.
+	 */
+	public void solve() {
+		solve(-1, -1, -1);
+	}
+
+	/**
+	 * solves every armature in the batch using the given parameters, and returns once all of them have been solved.
+	 * see {@link AbstractArmature#IKSolver(AbstractBone, float, int, int)}
+	 */
+	public void solve(float dampening, int iterations, int stabilizingPasses) {
+		if(armatures.size() == 0) return;
+		for(int i = 0; i < armatures.size(); i++) {
+			prepareForConcurrentSolve(armatures.get(i));
+		}
+		pool.invoke(new BatchSolveTask(0, armatures.size(), dampening, iterations, stabilizingPasses));
+	}
+
+	/**
+	 * shuts down the pool this batch solver runs on, if the batch solver created it.
+	 */
+	public void shutdown() {
+		if(ownsPool) pool.shutdown();
+	}
+
+	/**
+	 * updates the global state of the axes every armature solve reads from but doesn't own
+	 * (the armature's own coordinate system, and the targets of its pins), so that
+	 * concurrent solves never need to write to any axes they might share.
+	 */
+	private void prepareForConcurrentSolve(AbstractArmature armature) {
+		armature.localAxes().updateGlobal();
+		for(AbstractBone b : armature.bones) {
+			if(b.getIKPin() != null) {
+				b.getPinnedAxes().updateGlobal();
+			}
+		}
+	}
+
+	private class BatchSolveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final int from, to;
+		final float dampening;
+		final int iterations, stabilizingPasses;
+
+		BatchSolveTask(int from, int to, float dampening, int iterations, int stabilizingPasses) {
+			this.from = from;
+			this.to = to;
+			this.dampening = dampening;
+			this.iterations = iterations;
+			this.stabilizingPasses = stabilizingPasses;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				armatures.get(from).IKSolver(solveFrom.get(from), dampening, iterations, stabilizingPasses);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BatchSolveTask(from, mid, dampening, iterations, stabilizingPasses),
+						new BatchSolveTask(mid, to, dampening, iterations, stabilizingPasses));
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package IK.floatIK;
+
+import math.floatV.Rot;
+import math.floatV.SGVec_3f;
+import math.floatV.sgRayf;
+
+/**
+ * Working storage for evaluating kusudamas and their limit cones.
+ *
+ * Constraint methods which accept a ConstraintScratch write only to it (and to the axes they are asked to modify),
+ * never to the constraint itself. So a single kusudama definition can be evaluated by any number of threads at once,
+ * so long as each thread passes its own ConstraintScratch. The solver keeps one per SegmentedArmature.
+ *
+ * The overloads which don't accept a ConstraintScratch use one owned by the kusudama, and so
+ * should only be called by one thread at a time.
+ */
+public class ConstraintScratch {
+	//used by AbstractKusudama
+	float[] inBounds = {1f};
+	SGVec_3f boneTip = new SGVec_3f();
+	SGVec_3f inLimits = new SGVec_3f();
+	SGVec_3f point = new SGVec_3f();
+	SGVec_3f collisionPoint = new SGVec_3f();
+	SGVec_3f closestPoint = new SGVec_3f();
+	SGVec_3f fromHeading = new SGVec_3f();
+	SGVec_3f toHeading = new SGVec_3f();
+	sgRayf boneRay = new sgRayf(new SGVec_3f(), new SGVec_3f());
+	sgRayf constrainedRay = new sgRayf(new SGVec_3f(), new SGVec_3f());
+	Rot rot = new Rot();
+	Rot alignRot = new Rot();
+
+	//used by AbstractLimitCone
+	SGVec_3f coneCross = new SGVec_3f();
+	SGVec_3f coneVector = new SGVec_3f();
+	SGVec_3f pathU = new SGVec_3f();
+	SGVec_3f pathV = new SGVec_3f();
+	Rot coneRot = new Rot();
+}
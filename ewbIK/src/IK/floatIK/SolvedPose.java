@@ -0,0 +1,55 @@
+package IK.floatIK;
+
+import math.floatV.AbstractAxes;
+import math.floatV.AbstractBasis;
+import math.floatV.MRotation;
+import math.floatV.MathUtils;
+
+/**
+ * The global position and orientation some axes had when they were last solved against, 
+ * so that later solves can tell whether the axes have since moved by more than some tolerance. 
+ * 
+ */
+class SolvedPose {
+	private boolean recorded = false;
+	private float x, y, z;
+	private float q0, q1, q2, q3;
+
+	/**
+	 * records the current global position and orientation of the given axes.
+	 */
+	void record(AbstractAxes axes) {
+		AbstractBasis global = axes.getGlobalMBasis();
+		MRotation r = global.rotation.rotation;
+		x = global.translate.x; 
+		y = global.translate.y;
+		z = global.translate.z;
+		q0 = r.getQ0(); q1 = r.getQ1(); q2 = r.getQ2(); q3 = r.getQ3();
+		recorded = true;
+	}
+
+	/**
+	 * forgets the recorded pose, so that {@link #differs(AbstractAxes, float, float)} returns true until the next call to record.
+	 */
+	void invalidate() {
+		recorded = false;
+	}
+
+	/**
+	 * @param axes 
+	 * @param positionEpsilon the furthest the axes' origin may be from the recorded origin 
+	 * @param cosHalfOrientationEpsilon the cosine of half of the largest angle the axes' orientation may be from the recorded orientation
+	 * @return true if nothing has been recorded, or if the axes have moved or turned by more than the given tolerances since it was. 
+	 */
+	boolean differs(AbstractAxes axes, float positionEpsilon, float cosHalfOrientationEpsilon) {
+		if(!recorded) return true;
+		AbstractBasis global = axes.getGlobalMBasis();
+		float xd = global.translate.x - x;
+		float yd = global.translate.y - y;
+		float zd = global.translate.z - z;
+		if(xd*xd + yd*yd + zd*zd > positionEpsilon*positionEpsilon) return true;
+		MRotation r = global.rotation.rotation;
+		float dot = r.getQ0()*q0 + r.getQ1()*q1 + r.getQ2()*q2 + r.getQ3()*q3;
+		return MathUtils.abs(dot) < cosHalfOrientationEpsilon;
+	}
+}
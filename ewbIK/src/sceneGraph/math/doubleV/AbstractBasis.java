@@ -140,9 +140,8 @@ public abstract class AbstractBasis {
 	public <T extends AbstractBasis> void adoptValues(T in) {
 		this.translate.set(in.translate);
 		this.rotation.set(in.rotation);
-		xBase = translate.copy(); yBase = translate.copy(); zBase = translate.copy(); 
 		xBase.set(1,0,0); yBase.set(0,1,0); zBase.set(0,0,1);
-		xRay = in.xRay.copy(); yRay= in.yRay.copy(); zRay = in.zRay.copy();	
+		//no need to copy the input's rays, refreshPrecomputed() recomputes ours from the translation and rotation.
 		this.refreshPrecomputed();
 	}
 	
@@ -183,8 +182,17 @@ public abstract class AbstractBasis {
 			return resultNew;			
 	}
 	
+	/**
+	 * same as getLocalOfRotation, but writes the result into storeIn
+	 * instead of allocating. storeIn may be the same object as inRot.
+	 */
+	public void setToLocalOfRotation(Rot inRot, Rot storeIn) {
+		inverseRotation.applyTo(inRot, storeIn);
+		storeIn.applyTo(rotation, storeIn);
+	}
+	
 	public <B extends AbstractBasis> void setToLocalOf(B global_input, B local_output) {
-		local_output.translate = this.getLocalOf(global_input.translate);
+		this.setToLocalOf(global_input.translate, local_output.translate);
 		inverseRotation.applyTo(global_input.rotation, local_output.rotation); 
 		
 		local_output.refreshPrecomputed();
@@ -0,0 +1,243 @@
+package math.doubleV;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * An alternative to the dependency registry for keeping a tree of axes up to date.
+ *
+ * Normally, marking an axes dirty walks its dependentsRegistry (and recursively, theirs) to mark every descendant dirty as well,
+ * iterating a linked list of weak references through a lambda at every level. An AxesHierarchy instead stores its members
+ * in a flat array in depth first order, so that every member's descendants occupy the contiguous range of indices
+ * following it, and keeps their dirty flags in a parallel array. Marking a member dirty is then a loop over that range
+ * which skips any sub-range already marked (a dirty member's descendants are always dirty too), checking whether a member
+ * is up to date is a single array read, and bringing a member up to date walks rootward only as far as its nearest
+ * clean ancestor before recomputing back down. {@link #updateGlobals()} brings every member up to date in a single linear sweep.
+ *
+ * The hierarchy always contains every axes descended from its roots, so no member has dependents outside of it.
+ * Any other kind of AxisDependency registered with a member is still notified the usual way whenever that member is marked dirty.
+ * The roots themselves may have parents outside of the hierarchy, which keep notifying them as usual.
+ *
+ * The AbstractAxes API is unchanged for members. But a hierarchy describes the tree it was built from,
+ * so any structural change to a member (reparenting it, or adding or removing a dependent) releases every member
+ * back to the dependency registry, after which {@link #isReleased()} returns true and a new hierarchy must be built
+ * if one is still wanted.
+ *
+ * Like AbstractAxes, an AxesHierarchy can be updated by multiple threads at once only so long as they don't write
+ * to the same axes.
+ */
+public class AxesHierarchy {
+
+	private final AbstractAxes[] axes;
+	/**index of each member's parent, or -1 if the member is a root*/
+	private final int[] parentIndices;
+	/**one past the index of each member's last descendant*/
+	private final int[] subtreeEnds;
+	/**whether each member's global basis needs recomputing. Whenever a member is stale, so are all of its descendants*/
+	private final boolean[] stale;
+	/**members which have dependents other than axes, and so must still notify them when marked dirty*/
+	private final boolean[] hasOtherDependents;
+	private boolean released = false;
+
+	/**
+	 * builds a hierarchy out of the given axes and every axes which depends on them.
+	 * Any of those axes which already belong to another hierarchy are released from it first.
+	 * @param roots the rootmost axes of the hierarchy. None may be a descendant of another.
+	 */
+	public AxesHierarchy(AbstractAxes... roots) {
+		ArrayList<AbstractAxes> order = new ArrayList<>();
+		ArrayList<Integer> parentList = new ArrayList<>();
+		ArrayList<Boolean> otherDependents = new ArrayList<>();
+		IdentityHashMap<AbstractAxes, Integer> indexOf = new IdentityHashMap<>();
+		ArrayDeque<AbstractAxes> toVisit = new ArrayDeque<>();
+		ArrayDeque<Integer> toVisitParents = new ArrayDeque<>();
+		for(int r = roots.length-1; r >= 0; r--) {
+			toVisit.push(roots[r]);
+			toVisitParents.push(-1);
+		}
+		ArrayList<AbstractAxes> children = new ArrayList<>();
+		while(!toVisit.isEmpty()) {
+			AbstractAxes current = toVisit.pop();
+			int parentIndex = toVisitParents.pop();
+			if(indexOf.containsKey(current))
+				continue;
+			int index = order.size();
+			indexOf.put(current, index);
+			order.add(current);
+			parentList.add(parentIndex);
+			boolean other = false;
+			children.clear();
+			for(AbstractAxes.DependencyReference<AxisDependency> dr : current.dependentsRegistry) {
+				AxisDependency d = dr.get();
+				if(d instanceof AbstractAxes && ((AbstractAxes)d).getParentAxes() == current) {
+					children.add((AbstractAxes)d);
+				} else if(d != null) {
+					other = true;
+				}
+			}
+			otherDependents.add(other);
+			//pushed in reverse, so that children keep the order they were registered in
+			for(int c = children.size()-1; c >= 0; c--) {
+				toVisit.push(children.get(c));
+				toVisitParents.push(index);
+			}
+		}
+		int count = order.size();
+		axes = new AbstractAxes[count];
+		parentIndices = new int[count];
+		subtreeEnds = new int[count];
+		stale = new boolean[count];
+		hasOtherDependents = new boolean[count];
+		for(int i = 0; i < count; i++) {
+			AbstractAxes a = order.get(i);
+			if(a.hierarchy != null)
+				a.hierarchy.release();
+			axes[i] = a;
+			parentIndices[i] = parentList.get(i);
+			subtreeEnds[i] = i+1;
+			stale[i] = a.dirty || (parentIndices[i] != -1 && stale[parentIndices[i]]);
+			hasOtherDependents[i] = otherDependents.get(i);
+			a.hierarchy = this;
+			a.hierarchyIndex = i;
+		}
+		for(int i = count-1; i >= 0; i--) {
+			int p = parentIndices[i];
+			if(p != -1 && subtreeEnds[i] > subtreeEnds[p])
+				subtreeEnds[p] = subtreeEnds[i];
+		}
+	}
+
+	/**
+	 * brings the global basis of every member up to date, recomputing only those which are stale.
+	 */
+	public void updateGlobals() {
+		for(int i = 0; i < axes.length; i++) {
+			if(stale[i])
+				refresh(i);
+		}
+	}
+
+	/**
+	 * brings the global basis of the member at the given index (and its ancestors) up to date.
+	 */
+	void updateGlobal(int index) {
+		if(!stale[index])
+			return;
+		int current = index;
+		for(int p = parentIndices[current]; p != -1 && stale[p]; p = parentIndices[current])
+			current = p;
+		refresh(current);
+		while(current != index) {
+			//the child of current whose subtree contains index
+			int child = current+1;
+			while(subtreeEnds[child] <= index)
+				child = subtreeEnds[child];
+			refresh(child);
+			current = child;
+		}
+	}
+
+	/**
+	 * recomputes the global basis of the member at the given index, presuming its parent is up to date.
+	 */
+	private void refresh(int index) {
+		AbstractAxes a = axes[index];
+		if(a.areGlobal) {
+			a.globalMBasis.adoptValues(a.localMBasis);
+		} else {
+			int p = parentIndices[index];
+			AbstractAxes parent;
+			if(p == -1) {
+				parent = a.getParentAxes();
+				parent.updateGlobal();
+			} else {
+				parent = axes[p];
+			}
+			parent.globalMBasis.setToGlobalOf(a.localMBasis, a.globalMBasis);
+		}
+		stale[index] = false;
+	}
+
+	/**
+	 * @return true if the global basis of the member at the given index would be recomputed by updateGlobal.
+	 */
+	boolean isStale(int index) {
+		return stale[index];
+	}
+
+	/**
+	 * called when the member at the given index is marked dirty.
+	 */
+	void markDirty(int index) {
+		markStale(index, true);
+	}
+
+	/**
+	 * marks the member at the given index (and so its descendants) stale without notifying any of their other dependents,
+	 * for callers which would otherwise have set the axes' dirty flag directly.
+	 */
+	void invalidate(int index) {
+		markStale(index, false);
+	}
+
+	private void markStale(int index, boolean notifyOthers) {
+		int end = subtreeEnds[index];
+		int i = index;
+		while(i < end) {
+			if(stale[i]) {
+				i = subtreeEnds[i];
+			} else {
+				stale[i] = true;
+				if(notifyOthers && hasOtherDependents[i])
+					axes[i].markDependentsDirty();
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * returns every member to the dependency registry, marking all of them dirty.
+	 */
+	public void release() {
+		if(released) return;
+		released = true;
+		for(AbstractAxes a : axes) {
+			if(a.hierarchy == this) {
+				a.hierarchy = null;
+				a.hierarchyIndex = -1;
+				a.dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * @return true if this hierarchy no longer manages its axes, either because {@link #release()} was called,
+	 * or because one of its members changed structurally.
+	 */
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * @return the number of axes in this hierarchy
+	 */
+	public int size() {
+		return axes.length;
+	}
+
+	/**
+	 * @return the axes at the given index. Every axes' parent appears at a lower index than it does,
+	 * and its descendants at the indices immediately following it.
+	 */
+	public AbstractAxes getAxes(int index) {
+		return axes[index];
+	}
+
+	/**
+	 * @return the index of the parent of the axes at the given index, or -1 if that axes is one of the roots.
+	 */
+	public int getParentIndex(int index) {
+		return parentIndices[index];
+	}
+}
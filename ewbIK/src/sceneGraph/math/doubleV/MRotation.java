@@ -779,6 +779,31 @@ public class MRotation {
 		return 2 * Math.acos(q0);
 	}
 
+	/** Get the angle of the twist component of this rotation about the y axis. 
+	 * <p>This is the twist rotation's angle multiplied by the y component of its axis, 
+	 * as would be found from the twist returned by Rot.getSwingTwist for the y axis, 
+	 * but computed directly from this rotation's components without constructing the twist (or swing).</p>
+	 * @return the signed angle of the twist about the y axis (between -&pi; and &pi;)
+	 */
+	public double getYTwistAngle() {
+		double inv = 1.0 / Math.sqrt(q0 * q0 + q2 * q2);
+		double tw = q0 * inv;
+		double ty = q2 * inv;
+		double squaredSine = ty * ty;
+		if (squaredSine == 0) 
+			return 0;
+		double angle;
+		if ((tw < -0.1) || (tw > 0.1)) {			
+			angle = 2 * Math.asin(Math.sqrt(squaredSine));
+		} else if (tw < 0) {
+			angle = 2 * Math.acos(-tw);
+		} else {
+			angle = 2 * Math.acos(tw);
+		}
+		double axisY = tw < 0 ? ty * (1 / Math.sqrt(squaredSine)) : ty * (-1 / Math.sqrt(squaredSine));
+		return angle * axisY;
+	}
+
 	/** Get the Cardan or Euler angles corresponding to the instance.
 	 * <p>The equations show that each rotation can be defined by two
 	 * different values of the Cardan or Euler angles set. For example
@@ -1307,6 +1332,24 @@ public class MRotation {
 
 	}
 
+	/** Apply the rotation to a vector, storing the result in output.
+	 * Uses no intermediate storage, so is safe to call concurrently on a shared rotation.
+	 * @param u vector to apply the rotation to
+	 * @param output vector to put the result in (may be the same object as u)
+	 */
+	public <T extends Vec3d<?>> void applyTo(T u, T output) {
+
+		final double x = u.x;
+		final double y = u.y;
+		final double z = u.z;
+
+		final double s = q1 * x + q2 * y + q3 * z;
+
+		output.set(2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x,
+				2 * (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y,
+				2 * (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
 	/** Apply the inverse of the rotation to a vector.
 	 * @param u vector to apply the inverse of the rotation to
 	 * @return a new vector which such that u is its image by the rotation
@@ -1348,6 +1391,25 @@ public class MRotation {
 
 	}
 
+	/** Apply the inverse of the rotation to a vector, storing the result in output.
+	 * Uses no intermediate storage, so is safe to call concurrently on a shared rotation.
+	 * @param u vector to apply the inverse of the rotation to
+	 * @param output vector to put the result in (may be the same object as u)
+	 */
+	public <T extends Vec3d<?>> void applyInverseTo(T u, T output) {
+
+		final double x = u.x;
+		final double y = u.y;
+		final double z = u.z;
+
+		final double s = q1 * x + q2 * y + q3 * z;
+		final double m0 = -q0;
+
+		output.set(2 * (m0 * (x * m0 - (q2 * z - q3 * y)) + s * q1) - x,
+				2 * (m0 * (y * m0 - (q3 * x - q1 * z)) + s * q2) - y,
+				2 * (m0 * (z * m0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
 	/** Apply the instance to another rotation.
 	 * Applying the instance to a rotation is computing the composition
 	 * in an order compliant with the following rule : let u be any
@@ -1488,15 +1550,20 @@ public class MRotation {
 				q3 / norm);
 	}
 
+	/**
+	 * sets this rotation to the shortest rotation taking u to v. 
+	 * Behaves like the equivalent constructor (including returning 
+	 * identity for zero-length inputs), but doesn't allocate in the general case. 
+	 */
 	public <V extends Vec3d<?>> void set(V u, V v) {
 
 		double normProduct = u.mag() * v.mag();
 		if (normProduct == 0) {
-			try {
-				throw new Exception("Zero Norm for Rotation defining vector");
-			} catch (Exception e) {
-				e.printStackTrace(System.out);
-			}
+			this.q0 = 1d;
+			this.q1= 0d;
+			this.q2 =0d;
+			this.q3=0d;
+			return;
 		}
 
 		double dot = u.dot(v);
@@ -1514,10 +1581,10 @@ public class MRotation {
 			// the shortest possible rotation: axis orthogonal to this plane
 			q0 = Math.sqrt(0.5 * (1.0 + dot / normProduct));
 			double coeff = 1.0 / (2.0 * q0 * normProduct);
-			V q = (V) v.crossCopy(u);
-			q1 = coeff * q.x;
-			q2 = coeff * q.y;
-			q3 = coeff * q.z;
+			//v cross u, written out so as not to allocate. 
+			q1 = coeff * (v.y * u.z - v.z * u.y);
+			q2 = coeff * (v.z * u.x - v.x * u.z);
+			q3 = coeff * (v.x * u.y - v.y * u.x);
 		}
 
 	}
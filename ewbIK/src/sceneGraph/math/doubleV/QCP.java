@@ -98,6 +98,11 @@ public class QCP {
 
 	private SGVec_3d targetCenter = new SGVec_3d();
 	private SGVec_3d movedCenter = new SGVec_3d();
+	/**double precision copies of the arguments to the last single precision superposition*/
+	private SGVec_3d[] floatMoved, floatTarget;
+	private double[] floatWeight;
+	/**vector copies of the only point of a packed superposition of a single point*/
+	private SGVec_3d[] singleMoved, singleTarget;
 
 	private double e0;
 	// private Matrix3f rotmat = new Matrix3f();
@@ -152,6 +157,7 @@ public class QCP {
 	private void set(SGVec_3d[] target, SGVec_3d[] moved) {
 		this.moved = target;
 		this.target = moved;
+		this.length = moved.length;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 		innerProductCalculated = false;
@@ -172,17 +178,25 @@ public class QCP {
 		this.target = target;
 		this.moved = moved;
 		this.weight = weight;
+		this.length = moved.length;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 		innerProductCalculated = false;
+		//reset accumulators so that a single QCP instance can be reused across calls. 
+		wsum = 0d;
 
 		if (translate) {
+			movedCenter.set(0d, 0d, 0d);
+			targetCenter.set(0d, 0d, 0d);
 			moveToWeightedCenter(this.moved, weight, movedCenter);
 			wsum = 0d; // set wsum to 0 so we don't double up.
 			moveToWeightedCenter(this.target, weight, targetCenter);
-			translate(movedCenter.multCopy(-1d), this.moved);
-			translate(targetCenter.multCopy(-1d), this.target);
+			untranslate(movedCenter, this.moved);
+			untranslate(targetCenter, this.target);
 		} else {
+			//no translation, so make sure getTranslation doesn't report the last superposition's
+			movedCenter.set(0d, 0d, 0d);
+			targetCenter.set(0d, 0d, 0d);
 			if (weight != null) {
 				for (int i = 0; i < weight.length; i++) {
 					wsum += weight[i];
@@ -210,6 +224,33 @@ public class QCP {
 		return rmsd;
 	}
 
+	/**
+	 * Returns the weighted mean squared distance between the target points and the moved points
+	 * of the last superposition, as it would be after applying the given rotation to the moved points. 
+	 * This is computed from the inner products the superposition already required, 
+	 * so costs the same regardless of how many points there are. 
+	 * 
+	 * Only valid after a superposition which didn't translate, and for rotations about the origin
+	 * of the coordinate sets.
+	 *
+	 * @param r the rotation to apply to the moved points (the identity gives their current error)
+	 * @return the weighted mean squared distance after rotating the moved points by r
+	 */
+	public double getWeightedMSDAfterRotating(MRotation r) {
+		if (!innerProductCalculated)
+			innerProduct(target, moved);
+		double q0 = r.getQ0(), q1 = r.getQ1(), q2 = r.getQ2(), q3 = r.getQ3();
+		double q0q0 = q0 * q0, q1q1 = q1 * q1, q2q2 = q2 * q2, q3q3 = q3 * q3;
+		double q0q1 = q0 * q1, q0q2 = q0 * q2, q0q3 = q0 * q3;
+		double q1q2 = q1 * q2, q1q3 = q1 * q3, q2q3 = q2 * q3;
+		// sum over i, j of R[i][j] * S[i][j], where R is the matrix of r as applied by MRotation.applyTo
+		// and S[i][j] is the weighted sum of (target_i * moved_j).
+		double correlation = (2d * (q0q0 + q1q1) - 1d) * Sxx + 2d * (q1q2 + q0q3) * Sxy + 2d * (q1q3 - q0q2) * Sxz
+				+ 2d * (q1q2 - q0q3) * Syx + (2d * (q0q0 + q2q2) - 1d) * Syy + 2d * (q2q3 + q0q1) * Syz
+				+ 2d * (q1q3 + q0q2) * Szx + 2d * (q2q3 - q0q1) * Szy + (2d * (q0q0 + q3q3) - 1d) * Szz;
+		return 2d * (e0 - correlation) / wsum;
+	}
+
 	/**
 	 * Weighted superposition.
 	 *
@@ -227,7 +268,32 @@ public class QCP {
 	}
 	
 	/**
-	 * Weighted superposition.
+	 * Weighted superposition, writing the result into the provided Rot 
+	 * instead of allocating a new one. 
+	 *
+	 * @param moved
+	 * @param target
+	 * @param weight
+	 *            array of weigths for each equivalent point position
+	 * @param translate
+	 * @param storeIn the Rot to which the optimal rotation should be written
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3d<?>> Rot weightedSuperpose(V[] moved, V[] target, double[] weight, boolean translate, Rot storeIn) {
+		set(moved, target, weight, translate);
+		if (!innerProductCalculated)
+			innerProduct(target, moved);
+		calcRotation(storeIn);
+		transformationCalculated = true;
+		return storeIn;
+	}
+	
+	/**
+	 * Weighted superposition of single precision coordinates, computed in double precision. 
+	 * The coordinates are copied into buffers this QCP instance keeps for reuse, so only grow 
+	 * the first time a larger set is superposed. 
+	 * 
+	 * @deprecated use {@link math.floatV.QCP}, which superposes single precision coordinates directly, without copying them.
 	 *
 	 * @param fixed
 	 * @param moved
@@ -235,29 +301,96 @@ public class QCP {
 	 *            array of weigths for each equivalent point position
 	 * @return
 	 */
+	@Deprecated
 	public <V extends Vec3f<?>> Rot weightedSuperpose( V[] moved, V[] target, float[] weight, boolean translate) {
-		double[] weightd = null;
-		if(weight != null) weightd = new double[moved.length];
-		
-		SGVec_3d[] movedd = new SGVec_3d[moved.length];
-		SGVec_3d[] targetd = new SGVec_3d[target.length];
+		int count = moved.length;
+		if(floatMoved == null || floatMoved.length != count) {
+			floatMoved = new SGVec_3d[count];
+			floatTarget = new SGVec_3d[count];
+			floatWeight = new double[count];
+			for(int i = 0; i < count; i++) {
+				floatMoved[i] = new SGVec_3d();
+				floatTarget[i] = new SGVec_3d();
+			}
+		}
 		
-		for(int i =0; i< moved.length; i++) {
+		for(int i =0; i< count; i++) {
 			if(weight != null)
-				weightd[i] = weight[i];
+				floatWeight[i] = weight[i];
 			
-			movedd[i] = new SGVec_3d((double)moved[i].x, (double)moved[i].y, (double)moved[i].z);
-			targetd[i] = new SGVec_3d((double)target[i].x, (double)target[i].y, (double)target[i].z);
+			floatMoved[i].set((double)moved[i].x, (double)moved[i].y, (double)moved[i].z);
+			floatTarget[i].set((double)target[i].x, (double)target[i].y, (double)target[i].z);
 		}
 		
 		
-		set(movedd, targetd, weightd, translate);
+		set(floatMoved, floatTarget, weight == null ? null : floatWeight, translate);
 		Rot result = getRotation();
 		//transformation.set(rotmat);
 		return result;//transformation;
 	}
 
 
+	/**
+	 * Weighted superposition of packed coordinates, writing the result into the provided Rot. 
+	 * Each coordinate set is given as a single array of interleaved x, y, z values 
+	 * (so the i'th point is at [3*i], [3*i+1], [3*i+2]), which the accumulation loops 
+	 * can read sequentially rather than by dereferencing a vector object per point. 
+	 * 
+	 * If translate is true, both arrays are centered in place (as with the vector overloads).
+	 *
+	 * @param moved packed coordinates of the points to superpose onto target
+	 * @param target packed coordinates of the points to superpose moved onto 
+	 * @param weight a weight for each point, or null to weigh them equally
+	 * @param translate
+	 * @param storeIn the Rot to which the optimal rotation should be written
+	 * @return storeIn, for chaining
+	 */
+	public Rot weightedSuperpose(double[] moved, double[] target, double[] weight, boolean translate, Rot storeIn) {
+		int count = moved.length / 3;
+		this.weight = weight;
+		this.length = count;
+		rmsdCalculated = false;
+		transformationCalculated = false;
+		innerProductCalculated = false;
+		wsum = 0d;
+		if (translate) {
+			moveToWeightedCenter(moved, weight, count, movedCenter);
+			wsum = 0d; // set wsum to 0 so we don't double up.
+			moveToWeightedCenter(target, weight, count, targetCenter);
+			untranslate(movedCenter, moved);
+			untranslate(targetCenter, target);
+		} else {
+			//no translation, so make sure getTranslation doesn't report the last superposition's
+			movedCenter.set(0d, 0d, 0d);
+			targetCenter.set(0d, 0d, 0d);
+			if (weight != null) {
+				for (int i = 0; i < count; i++) {
+					wsum += weight[i];
+				}
+			} else {
+				wsum = count;
+			}
+		}
+		if (count == 1) {
+			//the single point case works from vectors, so hand it (and getRmsd) copies of the only point
+			if (singleMoved == null) {
+				singleMoved = new SGVec_3d[] {new SGVec_3d()};
+				singleTarget = new SGVec_3d[] {new SGVec_3d()};
+			}
+			singleMoved[0].set(moved[0], moved[1], moved[2]);
+			singleTarget[0].set(target[0], target[1], target[2]);
+			this.moved = singleMoved;
+			this.target = singleTarget;
+		} else {
+			this.moved = null;
+			this.target = null;
+		}
+		innerProduct(target, moved, count);
+		calcRotation(storeIn);
+		transformationCalculated = true;
+		return storeIn;
+	}
+
 	private Rot getRotation() {
 		Rot result = null;
 		if (!transformationCalculated) {
@@ -281,7 +414,7 @@ public class QCP {
 	private <V extends Vec3d<?>> void calcRmsd(V[] x, V[] y) {
 		// QCP doesn't handle alignment of single values, so if we only have one point
 		// we just compute regular distance.
-		if (x.length == 1) {
+		if (length == 1) {
 			rmsd = x[0].dist(y[0]);
 			rmsdCalculated = true;
 		} else {
@@ -381,6 +514,63 @@ public class QCP {
 		innerProductCalculated = true;
 	}
 
+	/**
+	 * equivalent of {@link #innerProduct(Vec3d[], Vec3d[])} for packed coordinates.
+	 */
+	private void innerProduct(double[] coords1, double[] coords2, int count) {
+		double g1 = 0d, g2 = 0d;
+		double sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+
+		for (int i = 0, c = 0; i < count; i++, c += 3) {
+			double w = weight != null ? weight[i] : 1d;
+			double c1x = coords1[c], c1y = coords1[c + 1], c1z = coords1[c + 2];
+			double x2 = coords2[c], y2 = coords2[c + 1], z2 = coords2[c + 2];
+			double x1, y1, z1;
+			if (weight != null) {
+				x1 = w * c1x;
+				y1 = w * c1y;
+				z1 = w * c1z;
+				g1 += x1 * c1x + y1 * c1y + z1 * c1z;
+				g2 += w * (x2 * x2 + y2 * y2 + z2 * z2);
+			} else {
+				x1 = c1x;
+				y1 = c1y;
+				z1 = c1z;
+				g1 += c1x * c1x + c1y * c1y + c1z * c1z;
+				g2 += x2 * x2 + y2 * y2 + z2 * z2;
+			}
+
+			sxx += (x1 * x2);
+			sxy += (x1 * y2);
+			sxz += (x1 * z2);
+
+			syx += (y1 * x2);
+			syy += (y1 * y2);
+			syz += (y1 * z2);
+
+			szx += (z1 * x2);
+			szy += (z1 * y2);
+			szz += (z1 * z2);
+		}
+		Sxx = sxx; Sxy = sxy; Sxz = sxz;
+		Syx = syx; Syy = syy; Syz = syz;
+		Szx = szx; Szy = szy; Szz = szz;
+		
+		e0 = (g1 + g2) * 0.5d;
+		
+		SxzpSzx = Sxz + Szx;
+		SyzpSzy = Syz + Szy;
+		SxypSyx = Sxy + Syx;
+		SyzmSzy = Syz - Szy;
+		SxzmSzx = Sxz - Szx;
+		SxymSyx = Sxy - Syx;
+		SxxpSyy = Sxx + Syy;
+		SxxmSyy = Sxx - Syy;
+		mxEigenV = e0;
+
+		innerProductCalculated = true;
+	}
+
 	private void calcRmsd(double len) {
 
 		if (max_iterations > 0) {
@@ -434,11 +624,16 @@ public class QCP {
 	}
 
 	private Rot calcRotation() {
+		return calcRotation(new Rot());
+	}
+
+	private Rot calcRotation(Rot storeIn) {
 
 		// QCP doesn't handle single targets, so if we only have one point and one
 		// target, we just rotate by the angular distance between them
-		if (moved.length == 1) {
-			return new Rot(moved[0], target[0]);
+		if (length == 1) {
+			storeIn.set(moved[0], target[0]);
+			return storeIn;
 		} else {
 
 			double a11 = SxxpSyy + Szz - mxEigenV;
@@ -505,12 +700,14 @@ public class QCP {
 							/*
 							 * if qsqr is still too small, return the identity rotation
 							 */
-							return new Rot();
+							storeIn.set(MRotation.IDENTITY);
+							return storeIn;
 						}
 					}
 				}
 			}
-			return new Rot(q1, q2, q3, q4, true);
+			storeIn.rotation.set(q1, q2, q3, q4, true);
+			return storeIn;
 		}
 	}
 
@@ -524,6 +721,42 @@ public class QCP {
 			p.add(trans);
 		}
 	}
+	
+	/**
+	 * the opposite of translate. subtracts trans from each element of x. 
+	 */
+	public static <V extends Vec3d<?>> void untranslate(Vec3d<?> trans, V[] x) {
+		for (V p : x) {
+			p.sub(trans);
+		}
+	}
+
+	/**
+	 * subtracts trans from each of the count points packed into x.
+	 */
+	public static void untranslate(Vec3d<?> trans, double[] x) {
+		for (int c = 0; c < x.length; c += 3) {
+			x[c] -= trans.x;
+			x[c + 1] -= trans.y;
+			x[c + 2] -= trans.z;
+		}
+	}
+
+	/**
+	 * equivalent of {@link #moveToWeightedCenter(Vec3d[], double[], Vec3d)} for packed coordinates.
+	 */
+	public <V extends Vec3d<?>> V moveToWeightedCenter(double[] toCenter, double[] weight, int count, V center) {
+		double cx = 0d, cy = 0d, cz = 0d;
+		for (int i = 0, c = 0; i < count; i++, c += 3) {
+			double w = weight != null ? weight[i] : 1d;
+			cx += toCenter[c] * w;
+			cy += toCenter[c + 1] * w;
+			cz += toCenter[c + 2] * w;
+			wsum += w;
+		}
+		center.set(cx / wsum, cy / wsum, cz / wsum);
+		return center;
+	}
 
 	public <V extends Vec3d<?>> V moveToWeightedCenter(V[] toCenter, double[] weight, V center) {
 
@@ -550,5 +783,15 @@ public class QCP {
 	public SGVec_3d getTranslation() {
 		return targetCenter.subCopy(movedCenter);
 	}
+	
+	/**
+	 * @param storeIn will be set to the translation component of the last superposition 
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3d<?>> V getTranslation(V storeIn) {
+		storeIn.set(targetCenter);
+		storeIn.sub(movedCenter);
+		return storeIn;
+	}
 
 }
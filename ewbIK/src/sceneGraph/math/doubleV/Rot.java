@@ -25,8 +25,6 @@ import math.floatV.SGVec_3f;
 
 public class Rot {
 	public MRotation rotation; 
-	private double[] workingInput = new double[3];
-	private double[] workingOutput = new double[3];
 
 	public Rot(){
 		this.rotation = new MRotation(
@@ -124,16 +122,12 @@ public class Rot {
 	
 
 	public <V extends Vec3d<?>> void applyTo( V v, V output) {
-		workingInput[0] = v.x; workingInput[1] = v.y; workingInput[2]=v.z; 
-		rotation.applyTo(workingInput, workingOutput);
-		output.set(workingOutput);
+		rotation.applyTo(v, output);
 	}
 
 
 	public <V extends Vec3d<?>> void applyInverseTo( V v, V output) {
-		workingInput[0] = v.x; workingInput[1] = v.y; workingInput[2]=v.z; 
-		rotation.applyInverseTo(workingInput, workingOutput);
-		output.set(workingOutput);
+		rotation.applyInverseTo(v, output);
 	}
 
 
@@ -144,18 +138,16 @@ public class Rot {
 	 */
 	
 	public <T extends Vec3d<?>> T applyToCopy( T v) {
-		workingInput[0] = v.x; workingInput[1] = v.y; workingInput[2]=v.z; 
-		rotation.applyTo(workingInput, workingOutput);
-		 T copy =  (T)v.copy();		
-		return (T) copy.set(workingOutput[0], workingOutput[1], workingOutput[2]);
+		T copy =  (T)v.copy();		
+		rotation.applyTo(v, copy);
+		return copy;
 	}
 
 
 	public <T extends Vec3d<?>> T applyInverseToCopy( T v) {
-		workingInput[0] = v.x; workingInput[1] = v.y; workingInput[2]=v.z; 
-		rotation.applyInverseTo(workingInput, workingOutput);
-		 T copy =  (T) v.copy();		
-		return (T) copy.set(workingOutput[0], workingOutput[1], workingOutput[2]);
+		T copy =  (T) v.copy();		
+		rotation.applyInverseTo(v, copy);
+		return copy;
 	}
 
 
@@ -176,24 +168,26 @@ public class Rot {
 	}
 
 	public sgRayd applyToCopy(sgRayd rIn) {
-		workingInput[0] = rIn.p2().x - rIn.p1().x;
-		workingInput[1] = rIn.p2().y - rIn.p1().y; 
-		workingInput[2] = rIn.p2().z - rIn.p1().z;
+		double[] working = {
+				rIn.p2().x - rIn.p1().x,
+				rIn.p2().y - rIn.p1().y,
+				rIn.p2().z - rIn.p1().z};
 		
-		this.rotation.applyTo(workingInput, workingOutput);
+		this.rotation.applyTo(working, working);
 		sgRayd result = rIn.copy();
-		result.heading(workingOutput);
+		result.heading(working);
 		return result;
 	}
 
 	public sgRayd applyInverseTo(sgRayd rIn) {
-		workingInput[0] = rIn.p2().x - rIn.p1().x;
-		workingInput[1] = rIn.p2().y - rIn.p1().y; 
-		workingInput[2] = rIn.p2().z - rIn.p1().z;		
+		double[] working = {
+				rIn.p2().x - rIn.p1().x,
+				rIn.p2().y - rIn.p1().y,
+				rIn.p2().z - rIn.p1().z};
 
-		this.rotation.applyInverseTo(workingInput, workingOutput);
+		this.rotation.applyInverseTo(working, working);
 		sgRayd result = rIn.copy();
-		result.p2().add(workingOutput);
+		result.p2().add(working);
 		return result;
 	}
 
@@ -290,20 +284,42 @@ public class Rot {
 	 * @return an Array of Rot objects. With the first element representing the swing, and the second representing the twist
 	 * @see <a href="http://www.euclideanspace.com/maths/geometry/rotations/for/decomposition">calculation</a> */
 	public Rot[] getSwingTwist ( SGVec_3d axis) {
-		Rot twistRot= new Rot(new MRotation(rotation.getQ0(), rotation.getQ1(), rotation.getQ2(), rotation.getQ3()));
-		final double d = SGVec_3d.dot(twistRot.rotation.getQ1(), twistRot.rotation.getQ2(), twistRot.rotation.getQ3(), axis.x, axis.y, axis.z);
-		twistRot.rotation.set(rotation.getQ0(), axis.x * d, axis.y * d, axis.z * d, true);
-		if (d < 0) twistRot.rotation.multiply(-1d);
-		
-		Rot swing = new Rot(twistRot.rotation);
-		swing.rotation.setToConjugate();
-		swing.rotation = MRotation.multiply(twistRot.rotation, swing.rotation);
-		
 		Rot[] result = new Rot[2];
-		result[0] = swing;
-		result[1] = twistRot;
+		result[0] = new Rot();
+		result[1] = new Rot();
+		getSwingTwist(axis, result[0], result[1]);
 		return result;
 	}
+
+	/**
+	 * Same as getSwingTwist(axis), but writes the swing and twist into the given Rots instead of allocating. 
+	 * Applying the twist and then the swing is equivalent to applying this rotation. 
+	 * @param axis the normalized axis for which to get the swing and twist rotation
+	 * @param swingStoreIn will be set to the swing rotation
+	 * @param twistStoreIn will be set to the twist rotation
+	 */
+	public <V extends Vec3d<?>> void getSwingTwist(V axis, Rot swingStoreIn, Rot twistStoreIn) {
+		final double q0 = rotation.getQ0(), q1 = rotation.getQ1(), q2 = rotation.getQ2(), q3 = rotation.getQ3();
+		final double d = SGVec_3d.dot(q1, q2, q3, axis.x, axis.y, axis.z);
+		MRotation t = twistStoreIn.rotation;
+		t.set(q0, axis.x * d, axis.y * d, axis.z * d, true);
+		//swing = conjugate(twist) * this
+		final double t0 = t.getQ0(), t1 = -t.getQ1(), t2 = -t.getQ2(), t3 = -t.getQ3();
+		swingStoreIn.rotation.set(
+				t0 * q0 - t1 * q1 - t2 * q2 - t3 * q3,
+				t0 * q1 + t1 * q0 + t2 * q3 - t3 * q2,
+				t0 * q2 - t1 * q3 + t2 * q0 + t3 * q1,
+				t0 * q3 + t1 * q2 - t2 * q1 + t3 * q0, 
+				false);
+	}
+
+	/**
+	 * @return the angle of this rotation's twist about the y axis, signed by the direction of the twist.
+	 * see {@link MRotation#getYTwistAngle()}
+	 */
+	public double getYTwistAngle() {
+		return rotation.getYTwistAngle();
+	}
 	
 	public static MRotation slerp(double amount, MRotation value1, MRotation value2)
 	{
@@ -2,8 +2,13 @@ package math.floatV;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import asj.LoadManager;
@@ -34,12 +39,20 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	//public boolean forceOrthoNormality = true; 
 	
 
-	public LinkedList<DependencyReference<AxisDependency>> dependentsRegistry = new LinkedList<DependencyReference<AxisDependency>>(); 
+	public ArrayList<DependencyReference<AxisDependency>> dependentsRegistry = new ArrayList<DependencyReference<AxisDependency>>(); 
 
 	protected Vec3f<?> workingVector; 
 
 	protected boolean areGlobal = true;
 	
+	/**the flat hierarchy this axes currently belongs to, if any. see {@link AxesHierarchy}*/
+	AxesHierarchy hierarchy = null;
+	int hierarchyIndex = -1;
+	
+	/**scratch rotations for rotateBy(Rot) and rotateAbout{X,Y,Z}, so that they don't allocate*/
+	private Rot workingRot = new Rot();
+	private Rot workingAxisRot = new Rot();
+	
 	public <V extends Vec3f<?>> void createTempVars(V type) {
 		workingVector =  type.copy(); 
 		tempOrigin =  type.copy(); 
@@ -97,6 +110,10 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	}
 	
 	public void updateGlobal() {
+		if(this.hierarchy != null) {
+			this.hierarchy.updateGlobal(this.hierarchyIndex);
+			return;
+		}
 		if(this.dirty) {
 			if(this.areGlobal) {
 				globalMBasis.adoptValues(this.localMBasis);
@@ -148,6 +165,7 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	 **/	
 	public void setParent(AbstractAxes intendedParent, Object requestedBy) {	
 		this.updateGlobal();
+		this.releaseHierarchy();
 		AbstractAxes oldParent = this.getParentAxes();
 		/*for(DependencyReference<AxisDependency> ad : this.dependentsRegistry) {
 			ad.get().parentChangeWarning(this, oldParent, intendedParent, requestedBy);
@@ -241,6 +259,7 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	 * as its parent.   
 	 **/
 	public void setRelativeToParent(AbstractAxes par) {
+		this.releaseHierarchy();
 		if(this.getParentAxes() != null) this.getParentAxes().disown(this);
 		this.parent = new DependencyReference<AbstractAxes>(par);
 		this.areGlobal = false;
@@ -249,6 +268,7 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	}
 
 	public boolean needsUpdate() {
+		if(this.hierarchy != null) return this.hierarchy.isStale(this.hierarchyIndex);
 		if(this.dirty) return true;  
 		else return false;
 	}
@@ -383,8 +403,10 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	} 
 	public void translateByGlobal(Vec3f<?> translate) {		
 		if(this.getParentAxes() != null ) {
-			this.updateGlobal();		
-			this.translateTo(translate.addCopy(this.origin_()));
+			this.updateGlobal();
+			Vec3f<?> newOrigin = this.origin_().add(translate);
+			getParentAxes().getGlobalMBasis().setToLocalOf(newOrigin, newOrigin);
+			getLocalMBasis().translateTo(newOrigin);
 		} else {
 			getLocalMBasis().translateBy(translate);
 		}
@@ -456,6 +478,7 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	public abstract AbstractAxes attachedCopy(boolean slipAware);
 
 	public void setSlipType(int type) {
+		this.releaseHierarchy();
 		if(this.getParentAxes() != null) {
 			if(type == IGNORE) {
 				this.getParentAxes().dependentsRegistry.remove(this);
@@ -472,21 +495,30 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	
 	public void rotateAboutX(float angle, boolean orthonormalized) {
 		this.updateGlobal();
-		Rot xRot = new Rot(getGlobalMBasis().getXHeading(), angle);		
+		sgRayf xRay = getGlobalMBasis().getXRay();
+		workingVector.set(xRay.p2()).sub(xRay.p1());
+		Rot xRot = workingAxisRot;
+		xRot.set(workingVector, angle);		
 		this.rotateBy(xRot);
 		this.markDirty();
 	}
 
 	public void rotateAboutY(float angle, boolean orthonormalized) {
 		this.updateGlobal();	
-		Rot yRot = new Rot(getGlobalMBasis().getYHeading(), angle); 
+		sgRayf yRay = getGlobalMBasis().getYRay();
+		workingVector.set(yRay.p2()).sub(yRay.p1());
+		Rot yRot = workingAxisRot;
+		yRot.set(workingVector, angle); 
 		this.rotateBy(yRot);
 		this.markDirty();
 	}
 
 	public void rotateAboutZ(float angle, boolean orthonormalized) {
 		this.updateGlobal();
-		Rot zRot = new Rot(getGlobalMBasis().getZHeading(), angle);
+		sgRayf zRay = getGlobalMBasis().getZRay();
+		workingVector.set(zRay.p2()).sub(zRay.p1());
+		Rot zRot = workingAxisRot;
+		zRot.set(workingVector, angle);
 		this.rotateBy(zRot);
 		this.markDirty();
 	}
@@ -511,8 +543,8 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 
 		this.updateGlobal();		
 		if( this.getParentAxes() != null) {
-			Rot newRot = this.getParentAxes().getGlobalMBasis().getLocalOfRotation(apply);
-			this.getLocalMBasis().rotateBy(newRot);
+			this.getParentAxes().getGlobalMBasis().setToLocalOfRotation(apply, workingRot);
+			this.getLocalMBasis().rotateBy(workingRot);
 		} else {
 			this.getLocalMBasis().rotateBy(apply);
 		}
@@ -626,6 +658,7 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 			}			
 		} 
 		if(dependentsRegistry.indexOf(newDependent) == -1){
+			this.releaseHierarchy();
 			dependentsRegistry.add(new DependencyReference<AxisDependency>(newDependent));
 		}
 	}
@@ -663,24 +696,31 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	public void emancipate() {
 		if(this.getParentAxes() != null) {
 			this.updateGlobal();
+			this.releaseHierarchy();
 			AbstractAxes oldParent = this.getParentAxes();
-			for(DependencyReference<AxisDependency> ad: this.dependentsRegistry) {
-				ad.get().parentChangeWarning(this, this.getParentAxes(), null, null);
-			}
+			forEachDependent(
+					(ad) -> ad.get().parentChangeWarning(this, oldParent, null, null));
 			this.getLocalMBasis().adoptValues(this.globalMBasis);
 			this.getParentAxes().disown(this);
 			this.parent = new DependencyReference<AbstractAxes>(null);
 			this.areGlobal = true;
 			this.markDirty();
 			this.updateGlobal();
-			for(DependencyReference<AxisDependency> ad: this.dependentsRegistry) {
-				ad.get().parentChangeCompletionNotice(this, oldParent, null, null);
-			}
+			forEachDependent(
+					(ad) -> ad.get().parentChangeCompletionNotice(this, oldParent, null, null));
 		}
 	}
 
 	public void disown(AxisDependency child) {
-		dependentsRegistry.remove(child);
+		this.releaseHierarchy();
+		//the registry holds references to its dependents rather than the dependents themselves, so remove(child) would never match
+		Iterator<DependencyReference<AxisDependency>> i = dependentsRegistry.iterator();
+		while (i.hasNext()) {
+			AxisDependency dependent = i.next().get();
+			if(dependent == child || dependent == null) {
+				i.remove();
+			}
+		}
 	}
 	
 	public AbstractBasis getGlobalMBasis() {
@@ -786,7 +826,10 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 			newVals = getParentAxes().getLocalOf(newVals);
 		}
 		this.getLocalMBasis().adoptValues(newVals.globalMBasis);
-		this.dirty = true;	
+		if(this.hierarchy != null) 
+			this.hierarchy.invalidate(this.hierarchyIndex);
+		else 
+			this.dirty = true;	
 		this.updateGlobal();
 
 		notifyDependentsOfSlipCompletion(originalGlobal);
@@ -824,50 +867,181 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 		notifyDependentsOfSlipCompletion(originalGlobal, dontWarn);
 	}
 
+	/**
+	 * warns every dependent not in dontWarn that these axes are about to slip to newAxisGlobal. 
+	 * All dependents are handed the same global copy of these axes, so they should treat it as read only. 
+	 */
 	public void notifyDependentsOfSlip(AbstractAxes newAxisGlobal, ArrayList<Object> dontWarn) {
-		for(int i = 0; i<dependentsRegistry.size(); i++) {
-			if(!dontWarn.contains(dependentsRegistry.get(i))) {
-				AxisDependency dependant = dependentsRegistry.get(i).get();
-
+		AxisDependency[] dependents = getLiveDependents();
+		if(dependents.length == 0) return;
+		AbstractAxes globalPriorToSlipping = this.getGlobalCopy();
+		for(AxisDependency dependant : dependents) {
+			if(!dontWarn.contains(dependant)) {
 				//First we check if the dependent extends AbstractAxes
 				//so we know whether or not to pass the dontWarn list
 				if(this.getClass().isAssignableFrom(dependant.getClass())) { 
-					((AbstractAxes)dependant).axisSlipWarning(this.getGlobalCopy(), newAxisGlobal, this, dontWarn);
+					((AbstractAxes)dependant).axisSlipWarning(globalPriorToSlipping, newAxisGlobal, this, dontWarn);
 				} else {
-					dependant.axisSlipWarning(this.getGlobalCopy(), newAxisGlobal, this);
+					dependant.axisSlipWarning(globalPriorToSlipping, newAxisGlobal, this);
 				}
 			} else {
-				System.out.println("skipping: " + dependentsRegistry.get(i));
+				System.out.println("skipping: " + dependant);
 			}
 		}
 	}
 
 	public void notifyDependentsOfSlipCompletion(AbstractAxes globalAxisPriorToSlipping, ArrayList<Object> dontWarn) {
-		for(int i = 0; i<dependentsRegistry.size(); i++) {
-			if(!dontWarn.contains(dependentsRegistry.get(i)))
-				dependentsRegistry.get(i).get().axisSlipCompletionNotice(globalAxisPriorToSlipping, this.getGlobalCopy(), this);
+		AxisDependency[] dependents = getLiveDependents();
+		if(dependents.length == 0) return;
+		AbstractAxes globalAfterSlipping = this.getGlobalCopy();
+		for(AxisDependency dependant : dependents) {
+			if(!dontWarn.contains(dependant))
+				dependant.axisSlipCompletionNotice(globalAxisPriorToSlipping, globalAfterSlipping, this);
 			else 
-				System.out.println("skipping: " + dependentsRegistry.get(i));
+				System.out.println("skipping: " + dependant);
 		}
 	}
 
-
+	/**
+	 * warns every dependent that these axes are about to slip to newAxisGlobal. 
+	 * All dependents are handed the same global copy of these axes, so they should treat it as read only. 
+	 */
 	public void notifyDependentsOfSlip(AbstractAxes newAxisGlobal) {
-		for(int i = 0; i<dependentsRegistry.size(); i++) {
-			dependentsRegistry.get(i).get().axisSlipWarning(this.getGlobalCopy(), newAxisGlobal, this);
+		AxisDependency[] dependents = getLiveDependents();
+		if(dependents.length == 0) return;
+		AbstractAxes globalPriorToSlipping = this.getGlobalCopy();
+		for(AxisDependency dependant : dependents) {
+			dependant.axisSlipWarning(globalPriorToSlipping, newAxisGlobal, this);
 		}
 	}
 
 	public void notifyDependentsOfSlipCompletion(AbstractAxes globalAxisPriorToSlipping) {
-		for(int i = 0; i<dependentsRegistry.size(); i++) {//AxisDependancy dependent : dependentsRegistry) {
-			dependentsRegistry.get(i).get().axisSlipCompletionNotice(globalAxisPriorToSlipping, this.getGlobalCopy(), this);
+		AxisDependency[] dependents = getLiveDependents();
+		if(dependents.length == 0) return;
+		AbstractAxes globalAfterSlipping = this.getGlobalCopy();
+		for(AxisDependency dependant : dependents) {
+			dependant.axisSlipCompletionNotice(globalAxisPriorToSlipping, globalAfterSlipping, this);
+		}
+	}
+
+	/**
+	 * @return every dependent which hasn't been garbage collected, in registration order, pruning any that have 
+	 * from the registry along the way. Notifications iterate over this rather than the registry itself, 
+	 * so that dependents are free to register or disown axes in response to being notified. 
+	 */
+	private AxisDependency[] getLiveDependents() {
+		AxisDependency[] result = new AxisDependency[dependentsRegistry.size()];
+		int count = 0;
+		Iterator<DependencyReference<AxisDependency>> i = dependentsRegistry.iterator();
+		while (i.hasNext()) {
+			AxisDependency dependent = i.next().get();
+			if(dependent != null) {
+				result[count++] = dependent;
+			} else {
+				i.remove();
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Sets these axes as the parent of every axes in children, keeping their global values unchanged. 
+	 * Has the same result as calling child.setParent(this, requestedBy) for each child, 
+	 * but disowns the children from their previous parents and registers them with these axes 
+	 * in a single pass over each registry, rather than one pass per child. So moving many axes 
+	 * between the same parents takes linear rather than quadratic time. 
+	 * Every child's dependents receive their parentChangeWarning before any child is moved, 
+	 * and their parentChangeCompletionNotice after all of them have been.
+	 * 
+	 * @param children the axes to adopt 
+	 * @param requestedBy passed on to parentChangeWarning and parentChangeCompletionNotice (can be null)
+	 */
+	public void adoptChildren(Collection<? extends AbstractAxes> children, Object requestedBy) {
+		this.releaseHierarchy();
+		this.updateGlobal();
+		ArrayList<AbstractAxes> adopted = new ArrayList<>(children.size());
+		ArrayList<AbstractAxes> oldParents = new ArrayList<>(children.size());
+		for(AbstractAxes child : children) {
+			if(child == this || child.isAncestorOf(this)) {
+				//may involve rearranging the hierarchy, so is left to setParent to resolve
+				child.setParent(this, requestedBy);
+				continue;
+			}
+			child.updateGlobal();
+			child.releaseHierarchy();
+			AbstractAxes oldParent = child.getParentAxes();
+			child.forEachDependent(
+					(ad) -> ad.get().parentChangeWarning(child, oldParent, this, requestedBy));
+			adopted.add(child);
+			oldParents.add(oldParent);
+		}
+		
+		IdentityHashMap<AbstractAxes, Set<AxisDependency>> disownedBy = new IdentityHashMap<>();
+		for(int i = 0; i < adopted.size(); i++) {
+			AbstractAxes oldParent = oldParents.get(i);
+			if(oldParent != null && oldParent != this)
+				disownedBy.computeIfAbsent(oldParent, (k) -> Collections.newSetFromMap(new IdentityHashMap<>())).add(adopted.get(i));
+		}
+		for(Map.Entry<AbstractAxes, Set<AxisDependency>> e : disownedBy.entrySet()) {
+			e.getKey().disownAll(e.getValue());
+		}
+		
+		Set<AxisDependency> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(AxisDependency d : getLiveDependents()) {
+			registered.add(d);
+		}
+		for(AbstractAxes child : adopted) {
+			this.getGlobalMBasis().setToLocalOf(child.globalMBasis, child.localMBasis);
+			child.parent = new DependencyReference<AbstractAxes>(this);
+			child.areGlobal = false;
+			if(registered.add(child)) 
+				dependentsRegistry.add(new DependencyReference<AxisDependency>(child));
+			child.markDirty();
+			child.updateGlobal();
+		}
+		
+		for(int i = 0; i < adopted.size(); i++) {
+			AbstractAxes child = adopted.get(i);
+			AbstractAxes oldParent = oldParents.get(i);
+			child.forEachDependent(
+					(ad) -> ad.get().parentChangeCompletionNotice(child, oldParent, this, requestedBy));
+		}
+	}
+
+	/**
+	 * unregisters every dependent in the given set (and any which have been garbage collected) 
+	 * in a single pass over the registry.
+	 */
+	public void disownAll(Set<? extends AxisDependency> children) {
+		this.releaseHierarchy();
+		int kept = 0;
+		for(int i = 0; i < dependentsRegistry.size(); i++) {
+			DependencyReference<AxisDependency> ref = dependentsRegistry.get(i);
+			AxisDependency dependent = ref.get();
+			if(dependent != null && !children.contains(dependent)) {
+				dependentsRegistry.set(kept++, ref);
+			}
+		}
+		truncateRegistry(kept);
+	}
+
+	/**
+	 * removes every entry of the registry from the given index onward, from the end, 
+	 * so that no entries have to be shifted down.
+	 */
+	private void truncateRegistry(int size) {
+		for(int i = dependentsRegistry.size() - 1; i >= size; i--) {
+			dependentsRegistry.remove(i);
 		}
 	}
 
 	
 
 	public void markDirty() {
-		
+		if(this.hierarchy != null) {
+			this.hierarchy.markDirty(this.hierarchyIndex);
+			return;
+		}
 		if(!this.dirty) {			
 			this.dirty = true;
 			this.markDependentsDirty();			
@@ -876,7 +1050,36 @@ public abstract class AbstractAxes implements AxisDependency, Saveable {
 	}
 
 	public void markDependentsDirty() {
-		forEachDependent((a) -> a.get().markDirty());
+		//indexed rather than through forEachDependent, because dirtying recurses once per level of the tree, 
+		//and past a few levels the JIT stops eliminating each level's iterator. 
+		//Any references which have been garbage collected are compacted out in the same pass.
+		int kept = 0;
+		for(int i = 0; i < dependentsRegistry.size(); i++) {
+			DependencyReference<AxisDependency> ref = dependentsRegistry.get(i);
+			AxisDependency dependent = ref.get();
+			if(dependent != null) {
+				dependent.markDirty();
+				if(kept != i) dependentsRegistry.set(kept, ref);
+				kept++;
+			}
+		}
+		truncateRegistry(kept);
+	}
+	
+	/**
+	 * @return the AxesHierarchy this axes belongs to, or null if it belongs to none.
+	 */
+	public AxesHierarchy getHierarchy() {
+		return this.hierarchy;
+	}
+	
+	/**
+	 * if this axes belongs to an AxesHierarchy, returns it and every other member of that hierarchy 
+	 * to the dependency registry. Called before any change to this axes' parent or dependents. 
+	 */
+	public void releaseHierarchy() {
+		if(this.hierarchy != null) 
+			this.hierarchy.release();
 	}
 
 	public String toString() {
@@ -422,7 +422,7 @@ public class MRotation {
 				k.y * (u1z * u2x - u1x * u2z) +
 				k.z * (u1x * u2y - u1y * u2x);
 
-		if (MathUtils.abs(c) <= MathUtils.DOUBLE_ROUNDING_ERROR) {
+		if (MathUtils.abs(c) <= MathUtils.FLOAT_ROUNDING_ERROR) {
 			// the (q1, q2, q3) vector is in the (u1, u2) plane
 			// we try other vectors
 			V u3 = (V) u1.crossCopy(u2);
@@ -444,7 +444,7 @@ public class MRotation {
 					k.y * (u1z * u3x - u1x * u3z) +
 					k.z * (u1x * u3y - u1y * u3x);
 
-			if (MathUtils.abs(c) <= MathUtils.DOUBLE_ROUNDING_ERROR) {
+			if (MathUtils.abs(c) <= MathUtils.FLOAT_ROUNDING_ERROR) {
 				// the (q1, q2, q3) vector is aligned with u1:
 				// we try (u2, u3) and (v2, v3)
 				k = new SGVec_3f(dy2 * dz3 - dz2 * dy3,
@@ -454,7 +454,7 @@ public class MRotation {
 						k.y * (u2z * u3x - u2x * u3z) +
 						k.z * (u2x * u3y - u2y * u3x);
 
-				if (MathUtils.abs(c) <= MathUtils.DOUBLE_ROUNDING_ERROR) {
+				if (MathUtils.abs(c) <= MathUtils.FLOAT_ROUNDING_ERROR) {
 					// the (q1, q2, q3) vector is aligned with everything
 					// this is really the identity rotation
 					q0 = 1.0f;
@@ -795,6 +795,31 @@ public class MRotation {
 		return 2 * MathUtils.acos(q0);
 	}
 
+	/** Get the angle of the twist component of this rotation about the y axis. 
+	 * <p>This is the twist rotation's angle multiplied by the y component of its axis, 
+	 * as would be found from the twist returned by Rot.getSwingTwist for the y axis, 
+	 * but computed directly from this rotation's components without constructing the twist (or swing).</p>
+	 * @return the signed angle of the twist about the y axis (between -&pi; and &pi;)
+	 */
+	public float getYTwistAngle() {
+		float inv = 1.0f / MathUtils.sqrt(q0 * q0 + q2 * q2);
+		float tw = q0 * inv;
+		float ty = q2 * inv;
+		float squaredSine = ty * ty;
+		if (squaredSine == 0) 
+			return 0;
+		float angle;
+		if ((tw < -0.1) || (tw > 0.1)) {			
+			angle = 2 * MathUtils.asin(MathUtils.sqrt(squaredSine));
+		} else if (tw < 0) {
+			angle = 2 * MathUtils.acos(-tw);
+		} else {
+			angle = 2 * MathUtils.acos(tw);
+		}
+		float axisY = tw < 0 ? ty * (1 / MathUtils.sqrt(squaredSine)) : ty * (-1 / MathUtils.sqrt(squaredSine));
+		return angle * axisY;
+	}
+
 	/** Get the Cardan or Euler angles corresponding to the instance.
 	 * <p>The equations show that each rotation can be defined by two
 	 * different values of the Cardan or Euler angles set. For example
@@ -1323,6 +1348,24 @@ public class MRotation {
 
 	}
 
+	/** Apply the rotation to a vector, storing the result in output.
+	 * Uses no intermediate storage, so is safe to call concurrently on a shared rotation.
+	 * @param u vector to apply the rotation to
+	 * @param output vector to put the result in (may be the same object as u)
+	 */
+	public <T extends Vec3f<?>> void applyTo(T u, T output) {
+
+		final float x = u.x;
+		final float y = u.y;
+		final float z = u.z;
+
+		final float s = q1 * x + q2 * y + q3 * z;
+
+		output.set(2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x,
+				2 * (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y,
+				2 * (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
 	/** Apply the inverse of the rotation to a vector.
 	 * @param u vector to apply the inverse of the rotation to
 	 * @return a new vector which such that u is its image by the rotation
@@ -1364,6 +1407,25 @@ public class MRotation {
 
 	}
 
+	/** Apply the inverse of the rotation to a vector, storing the result in output.
+	 * Uses no intermediate storage, so is safe to call concurrently on a shared rotation.
+	 * @param u vector to apply the inverse of the rotation to
+	 * @param output vector to put the result in (may be the same object as u)
+	 */
+	public <T extends Vec3f<?>> void applyInverseTo(T u, T output) {
+
+		final float x = u.x;
+		final float y = u.y;
+		final float z = u.z;
+
+		final float s = q1 * x + q2 * y + q3 * z;
+		final float m0 = -q0;
+
+		output.set(2 * (m0 * (x * m0 - (q2 * z - q3 * y)) + s * q1) - x,
+				2 * (m0 * (y * m0 - (q3 * x - q1 * z)) + s * q2) - y,
+				2 * (m0 * (z * m0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
 	/** Apply the instance to another rotation.
 	 * Applying the instance to a rotation is computing the composition
 	 * in an order compliant with the following rule : let u be any
@@ -1504,15 +1566,20 @@ public class MRotation {
 				q3 / norm);
 	}
 
+	/**
+	 * sets this rotation to the shortest rotation taking u to v. 
+	 * Behaves like the equivalent constructor (including returning 
+	 * identity for zero-length inputs), but doesn't allocate in the general case. 
+	 */
 	public <V extends Vec3f<?>> void set(V u, V v) {
 
 		float normProduct = u.mag() * v.mag();
 		if (normProduct == 0) {
-			try {
-				throw new Exception("Zero Norm for Rotation defining vector");
-			} catch (Exception e) {
-				e.printStackTrace(System.out);
-			}
+			this.q0 = 1f;
+			this.q1= 0f;
+			this.q2 =0f;
+			this.q3=0f;
+			return;
 		}
 
 		float dot = u.dot(v);
@@ -1530,10 +1597,10 @@ public class MRotation {
 			// the shortest possible rotation: axis orthogonal to this plane
 			q0 = MathUtils.sqrt(0.5f * (1.0f + dot / normProduct));
 			float coeff = 1.0f / (2.0f * q0 * normProduct);
-			V q = (V) v.crossCopy(u);
-			q1 = coeff * q.x;
-			q2 = coeff * q.y;
-			q3 = coeff * q.z;
+			//v cross u, written out so as not to allocate. 
+			q1 = coeff * (v.y * u.z - v.z * u.y);
+			q2 = coeff * (v.z * u.x - v.x * u.z);
+			q3 = coeff * (v.x * u.y - v.y * u.x);
 		}
 
 	}
@@ -97,6 +97,8 @@ public class QCP {
 
 	private SGVec_3f targetCenter = new SGVec_3f();
 	private SGVec_3f movedCenter =  new SGVec_3f();
+	/**vector copies of the only point of a packed superposition of a single point*/
+	private SGVec_3f[] singleMoved, singleTarget;
 
 	private float e0;
 	//private Matrix3f rotmat = new Matrix3f();
@@ -151,6 +153,7 @@ public class QCP {
 	private void set(SGVec_3f[] target, SGVec_3f[] moved) {
 		this.moved = target;
 		this.target = moved;
+		this.length = moved.length;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 		innerProductCalculated = false;
@@ -171,17 +174,25 @@ public class QCP {
 		this.target = target;		
 		this.moved = moved;
 		this.weight = weight;
+		this.length = moved.length;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 		innerProductCalculated = false;
+		//reset accumulators so that a single QCP instance can be reused across calls. 
+		wsum = 0f;
 
 		if(translate) {
+			movedCenter.set(0f, 0f, 0f);
+			targetCenter.set(0f, 0f, 0f);
 			moveToWeightedCenter(this.moved, weight, movedCenter);
 			wsum = 0f; //set wsum to 0 so we don't float up. 
 			moveToWeightedCenter(this.target, weight, targetCenter);
-			translate(movedCenter.multCopy(-1f), this.moved);
-			translate(targetCenter.multCopy(-1f), this.target);
+			untranslate(movedCenter, this.moved);
+			untranslate(targetCenter, this.target);
 		} else {
+			//no translation, so make sure getTranslation doesn't report the last superposition's
+			movedCenter.set(0f, 0f, 0f);
+			targetCenter.set(0f, 0f, 0f);
 			if(weight != null) {
 				for (int i = 0; i < weight.length; i++)  {
 					wsum += weight[i];
@@ -209,6 +220,33 @@ public class QCP {
 		return rmsd;
 	}
 
+	/**
+	 * Returns the weighted mean squared distance between the target points and the moved points
+	 * of the last superposition, as it would be after applying the given rotation to the moved points. 
+	 * This is computed from the inner products the superposition already required, 
+	 * so costs the same regardless of how many points there are. 
+	 * 
+	 * Only valid after a superposition which didn't translate, and for rotations about the origin
+	 * of the coordinate sets.
+	 *
+	 * @param r the rotation to apply to the moved points (the identity gives their current error)
+	 * @return the weighted mean squared distance after rotating the moved points by r
+	 */
+	public float getWeightedMSDAfterRotating(MRotation r) {
+		if (!innerProductCalculated)
+			innerProduct(target, moved);
+		float q0 = r.getQ0(), q1 = r.getQ1(), q2 = r.getQ2(), q3 = r.getQ3();
+		float q0q0 = q0 * q0, q1q1 = q1 * q1, q2q2 = q2 * q2, q3q3 = q3 * q3;
+		float q0q1 = q0 * q1, q0q2 = q0 * q2, q0q3 = q0 * q3;
+		float q1q2 = q1 * q2, q1q3 = q1 * q3, q2q3 = q2 * q3;
+		// sum over i, j of R[i][j] * S[i][j], where R is the matrix of r as applied by MRotation.applyTo
+		// and S[i][j] is the weighted sum of (target_i * moved_j).
+		float correlation = (2f * (q0q0 + q1q1) - 1f) * Sxx + 2f * (q1q2 + q0q3) * Sxy + 2f * (q1q3 - q0q2) * Sxz
+				+ 2f * (q1q2 - q0q3) * Syx + (2f * (q0q0 + q2q2) - 1f) * Syy + 2f * (q2q3 + q0q1) * Syz
+				+ 2f * (q1q3 + q0q2) * Szx + 2f * (q2q3 - q0q1) * Szy + (2f * (q0q0 + q3q3) - 1f) * Szz;
+		return 2f * (e0 - correlation) / wsum;
+	}
+
 	/**
 	 * Weighted superposition.
 	 *
@@ -224,6 +262,88 @@ public class QCP {
 		//transformation.set(rotmat);
 		return result;//transformation;
 	}
+	
+	/**
+	 * Weighted superposition, writing the result into the provided Rot 
+	 * instead of allocating a new one. 
+	 *
+	 * @param moved
+	 * @param target
+	 * @param weight
+	 *            array of weigths for each equivalent point position
+	 * @param translate
+	 * @param storeIn the Rot to which the optimal rotation should be written
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3f<?>> Rot weightedSuperpose(V[] moved, V[] target, float[] weight, boolean translate, Rot storeIn) {
+		set(moved, target, weight, translate);
+		if (!innerProductCalculated)
+			innerProduct(target, moved);
+		calcRotation(storeIn);
+		transformationCalculated = true;
+		return storeIn;
+	}
+
+	/**
+	 * Weighted superposition of packed coordinates, writing the result into the provided Rot. 
+	 * Each coordinate set is given as a single array of interleaved x, y, z values 
+	 * (so the i'th point is at [3*i], [3*i+1], [3*i+2]), which the accumulation loops 
+	 * can read sequentially rather than by dereferencing a vector object per point. 
+	 * 
+	 * If translate is true, both arrays are centered in place (as with the vector overloads).
+	 *
+	 * @param moved packed coordinates of the points to superpose onto target
+	 * @param target packed coordinates of the points to superpose moved onto 
+	 * @param weight a weight for each point, or null to weigh them equally
+	 * @param translate
+	 * @param storeIn the Rot to which the optimal rotation should be written
+	 * @return storeIn, for chaining
+	 */
+	public Rot weightedSuperpose(float[] moved, float[] target, float[] weight, boolean translate, Rot storeIn) {
+		int count = moved.length / 3;
+		this.weight = weight;
+		this.length = count;
+		rmsdCalculated = false;
+		transformationCalculated = false;
+		innerProductCalculated = false;
+		wsum = 0f;
+		if (translate) {
+			moveToWeightedCenter(moved, weight, count, movedCenter);
+			wsum = 0f; // set wsum to 0 so we don't float up.
+			moveToWeightedCenter(target, weight, count, targetCenter);
+			untranslate(movedCenter, moved);
+			untranslate(targetCenter, target);
+		} else {
+			//no translation, so make sure getTranslation doesn't report the last superposition's
+			movedCenter.set(0f, 0f, 0f);
+			targetCenter.set(0f, 0f, 0f);
+			if (weight != null) {
+				for (int i = 0; i < count; i++) {
+					wsum += weight[i];
+				}
+			} else {
+				wsum = count;
+			}
+		}
+		if (count == 1) {
+			//the single point case works from vectors, so hand it (and getRmsd) copies of the only point
+			if (singleMoved == null) {
+				singleMoved = new SGVec_3f[] {new SGVec_3f()};
+				singleTarget = new SGVec_3f[] {new SGVec_3f()};
+			}
+			singleMoved[0].set(moved[0], moved[1], moved[2]);
+			singleTarget[0].set(target[0], target[1], target[2]);
+			this.moved = singleMoved;
+			this.target = singleTarget;
+		} else {
+			this.moved = null;
+			this.target = null;
+		}
+		innerProduct(target, moved, count);
+		calcRotation(storeIn);
+		transformationCalculated = true;
+		return storeIn;
+	}
 
 	private Rot getRotation() {
 		Rot result = null;
@@ -248,7 +368,7 @@ public class QCP {
 	private <V extends Vec3f<?>> void calcRmsd(V[] x, V[] y) {
 		//QCP doesn't handle alignment of single values, so if we only have one point 
 		//we just compute regular distance.
-		if(x.length == 1) {
+		if(length == 1) {
 			rmsd = x[0].dist(y[0]);
 			rmsdCalculated = true;
 		} 
@@ -351,6 +471,63 @@ public class QCP {
 		innerProductCalculated = true;
 	}
 
+	/**
+	 * equivalent of {@link #innerProduct(Vec3f[], Vec3f[])} for packed coordinates.
+	 */
+	private void innerProduct(float[] coords1, float[] coords2, int count) {
+		float g1 = 0f, g2 = 0f;
+		float sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+
+		for (int i = 0, c = 0; i < count; i++, c += 3) {
+			float w = weight != null ? weight[i] : 1f;
+			float c1x = coords1[c], c1y = coords1[c + 1], c1z = coords1[c + 2];
+			float x2 = coords2[c], y2 = coords2[c + 1], z2 = coords2[c + 2];
+			float x1, y1, z1;
+			if (weight != null) {
+				x1 = w * c1x;
+				y1 = w * c1y;
+				z1 = w * c1z;
+				g1 += x1 * c1x + y1 * c1y + z1 * c1z;
+				g2 += w * (x2 * x2 + y2 * y2 + z2 * z2);
+			} else {
+				x1 = c1x;
+				y1 = c1y;
+				z1 = c1z;
+				g1 += c1x * c1x + c1y * c1y + c1z * c1z;
+				g2 += x2 * x2 + y2 * y2 + z2 * z2;
+			}
+
+			sxx += (x1 * x2);
+			sxy += (x1 * y2);
+			sxz += (x1 * z2);
+
+			syx += (y1 * x2);
+			syy += (y1 * y2);
+			syz += (y1 * z2);
+
+			szx += (z1 * x2);
+			szy += (z1 * y2);
+			szz += (z1 * z2);
+		}
+		Sxx = sxx; Sxy = sxy; Sxz = sxz;
+		Syx = syx; Syy = syy; Syz = syz;
+		Szx = szx; Szy = szy; Szz = szz;
+		
+		e0 = (g1 + g2) * 0.5f;
+		
+		SxzpSzx = Sxz + Szx;
+		SyzpSzy = Syz + Szy;
+		SxypSyx = Sxy + Syx;
+		SyzmSzy = Syz - Szy;
+		SxzmSzx = Sxz - Szx;
+		SxymSyx = Sxy - Syx;
+		SxxpSyy = Sxx + Syy;
+		SxxmSyy = Sxx - Syy;
+		mxEigenV = e0;
+
+		innerProductCalculated = true;
+	}
+
 	private void calcRmsd(float len) {
 		if (max_iterations > 0) {
 			float Sxx2 = Sxx * Sxx;
@@ -402,28 +579,38 @@ public class QCP {
 	}
 
 	private Rot calcRotation() {
+		return calcRotation(new Rot());
+	}
+
+	private Rot calcRotation(Rot storeIn) {
 
 		//QCP doesn't handle single targets, so if we only have one point and one target, we just rotate by the angular distance between them 
-		if(moved.length == 1) {
-			return new Rot(moved[0], target[0]);
+		if(length == 1) {
+			storeIn.set(moved[0], target[0]);
+			return storeIn;
 		} else {
 
-			float a11 = SxxpSyy + Szz - mxEigenV;
-			float a12 = SyzmSzy;
-			float a13 = -SxzmSzx;
-			float a14 = SxymSyx;
-			float a21 = SyzmSzy;
-			float a22 = SxxmSyy - Szz - mxEigenV;
-			float a23 = SxypSyx;
-			float a24 = SxzpSzx;
+			//The adjoint's components are cubic in the entries of the key matrix, so in single precision they overflow 
+			//for large coordinates, and fall below evec_prec (and so are mistaken for a degenerate solution) for small ones. 
+			//The entries are bounded by e0, so scaling them by 1/e0 keeps everything below near unit magnitude, 
+			//without changing the eigenvector. 
+			float scale = e0 > 0f ? 1f / e0 : 1f;
+			float a11 = (SxxpSyy + Szz - mxEigenV) * scale;
+			float a12 = SyzmSzy * scale;
+			float a13 = -SxzmSzx * scale;
+			float a14 = SxymSyx * scale;
+			float a21 = a12;
+			float a22 = (SxxmSyy - Szz - mxEigenV) * scale;
+			float a23 = SxypSyx * scale;
+			float a24 = SxzpSzx * scale;
 			float a31 = a13;
 			float a32 = a23;
-			float a33 = Syy - Sxx - Szz - mxEigenV;
-			float a34 = SyzpSzy;
+			float a33 = (Syy - Sxx - Szz - mxEigenV) * scale;
+			float a34 = SyzpSzy * scale;
 			float a41 = a14;
 			float a42 = a24;
 			float a43 = a34;
-			float a44 = Szz - SxxpSyy - mxEigenV;
+			float a44 = (Szz - SxxpSyy - mxEigenV) * scale;
 			float a3344_4334 = a33 * a44 - a43 * a34;
 			float a3244_4234 = a32 * a44 - a42 * a34;
 			float a3243_4233 = a32 * a43 - a42 * a33;
@@ -472,18 +659,14 @@ public class QCP {
 							/*
 							 * if qsqr is still too small, return the identity rotation
 							 */
-							return new Rot();
+							storeIn.set(MRotation.IDENTITY);
+							return storeIn;
 						}
 					}
 				}
 			}
-			//prenormalize the result to avoid floating point errors. 
-			float min = q1;
-			min = q2 < min ? q2 : min; 
-			min = q3 < min ? q3: min;
-			min = q4 < min ? q4 : min; 
-			
-			return new Rot(q1/min, q2/min, q3/min, q4/min, true);
+			storeIn.rotation.set(q1, q2, q3, q4, true);
+			return storeIn;
 		}
 	}
 
@@ -498,6 +681,42 @@ public class QCP {
 			p.add(trans);
 		}
 	}
+	
+	/**
+	 * the opposite of translate. subtracts trans from each element of x. 
+	 */
+	public static <V extends Vec3f<?>> void untranslate(Vec3f<?> trans, V[] x) {
+		for (V p : x) {
+			p.sub(trans);
+		}
+	}
+
+	/**
+	 * subtracts trans from each of the count points packed into x.
+	 */
+	public static void untranslate(Vec3f<?> trans, float[] x) {
+		for (int c = 0; c < x.length; c += 3) {
+			x[c] -= trans.x;
+			x[c + 1] -= trans.y;
+			x[c + 2] -= trans.z;
+		}
+	}
+
+	/**
+	 * equivalent of {@link #moveToWeightedCenter(Vec3f[], float[], Vec3f)} for packed coordinates.
+	 */
+	public <V extends Vec3f<?>> V moveToWeightedCenter(float[] toCenter, float[] weight, int count, V center) {
+		float cx = 0f, cy = 0f, cz = 0f;
+		for (int i = 0, c = 0; i < count; i++, c += 3) {
+			float w = weight != null ? weight[i] : 1f;
+			cx += toCenter[c] * w;
+			cy += toCenter[c + 1] * w;
+			cz += toCenter[c + 2] * w;
+			wsum += w;
+		}
+		center.set(cx / wsum, cy / wsum, cz / wsum);
+		return center;
+	}
 
 	public <V extends Vec3f<?>> V moveToWeightedCenter(V[] toCenter, float[] weight, V center)	{	    	    
 
@@ -525,6 +744,16 @@ public class QCP {
 	public SGVec_3f getTranslation() {
 		return targetCenter.subCopy(movedCenter);		
 	}
+	
+	/**
+	 * @param storeIn will be set to the translation component of the last superposition 
+	 * @return storeIn, for chaining
+	 */
+	public <V extends Vec3f<?>> V getTranslation(V storeIn) {
+		storeIn.set(targetCenter);
+		storeIn.sub(movedCenter);
+		return storeIn;
+	}
 
 }
 